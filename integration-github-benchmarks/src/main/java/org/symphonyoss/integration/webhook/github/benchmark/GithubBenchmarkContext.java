@@ -0,0 +1,159 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.webhook.github.GithubWebHookIntegration;
+import org.symphonyoss.integration.webhook.github.delivery.GithubDeliveryFilter;
+import org.symphonyoss.integration.webhook.github.delivery.GithubIngestionQueue;
+import org.symphonyoss.integration.webhook.github.delivery.GithubReviewCorrelator;
+import org.symphonyoss.integration.webhook.github.delivery.GithubSignatureVerifier;
+import org.symphonyoss.integration.webhook.github.delivery.GithubStatusCoalescer;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserFactory;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserResolver;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.V2GithubParserFactory;
+import org.symphonyoss.integration.webhook.parser.metadata.MetadataParser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * Wires the Github integration without a Spring context, the same way the unit tests do, using
+ * a single v2 parser.
+ */
+public class GithubBenchmarkContext {
+
+  private static final String INTEGRATION_USER = "githubWebHookIntegration";
+
+  private static final String APPLICATION_URL = "https://symphony.com/apps/github";
+
+  private static final String PRE_PROCESS_METHOD = "preProcessInputData";
+
+  private final GithubMetadataParser parser;
+
+  private final GithubWebHookIntegration integration;
+
+  private final Method preProcessMethod;
+
+  public GithubBenchmarkContext(GithubBenchmarkEvent event, JsonNode userInfo) {
+    this.parser = event.createParser(new StubGithubParserUtils(userInfo),
+        new BenchmarkIntegrationProperties());
+    this.parser.init();
+    this.parser.setIntegrationUser(INTEGRATION_USER);
+
+    V2GithubParserFactory factory = new V2GithubParserFactory();
+    setField(factory, "beans", Collections.singletonList(parser));
+    factory.init();
+
+    GithubParserResolver resolver = new GithubParserResolver();
+    setField(resolver, "factories", Collections.<GithubParserFactory>singletonList(factory));
+    resolver.init();
+
+    this.integration = new GithubWebHookIntegration();
+    setField(integration, "parserResolver", resolver);
+    setField(integration, "factories", Collections.<GithubParserFactory>singletonList(factory));
+
+    GithubDeliveryFilter deliveryFilter = new GithubDeliveryFilter();
+    deliveryFilter.init();
+    setField(integration, "deliveryFilter", deliveryFilter);
+    setField(integration, "signatureVerifier", new GithubSignatureVerifier());
+
+    // Payloads are parsed synchronously: no queue, no status coalescing, no review correlation
+    setField(integration, "ingestionQueue", new GithubIngestionQueue());
+    setField(integration, "statusCoalescer", new GithubStatusCoalescer());
+    setField(integration, "reviewCorrelator", new GithubReviewCorrelator());
+
+    try {
+      this.preProcessMethod =
+          MetadataParser.class.getDeclaredMethod(PRE_PROCESS_METHOD, JsonNode.class);
+      this.preProcessMethod.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("Pre-processing step not found", e);
+    }
+  }
+
+  public GithubMetadataParser getParser() {
+    return parser;
+  }
+
+  public GithubWebHookIntegration getIntegration() {
+    return integration;
+  }
+
+  /**
+   * Stops the background threads started by the parser and the integration.
+   */
+  public void shutdown() {
+    parser.shutdown();
+    integration.drainIngestionQueue();
+  }
+
+  /**
+   * Runs the pre-processing step of the parser alone. It's protected in the parser hierarchy, so
+   * it's invoked through reflection.
+   * @param input JSON input payload
+   */
+  public void preProcessInputData(JsonNode input) {
+    try {
+      preProcessMethod.invoke(parser, input);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Fail to pre-process the input data", e);
+    }
+  }
+
+  /**
+   * Sets a private field declared in the object class or in one of its superclasses.
+   * @param target Target object
+   * @param fieldName Field name
+   * @param value Field value
+   */
+  private static void setField(Object target, String fieldName, Object value) {
+    Class<?> clazz = target.getClass();
+
+    while (clazz != null) {
+      try {
+        Field field = clazz.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+        return;
+      } catch (NoSuchFieldException e) {
+        clazz = clazz.getSuperclass();
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Fail to set the field " + fieldName, e);
+      }
+    }
+
+    throw new IllegalStateException("Field not found: " + fieldName);
+  }
+
+  /**
+   * Integration properties returning a fixed application URL.
+   */
+  private static final class BenchmarkIntegrationProperties extends IntegrationProperties {
+
+    @Override
+    public String getApplicationUrl(String application) {
+      return APPLICATION_URL;
+    }
+
+  }
+
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.benchmark;
+
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_COMMIT_COMMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_CREATE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_DEPLOYMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUBLIC;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_RELEASE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubCommentMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubCreateMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubDeploymentMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubPublicMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubPullRequestMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2
+    .GithubPullRequestReviewCommentMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubPushMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubReleaseMetadataParser;
+import org.symphonyoss.integration.webhook.github.parser.v2.GithubStatusMetadataParser;
+
+/**
+ * Github events covered by the benchmarks, with the sample payload and the v2 parser of each one.
+ */
+public enum GithubBenchmarkEvent {
+
+  PUSH(GITHUB_EVENT_PUSH, "parser/push/payload_xgithubevent_push.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubPushMetadataParser(null, utils, properties);
+    }
+  },
+
+  PULL_REQUEST(GITHUB_EVENT_PULL_REQUEST,
+      "parser/pullRequest/payload_xgithubevent_pull_request_opened.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubPullRequestMetadataParser(null, utils, properties);
+    }
+  },
+
+  COMMENT(GITHUB_EVENT_COMMIT_COMMENT,
+      "parser/commitComment/payload_xgithubevent_commit_comment_created.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubCommentMetadataParser(null, utils, properties);
+    }
+  },
+
+  PULL_REQUEST_REVIEW_COMMENT(GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+      "parser/pullRequestReviewComment/payload_xgithubevent_pullRequestReviewComment.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubPullRequestReviewCommentMetadataParser(null, utils, properties);
+    }
+  },
+
+  STATUS(GITHUB_EVENT_STATUS, "parser/status/payload_xgithubevent_status.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubStatusMetadataParser(null, utils, properties);
+    }
+  },
+
+  RELEASE(GITHUB_EVENT_RELEASE, "parser/release/payload_xgithubevent_release.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubReleaseMetadataParser(null, utils, properties);
+    }
+  },
+
+  DEPLOYMENT(GITHUB_EVENT_DEPLOYMENT, "parser/deployment/payload_xgithubevent_deployment.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubDeploymentMetadataParser(null, utils, properties);
+    }
+  },
+
+  CREATE(GITHUB_EVENT_CREATE, "parser/created/payload_xgithubevent_branch_created.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubCreateMetadataParser(null, utils, properties);
+    }
+  },
+
+  PUBLIC(GITHUB_EVENT_PUBLIC, "parser/public/payload_xgithubevent_public.json") {
+    @Override
+    public GithubMetadataParser createParser(GithubParserUtils utils,
+        IntegrationProperties properties) {
+      return new GithubPublicMetadataParser(null, utils, properties);
+    }
+  };
+
+  private final String eventName;
+
+  private final String payloadFile;
+
+  GithubBenchmarkEvent(String eventName, String payloadFile) {
+    this.eventName = eventName;
+    this.payloadFile = payloadFile;
+  }
+
+  /**
+   * Value of the 'x-github-event' header.
+   * @return Github event name
+   */
+  public String getEventName() {
+    return eventName;
+  }
+
+  /**
+   * Classpath location of the sample payload.
+   * @return Payload file
+   */
+  public String getPayloadFile() {
+    return payloadFile;
+  }
+
+  /**
+   * Creates the v2 parser that handles the event. The user service isn't required to parse the
+   * payloads.
+   * @param utils Github API utilities
+   * @param properties Integration properties
+   * @return Metadata parser
+   */
+  public abstract GithubMetadataParser createParser(GithubParserUtils utils,
+      IntegrationProperties properties);
+
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.benchmark;
+
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_EVENT_NAME;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.symphonyoss.integration.json.JsonUtils;
+import org.symphonyoss.integration.model.message.Message;
+import org.symphonyoss.integration.utils.SimpleFileUtils;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+import org.symphonyoss.integration.webhook.exception.WebHookParseException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the Github parse path, end to end and for each stage alone:
+ * <ul>
+ * <li><b>readTree</b>: full JSON read, as performed before the payload filter existed</li>
+ * <li><b>readFiltered</b>: streaming read of the paths declared by the parser</li>
+ * <li><b>preProcessInputData</b>: pre-processing step (user enrichment, URL escaping, etc)</li>
+ * <li><b>buildMessage</b>: pre-processing step plus entity build and serialization</li>
+ * <li><b>parse</b>: {@link org.symphonyoss.integration.webhook.github.GithubWebHookIntegration
+ * #parse(WebHookPayload)} end to end</li>
+ * </ul>
+ * The entity build cost is the difference between 'buildMessage' and 'preProcessInputData'. The
+ * MessageML template is rendered by the Symphony clients, so there is no server-side render stage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class GithubParseBenchmark {
+
+  private static final String USER_INFO_FILE = "parser/payload_github_public_info_octocat.json";
+
+  /**
+   * Raw payload, shared by all the stages.
+   */
+  @State(Scope.Thread)
+  public static class PayloadState {
+
+    @Param
+    GithubBenchmarkEvent event;
+
+    String body;
+
+    WebHookPayload payload;
+
+    JsonNode userInfo;
+
+    GithubBenchmarkContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      this.body = SimpleFileUtils.readFile(event.getPayloadFile());
+      this.userInfo = SimpleFileUtils.readJsonFromFile(USER_INFO_FILE);
+
+      Map<String, String> headers = new HashMap<>();
+      headers.put(GITHUB_HEADER_EVENT_NAME, event.getEventName());
+
+      this.payload = new WebHookPayload(Collections.<String, String>emptyMap(), headers, body);
+      this.context = new GithubBenchmarkContext(event, userInfo);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      context.shutdown();
+    }
+
+  }
+
+  /**
+   * State used by the stages that query the user-name cache. The pre-processing step changes the
+   * payload, so each invocation receives a fresh copy of it.
+   *
+   * When the cache is 'warm', every user was already resolved by a previous event. When it's
+   * 'cold', the parser (and its cache) is recreated before each invocation and shut down after it.
+   */
+  @State(Scope.Thread)
+  public static class ParserState {
+
+    @Param({"warm", "cold"})
+    String userCache;
+
+    JsonNode filteredNode;
+
+    JsonNode input;
+
+    GithubBenchmarkContext context;
+
+    @Setup(Level.Trial)
+    public void setup(PayloadState payloadState) throws IOException, WebHookParseException {
+      this.filteredNode = payloadState.context.getParser().getPayloadFilter().read(
+          payloadState.body);
+
+      // Warms up the user-name cache
+      payloadState.context.getIntegration().parse(payloadState.payload);
+
+      this.context = payloadState.context;
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareInvocation(PayloadState payloadState) {
+      if ("cold".equals(userCache)) {
+        this.context = new GithubBenchmarkContext(payloadState.event, payloadState.userInfo);
+      }
+
+      this.input = filteredNode.deepCopy();
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseInvocation() {
+      if ("cold".equals(userCache)) {
+        context.shutdown();
+      }
+    }
+
+  }
+
+  @Benchmark
+  public JsonNode readTree(PayloadState state) throws IOException {
+    return JsonUtils.readTree(state.body);
+  }
+
+  @Benchmark
+  public JsonNode readFiltered(PayloadState state) throws IOException {
+    return state.context.getParser().getPayloadFilter().read(state.body);
+  }
+
+  @Benchmark
+  public JsonNode preProcessInputData(PayloadState payloadState, ParserState state) {
+    state.context.preProcessInputData(state.input);
+    return state.input;
+  }
+
+  @Benchmark
+  public Message buildMessage(PayloadState payloadState, ParserState state) {
+    return state.context.getParser().parse(payloadState.payload.getHeaders(),
+        payloadState.payload.getParameters(), state.input);
+  }
+
+  @Benchmark
+  public Message parse(PayloadState payloadState, ParserState state)
+      throws WebHookParseException {
+    return state.context.getIntegration().parse(payloadState.payload);
+  }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+
+/**
+ * Replaces the calls to the Github user API with a canned user document, so the benchmarks
+ * measure the parsing pipeline instead of the network.
+ */
+public class StubGithubParserUtils extends GithubParserUtils {
+
+  private final JsonNode userInfo;
+
+  public StubGithubParserUtils(JsonNode userInfo) {
+    this.userInfo = userInfo;
+  }
+
+  @Override
+  public JsonNode doGetJsonApi(String url) {
+    return userInfo;
+  }
+
+}
@@ -47,4 +47,8 @@ public final class GithubActionConstants {
   public static final String GITHUB_ACTION_REVIEW_REQUESTED = "review_requested";
 
   public static final String GITHUB_ACTION_REVIEW_REQUEST_REMOVED = "review_request_removed";
+
+  public static final String GITHUB_ACTION_COMPLETED = "completed";
+
+  public static final String GITHUB_ACTION_SUBMITTED = "submitted";
 }
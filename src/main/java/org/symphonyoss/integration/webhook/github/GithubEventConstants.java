@@ -29,10 +29,23 @@ public final class GithubEventConstants {
 
   public static final String GITHUB_HEADER_EVENT_NAME = "x-github-event";
 
+  public static final String GITHUB_HEADER_DELIVERY = "x-github-delivery";
+
+  public static final String GITHUB_HEADER_SIGNATURE = "x-hub-signature-256";
+
+  /**
+   * Default priority classes of the queued events. Entries are 'event=class' or, for the events
+   * qualified by their action or state, 'event/action=class'. Other events are 'normal'.
+   */
+  public static final String GITHUB_EVENT_PRIORITIES =
+      "release=high,deployment=high,deployment_status=high,status/pending=low";
+
   public static final String GITHUB_EVENT_PUSH = "push";
 
   public static final String GITHUB_EVENT_PULL_REQUEST = "pull_request";
 
+  public static final String GITHUB_EVENT_PULL_REQUEST_REVIEW = "pull_request_review";
+
   public static final String GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT = "pull_request_review_comment";
 
   public static final String GITHUB_EVENT_DEPLOYMENT = "deployment";
@@ -50,4 +63,8 @@ public final class GithubEventConstants {
   public static final String GITHUB_EVENT_STATUS = "status";
 
   public static final String GITHUB_EVENT_CREATE = "create";
+
+  public static final String GITHUB_EVENT_CHECK_RUN = "check_run";
+
+  public static final String GITHUB_EVENT_CHECK_SUITE = "check_suite";
 }
@@ -98,6 +98,19 @@ public final class GithubEventTags {
   public static final String PUBLISHED_AT_TAG = "published_at";
   public static final String STATUS_TAG = "status";
   public static final String CONTEXT_TAG = "context";
+  public static final String CHECK_RUN_TAG = "check_run";
+  public static final String CHECK_SUITE_TAG = "check_suite";
+  public static final String HEAD_SHA_TAG = "head_sha";
+  public static final String HEAD_BRANCH_TAG = "head_branch";
+  public static final String CONCLUSION_TAG = "conclusion";
+  public static final String STARTED_AT_TAG = "started_at";
+  public static final String COMPLETED_AT_TAG = "completed_at";
+  public static final String ROLLUP_TAG = "rollup";
+  public static final String REVIEW_TAG = "review";
+  public static final String PULL_REQUEST_REVIEW_ID_TAG = "pull_request_review_id";
+  public static final String COMMENTS_TAG = "comments";
+  public static final String COMMENTS_TOTAL_TAG = "comments_total";
+  public static final String MORE_COMMENTS_TAG = "more_comments";
   public static final String ICON_URL_TAG = "iconURL";
   public static final String TYPE_EVENT = "typeEvent";
   public static final String EVENT_TAG = "event";
@@ -16,6 +16,16 @@
 
 package org.symphonyoss.integration.webhook.github;
 
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_DELIVERY;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_EVENT_NAME;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_SIGNATURE;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.model.config.IntegrationSettings;
@@ -23,6 +33,12 @@ import org.symphonyoss.integration.model.message.Message;
 import org.symphonyoss.integration.webhook.WebHookIntegration;
 import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.exception.WebHookParseException;
+import org.symphonyoss.integration.webhook.github.delivery.GithubDeliveryFilter;
+import org.symphonyoss.integration.webhook.github.delivery.GithubIngestionQueue;
+import org.symphonyoss.integration.webhook.github.delivery.GithubReviewCorrelator;
+import org.symphonyoss.integration.webhook.github.delivery.GithubSignatureVerifier;
+import org.symphonyoss.integration.webhook.github.delivery.GithubStatusCoalescer;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserFactory;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserResolver;
 import org.symphonyoss.integration.webhook.parser.WebHookParser;
@@ -30,6 +46,7 @@ import org.symphonyoss.integration.webhook.parser.WebHookParser;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.PreDestroy;
 import javax.ws.rs.core.MediaType;
 
 /**
@@ -40,12 +57,35 @@ import javax.ws.rs.core.MediaType;
 @Component
 public class GithubWebHookIntegration extends WebHookIntegration {
 
+  private static final Logger LOG = LoggerFactory.getLogger(GithubWebHookIntegration.class);
+
   @Autowired
   private GithubParserResolver parserResolver;
 
   @Autowired
   private List<GithubParserFactory> factories;
 
+  @Autowired
+  private GithubDeliveryFilter deliveryFilter;
+
+  @Autowired
+  private GithubSignatureVerifier signatureVerifier;
+
+  @Autowired
+  private GithubIngestionQueue ingestionQueue;
+
+  @Autowired
+  private GithubStatusCoalescer statusCoalescer;
+
+  @Autowired
+  private GithubReviewCorrelator reviewCorrelator;
+
+  /**
+   * Payload being processed by the current thread, whose signature was already verified and whose
+   * delivery was already checked for redeliveries when it was queued or held.
+   */
+  private final ThreadLocal<WebHookPayload> verifiedPayload = new ThreadLocal<>();
+
   /**
    * Callback to update the integration settings in the parser classes.
    * @param settings Integration settings
@@ -59,16 +99,208 @@ public class GithubWebHookIntegration extends WebHookIntegration {
     }
   }
 
+  /**
+   * Handles the message received from Github.
+   *
+   * The payload signature is verified with the secret of the configuration instance, and the
+   * unsupported or disabled events and the redeliveries are dropped, before the payload is read.
+   * A delivery that is rejected or fails to be processed is forgotten, so it's accepted when it's
+   * redelivered.
+   *
+   * When the asynchronous ingestion is enabled, the payload is then queued in the lane of its
+   * repository, so Github is acknowledged right away. Payloads of low-value events may be shed
+   * when the lane is overloaded. The parsing and the message posting are performed by the
+   * ingestion workers.
+   *
+   * When the status coalescing is enabled, pending statuses are held and only processed if no
+   * newer status is received for the same commit and context within the coalescing window.
+   *
+   * When the review correlation is enabled, submitted reviews and their comments are held for the
+   * correlation window, so the comments are posted within the review card.
+   * @param instanceId Configuration instance identifier
+   * @param integrationUser Integration username
+   * @param payload Message received from Github
+   * @throws WebHookParseException Failure to parse the incoming payload or invalid signature
+   * @throws org.symphonyoss.integration.webhook.github.delivery.GithubIngestionRejectedException
+   * Ingestion queue full
+   */
+  @Override
+  public void handle(final String instanceId, final String integrationUser,
+      final WebHookPayload payload) throws WebHookParseException {
+    verifySignature(instanceId, payload);
+
+    String eventName = payload.getHeaders().get(GITHUB_HEADER_EVENT_NAME);
+
+    if (!parserResolver.isEventAccepted(eventName)) {
+      return;
+    }
+
+    String deliveryId = payload.getHeaders().get(GITHUB_HEADER_DELIVERY);
+
+    if (deliveryFilter.isDuplicate(deliveryId)) {
+      LOG.debug("GitHub delivery {} already received, payload dropped", deliveryId);
+      return;
+    }
+
+    if (GITHUB_EVENT_STATUS.equals(eventName) && statusCoalescer.isEnabled()
+        && statusCoalescer.hold(instanceId, payload.getBody(),
+        newRelease(instanceId, integrationUser, payload))) {
+      LOG.debug("GitHub status held, delivery {}",
+          payload.getHeaders().get(GITHUB_HEADER_DELIVERY));
+      return;
+    }
+
+    if (reviewCorrelator.hold(instanceId, eventName, payload.getBody(),
+        newCorrelatedRelease(instanceId, integrationUser, payload))) {
+      LOG.debug("GitHub review held, delivery {}",
+          payload.getHeaders().get(GITHUB_HEADER_DELIVERY));
+      return;
+    }
+
+    release(instanceId, integrationUser, payload);
+  }
+
+  /**
+   * Processes a payload whose signature was already verified, queueing it when the asynchronous
+   * ingestion is enabled. The delivery is forgotten if it's rejected or fails to be processed.
+   */
+  private void release(String instanceId, String integrationUser, WebHookPayload payload) {
+    try {
+      if (ingestionQueue.isEnabled()) {
+        ingestionQueue.submit(payload.getHeaders().get(GITHUB_HEADER_EVENT_NAME),
+            payload.getBody(), newIngestionTask(instanceId, integrationUser, payload));
+      } else {
+        handleVerified(instanceId, integrationUser, payload);
+      }
+    } catch (RuntimeException e) {
+      deliveryFilter.forget(payload.getHeaders().get(GITHUB_HEADER_DELIVERY));
+      throw e;
+    }
+  }
+
+  /**
+   * Creates the processing of a held status.
+   */
+  private Runnable newRelease(final String instanceId, final String integrationUser,
+      final WebHookPayload payload) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        release(instanceId, integrationUser, payload);
+      }
+    };
+  }
+
+  /**
+   * Creates the processing of a held review or review comment. The body released for a review
+   * includes its folded comments.
+   */
+  private GithubReviewCorrelator.Release newCorrelatedRelease(final String instanceId,
+      final String integrationUser, final WebHookPayload payload) {
+    return new GithubReviewCorrelator.Release() {
+      @Override
+      public void run(String body) {
+        release(instanceId, integrationUser,
+            new WebHookPayload(payload.getParameters(), payload.getHeaders(), body));
+      }
+    };
+  }
+
+  /**
+   * Creates the processing of a queued payload, performed by an ingestion worker. Failures are
+   * logged as they can't be reported to Github anymore.
+   */
+  private Runnable newIngestionTask(final String instanceId, final String integrationUser,
+      final WebHookPayload payload) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        try {
+          handleVerified(instanceId, integrationUser, payload);
+        } catch (Exception e) {
+          String deliveryId = payload.getHeaders().get(GITHUB_HEADER_DELIVERY);
+          deliveryFilter.forget(deliveryId);
+          LOG.error("Fail to process GitHub delivery " + deliveryId, e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Parses and posts a payload whose signature was already verified.
+   */
+  private void handleVerified(String instanceId, String integrationUser, WebHookPayload payload) {
+    verifiedPayload.set(payload);
+
+    try {
+      super.handle(instanceId, integrationUser, payload);
+    } finally {
+      verifiedPayload.remove();
+    }
+  }
+
   /**
    * Parse message received from Github according to the event type and MessageML version supported.
+   * Payloads whose signature doesn't match the webhook secret are rejected and redeliveries of a
+   * payload already received are dropped, both before the payload is read, unless the payload was
+   * already checked when it was queued or held. If the payload can't be parsed, the delivery is
+   * forgotten so it may be redelivered.
    * @param input Message received from Github
-   * @return Message to be posted
-   * @throws WebHookParseException Failure to parse the incoming payload
+   * @return Message to be posted or null if the payload is a redelivery
+   * @throws WebHookParseException Failure to parse the incoming payload or invalid signature
    */
   @Override
   public Message parse(WebHookPayload input) throws WebHookParseException {
-    WebHookParser parser = parserResolver.getFactory().getParser(input);
-    return parser.parse(input);
+    if (verifiedPayload.get() == input) {
+      WebHookParser parser = parserResolver.getFactory().getParser(input);
+      return parser.parse(input);
+    }
+
+    verifySignature(null, input);
+
+    String deliveryId = input.getHeaders().get(GITHUB_HEADER_DELIVERY);
+
+    if (deliveryFilter.isDuplicate(deliveryId)) {
+      LOG.debug("GitHub delivery {} already received, payload dropped", deliveryId);
+      return null;
+    }
+
+    boolean parsed = false;
+    try {
+      WebHookParser parser = parserResolver.getFactory().getParser(input);
+      Message message = parser.parse(input);
+      parsed = true;
+      return message;
+    } finally {
+      if (!parsed) {
+        deliveryFilter.forget(deliveryId);
+      }
+    }
+  }
+
+  /**
+   * Verifies the payload signature.
+   * @param instanceId Configuration instance identifier or null if it isn't known
+   * @param input Message received from Github
+   * @throws GithubParserException Missing or invalid signature
+   */
+  private void verifySignature(String instanceId, WebHookPayload input) {
+    String signature = input.getHeaders().get(GITHUB_HEADER_SIGNATURE);
+
+    if (!signatureVerifier.isValid(instanceId, signature, input.getBody())) {
+      throw new GithubParserException("Invalid or missing payload signature");
+    }
+  }
+
+  /**
+   * Processes the held statuses and reviews and the queued payloads before the services used to
+   * post the messages are destroyed.
+   */
+  @PreDestroy
+  public void drainIngestionQueue() {
+    statusCoalescer.shutdown();
+    reviewCorrelator.shutdown();
+    ingestionQueue.shutdown();
   }
 
   /**
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker for the calls to a Github API host.
+ *
+ * The circuit opens after a number of consecutive failures (server errors, timeouts or other I/O
+ * failures), rejecting every call. Once the open time has elapsed, a single trial call is let
+ * through: the circuit closes if it succeeds and opens again if it fails. Each failed trial
+ * doubles the open time, up to a maximum, so a dead host is called less and less often. A trial
+ * taken by a probe that can't tell if the API works (e.g. a TCP connect) is given back with
+ * {@link #releaseTrial()}, so the circuit stays half-open until a real call succeeds.
+ */
+public class GithubCircuitBreaker {
+
+  /**
+   * Circuit states
+   */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+
+  private final long openMillis;
+
+  private final long maxOpenMillis;
+
+  private final AtomicLong currentOpenMillis;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+  private final AtomicInteger failures = new AtomicInteger();
+
+  private final AtomicBoolean trialAvailable = new AtomicBoolean();
+
+  private volatile long openedAt;
+
+  /**
+   * @param failureThreshold Consecutive failures that open the circuit
+   * @param openMillis How long the circuit stays open before the first trial call, in
+   * milliseconds
+   * @param maxOpenMillis Maximum time the circuit stays open before a trial call, in milliseconds
+   */
+  public GithubCircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis) {
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+    this.maxOpenMillis = maxOpenMillis;
+    this.currentOpenMillis = new AtomicLong(openMillis);
+  }
+
+  /**
+   * Checks if a call may be sent now. The caller must report the outcome of the call through
+   * {@link #onSuccess()} or {@link #onFailure(long)}, or call {@link #releaseTrial()} if the call
+   * wasn't sent.
+   * @param now Current time in milliseconds
+   * @return true if the call may be sent or false if it must be skipped
+   */
+  public boolean tryAcquire(long now) {
+    switch (state.get()) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        return now - openedAt >= currentOpenMillis.get()
+            && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+      default:
+        return trialAvailable.compareAndSet(true, false);
+    }
+  }
+
+  /**
+   * Gives the trial call back without reporting an outcome, so the circuit stays half-open and
+   * the next call is sent as the trial.
+   */
+  public void releaseTrial() {
+    if (state.get() == State.HALF_OPEN) {
+      trialAvailable.set(true);
+    }
+  }
+
+  /**
+   * Reports a successful call.
+   */
+  public void onSuccess() {
+    failures.set(0);
+    currentOpenMillis.set(openMillis);
+    trialAvailable.set(false);
+    state.set(State.CLOSED);
+  }
+
+  /**
+   * Reports a failed call.
+   * @param now Current time in milliseconds
+   */
+  public void onFailure(long now) {
+    if (state.get() == State.HALF_OPEN) {
+      currentOpenMillis.set(Math.min(currentOpenMillis.get() * 2, maxOpenMillis));
+      open(now);
+    } else if (failures.incrementAndGet() >= failureThreshold) {
+      open(now);
+    }
+  }
+
+  /**
+   * Opens the circuit right away, regardless of the number of failures (e.g. the host name can't
+   * be resolved).
+   * @param now Current time in milliseconds
+   */
+  public void open(long now) {
+    openedAt = now;
+    failures.set(0);
+    trialAvailable.set(false);
+    state.set(State.OPEN);
+  }
+
+  /**
+   * @return Current state of the circuit
+   */
+  public State getState() {
+    return state.get();
+  }
+
+  /**
+   * @return How long the circuit stays open before the next trial call, in milliseconds
+   */
+  public long getOpenMillis() {
+    return currentOpenMillis.get();
+  }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of keep-alive connections to the Github API hosts.
+ *
+ * Connections are reused across requests, bounded per route and in total. Expired connections
+ * and connections idle for longer than the idle timeout are evicted by a background thread. The
+ * time spent waiting to lease a connection from the pool is recorded, so a pool too small for the
+ * load can be spotted.
+ */
+public class GithubConnectionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubConnectionPool.class);
+
+  public static final int DEFAULT_MAX_CONNECTIONS = 50;
+
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+  public static final long DEFAULT_IDLE_TIMEOUT_IN_SECONDS = 30;
+
+  private static final long EVICTION_INTERVAL_IN_SECONDS = 5;
+
+  private static final int VALIDATE_AFTER_INACTIVITY_IN_MILLIS = 2000;
+
+  private static final String EVICTION_THREAD_NAME = "github-connection-eviction-%d";
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  private final ScheduledExecutorService evictionExecutor;
+
+  private final AtomicLong acquisitions = new AtomicLong();
+
+  private final AtomicLong acquisitionNanos = new AtomicLong();
+
+  private final AtomicLong maxAcquisitionNanos = new AtomicLong();
+
+  private volatile long idleTimeoutInSeconds = DEFAULT_IDLE_TIMEOUT_IN_SECONDS;
+
+  public GithubConnectionPool() {
+    this.connectionManager = new MeteredConnectionManager();
+    this.connectionManager.setMaxTotal(DEFAULT_MAX_CONNECTIONS);
+    this.connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    this.connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_IN_MILLIS);
+
+    this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat(EVICTION_THREAD_NAME).setDaemon(true).build());
+
+    this.evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        evictConnections();
+      }
+    }, EVICTION_INTERVAL_IN_SECONDS, EVICTION_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @return Connection manager to be used by the HTTP client
+   */
+  public PoolingHttpClientConnectionManager getConnectionManager() {
+    return connectionManager;
+  }
+
+  /**
+   * Update the maximum number of connections in the pool.
+   * @param maxConnections Maximum number of connections
+   */
+  public void setMaxConnections(int maxConnections) {
+    connectionManager.setMaxTotal(maxConnections);
+  }
+
+  /**
+   * Update the maximum number of connections to each host.
+   * @param maxConnectionsPerRoute Maximum number of connections per host
+   */
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+  }
+
+  /**
+   * Update how long a connection may stay idle in the pool before it's closed.
+   * @param idleTimeoutInSeconds Idle timeout in seconds
+   */
+  public void setIdleTimeout(long idleTimeoutInSeconds) {
+    this.idleTimeoutInSeconds = idleTimeoutInSeconds;
+  }
+
+  /**
+   * Closes the expired and idle connections.
+   */
+  public void evictConnections() {
+    connectionManager.closeExpiredConnections();
+    connectionManager.closeIdleConnections(idleTimeoutInSeconds, TimeUnit.SECONDS);
+
+    if (LOG.isDebugEnabled()) {
+      PoolStats stats = connectionManager.getTotalStats();
+      LOG.debug("GitHub connection pool: {} leased, {} available, {} pending, average lease "
+          + "time {} us", stats.getLeased(), stats.getAvailable(), stats.getPending(),
+          getAverageAcquisitionMicros());
+    }
+  }
+
+  /**
+   * Stops the eviction thread and closes every connection.
+   */
+  public void shutdown() {
+    evictionExecutor.shutdownNow();
+    connectionManager.shutdown();
+  }
+
+  /**
+   * @return Current pool usage
+   */
+  public PoolStats getStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  /**
+   * @return Number of connections leased from the pool
+   */
+  public long getAcquisitions() {
+    return acquisitions.get();
+  }
+
+  /**
+   * @return Average time waiting to lease a connection, in microseconds
+   */
+  public long getAverageAcquisitionMicros() {
+    long count = acquisitions.get();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquisitionNanos.get() / count);
+  }
+
+  /**
+   * @return Maximum time waiting to lease a connection, in microseconds
+   */
+  public long getMaxAcquisitionMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(maxAcquisitionNanos.get());
+  }
+
+  private void recordAcquisition(long nanos) {
+    acquisitions.incrementAndGet();
+    acquisitionNanos.addAndGet(nanos);
+
+    long max = maxAcquisitionNanos.get();
+    while (nanos > max && !maxAcquisitionNanos.compareAndSet(max, nanos)) {
+      max = maxAcquisitionNanos.get();
+    }
+  }
+
+  /**
+   * Connection manager that records how long each lease waits for a connection.
+   */
+  private final class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      final ConnectionRequest request = super.requestConnection(route, state);
+
+      return new ConnectionRequest() {
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+          long start = System.nanoTime();
+          try {
+            return request.get(timeout, unit);
+          } finally {
+            recordAcquisition(System.nanoTime() - start);
+          }
+        }
+
+        @Override
+        public boolean cancel() {
+          return request.cancel();
+        }
+      };
+    }
+
+  }
+
+}
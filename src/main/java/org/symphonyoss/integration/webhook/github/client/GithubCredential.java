@@ -0,0 +1,52 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import java.net.URI;
+
+/**
+ * Credential used to authenticate the calls to the Github API. Each credential has its own rate
+ * limit budget.
+ */
+public interface GithubCredential {
+
+  /**
+   * Identifies the credential, e.g. to track its rate limit. Must not reveal the secret.
+   * @return Credential identifier
+   */
+  String getId();
+
+  /**
+   * Checks if the credential can be used now.
+   * @return true if the credential is ready
+   */
+  boolean isAvailable();
+
+  /**
+   * Returns the 'Authorization' header value.
+   * @return Header value or null if no header must be sent
+   */
+  String getAuthorization();
+
+  /**
+   * Returns the URL of the Github API the credential was issued for. The credential must only be
+   * sent to the same scheme, host and port.
+   * @return Github API URL or null if the credential carries no secret
+   */
+  URI getApiUri();
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of credentials handed out in round-robin, so the rate limit budgets of all of them add up.
+ */
+public class GithubCredentials {
+
+  private final List<GithubCredential> credentials;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * @param credentials Credentials. Anonymous calls are used when empty.
+   */
+  public GithubCredentials(List<? extends GithubCredential> credentials) {
+    if (credentials.isEmpty()) {
+      this.credentials =
+          Collections.<GithubCredential>singletonList(GithubTokenCredential.ANONYMOUS);
+    } else {
+      this.credentials = Collections.unmodifiableList(new ArrayList<>(credentials));
+    }
+  }
+
+  /**
+   * @return Number of credentials
+   */
+  public int size() {
+    return credentials.size();
+  }
+
+  /**
+   * @return Next credential in round-robin
+   */
+  public GithubCredential next() {
+    return credentials.get(Math.floorMod(next.getAndIncrement(), credentials.size()));
+  }
+
+  /**
+   * @return All the credentials
+   */
+  public List<GithubCredential> getCredentials() {
+    return credentials;
+  }
+
+}
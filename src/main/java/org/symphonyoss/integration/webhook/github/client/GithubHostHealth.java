@@ -0,0 +1,224 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Health of a Github API host.
+ *
+ * Counts the calls to the host and their failures by kind (unknown host, timeouts, server errors
+ * and other I/O failures). Calls are guarded by a {@link GithubCircuitBreaker}: repeated failures
+ * open it, and an unknown host opens it right away. While it's open, calls to the host are
+ * skipped and the host is probed with an exponential backoff. State changes are logged once.
+ */
+public class GithubHostHealth {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubHostHealth.class);
+
+  private final String host;
+
+  private final int port;
+
+  private final GithubCircuitBreaker circuitBreaker;
+
+  private final AtomicLong calls = new AtomicLong();
+
+  private final AtomicLong failures = new AtomicLong();
+
+  private final AtomicLong unknownHostFailures = new AtomicLong();
+
+  private final AtomicLong timeouts = new AtomicLong();
+
+  private final AtomicLong serverErrors = new AtomicLong();
+
+  private final AtomicLong skippedCalls = new AtomicLong();
+
+  public GithubHostHealth(String host, int port, GithubCircuitBreaker circuitBreaker) {
+    this.host = host;
+    this.port = port;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * Checks if a call to the host may be sent now. The caller must report the outcome of the call.
+   * @param now Current time in milliseconds
+   * @return true if the call may be sent or false if it must be skipped
+   */
+  public boolean tryAcquire(long now) {
+    if (circuitBreaker.tryAcquire(now)) {
+      calls.incrementAndGet();
+      return true;
+    }
+
+    skippedCalls.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Reports a successful call.
+   */
+  public void onSuccess() {
+    GithubCircuitBreaker.State previousState = circuitBreaker.getState();
+    circuitBreaker.onSuccess();
+
+    if (previousState != GithubCircuitBreaker.State.CLOSED) {
+      LOG.info("GitHub API host {} is reachable again", host);
+    }
+  }
+
+  /**
+   * Reports a call that was acquired but never sent (e.g. the request couldn't be built). If it
+   * was the trial call, the trial is given back so the circuit doesn't stay half-open forever.
+   */
+  public void releaseTrial() {
+    circuitBreaker.releaseTrial();
+  }
+
+  /**
+   * Reports a successful probe. The host is reachable, but that doesn't mean its API works, so
+   * the circuit only moves to half-open: the next call is sent as the trial and closes the
+   * circuit if it succeeds.
+   */
+  public void onProbeSuccess() {
+    circuitBreaker.releaseTrial();
+    LOG.info("GitHub API host {} is reachable, next call is a trial", host);
+  }
+
+  /**
+   * Reports a call answered with a server error.
+   * @param now Current time in milliseconds
+   */
+  public void onServerError(long now) {
+    serverErrors.incrementAndGet();
+    onFailure(now, "server error");
+  }
+
+  /**
+   * Reports a call, or a probe, that failed with an exception. Unknown hosts open the circuit
+   * right away.
+   * @param cause Failure cause
+   * @param now Current time in milliseconds
+   */
+  public void onFailure(Throwable cause, long now) {
+    if (cause instanceof UnknownHostException) {
+      unknownHostFailures.incrementAndGet();
+      failures.incrementAndGet();
+
+      GithubCircuitBreaker.State previousState = circuitBreaker.getState();
+
+      if (previousState == GithubCircuitBreaker.State.HALF_OPEN) {
+        circuitBreaker.onFailure(now);
+      } else {
+        circuitBreaker.open(now);
+      }
+
+      if (previousState == GithubCircuitBreaker.State.CLOSED) {
+        LOG.error("Couldn't reach GitHub API due to: Host {} unreachable", host);
+      }
+    } else if (cause instanceof SocketTimeoutException) {
+      timeouts.incrementAndGet();
+      onFailure(now, "timeout");
+    } else {
+      onFailure(now, cause == null ? "I/O failure" : cause.getClass().getSimpleName());
+    }
+  }
+
+  private void onFailure(long now, String reason) {
+    failures.incrementAndGet();
+
+    GithubCircuitBreaker.State previousState = circuitBreaker.getState();
+    circuitBreaker.onFailure(now);
+
+    if (previousState == GithubCircuitBreaker.State.CLOSED
+        && circuitBreaker.getState() == GithubCircuitBreaker.State.OPEN) {
+      LOG.warn("GitHub API host {} unhealthy after repeated failures ({}), calls suspended for {} "
+          + "ms", host, reason, circuitBreaker.getOpenMillis());
+    }
+  }
+
+  /**
+   * Checks if the host should be probed now: the circuit is open and the backoff has elapsed. The
+   * caller must report the outcome of the probe.
+   * @param now Current time in milliseconds
+   * @return true if the host should be probed
+   */
+  public boolean tryProbe(long now) {
+    return circuitBreaker.getState() == GithubCircuitBreaker.State.OPEN
+        && circuitBreaker.tryAcquire(now);
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * @return Current state of the host circuit
+   */
+  public GithubCircuitBreaker.State getState() {
+    return circuitBreaker.getState();
+  }
+
+  /**
+   * @return Current backoff, in milliseconds
+   */
+  public long getBackoffMillis() {
+    return circuitBreaker.getOpenMillis();
+  }
+
+  public long getCalls() {
+    return calls.get();
+  }
+
+  public long getFailures() {
+    return failures.get();
+  }
+
+  public long getUnknownHostFailures() {
+    return unknownHostFailures.get();
+  }
+
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  public long getServerErrors() {
+    return serverErrors.get();
+  }
+
+  public long getSkippedCalls() {
+    return skippedCalls.get();
+  }
+
+  /**
+   * @return Failed calls over the total calls, or zero if the host has never been called
+   */
+  public double getErrorRate() {
+    long total = calls.get();
+    return total == 0 ? 0 : (double) failures.get() / total;
+  }
+
+}
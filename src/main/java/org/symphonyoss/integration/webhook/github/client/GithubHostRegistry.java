@@ -0,0 +1,193 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the health of the Github API hosts.
+ *
+ * Only the configured Github API hosts are tracked, keyed by host name and port. URLs read from
+ * the payloads may point to any host, so the other hosts get a throwaway health that is never
+ * registered nor probed. A background thread probes the unhealthy tracked hosts, opening a TCP
+ * connection to them once their backoff has elapsed, so a host that comes back is called again
+ * without waiting for a trial call to succeed.
+ */
+public class GithubHostRegistry {
+
+  private static final int FAILURE_THRESHOLD = 5;
+
+  private static final long INITIAL_BACKOFF_IN_MILLIS = 1000;
+
+  private static final long MAX_BACKOFF_IN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final long PROBE_INTERVAL_IN_SECONDS = 5;
+
+  private static final int PROBE_TIMEOUT_IN_MILLIS = 2000;
+
+  private static final String HTTPS_SCHEME = "https";
+
+  private static final int HTTPS_PORT = 443;
+
+  private static final int HTTP_PORT = 80;
+
+  private static final String PROBE_THREAD_NAME = "github-host-probe-%d";
+
+  private static final String PORT_SEPARATOR = ":";
+
+  /**
+   * Health of the tracked hosts keyed by host name and port.
+   */
+  private final ConcurrentMap<String, GithubHostHealth> hosts = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService probeExecutor;
+
+  public GithubHostRegistry() {
+    this.probeExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat(PROBE_THREAD_NAME).setDaemon(true).build());
+
+    this.probeExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        probe();
+      }
+    }, PROBE_INTERVAL_IN_SECONDS, PROBE_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tracks the health of the host of a configured Github API URL.
+   * @param url Github API URL
+   */
+  public void track(String url) {
+    GithubHostHealth health = newHealth(url);
+
+    if (StringUtils.isNotEmpty(health.getHost())) {
+      hosts.putIfAbsent(getKey(health), health);
+    }
+  }
+
+  /**
+   * Returns the health of the host of the URL.
+   * @param url URL to be called
+   * @return Health of the tracked host, or a throwaway health if the host isn't tracked or the
+   * URL is invalid.
+   */
+  public GithubHostHealth getHost(String url) {
+    GithubHostHealth health = newHealth(url);
+    GithubHostHealth tracked = hosts.get(getKey(health));
+
+    return tracked != null ? tracked : health;
+  }
+
+  /**
+   * Checks if the health is the one tracked for its host.
+   * @param health Host health
+   * @return true if the host is a configured Github API host
+   */
+  public boolean isTracked(GithubHostHealth health) {
+    return hosts.get(getKey(health)) == health;
+  }
+
+  private GithubHostHealth newHealth(String url) {
+    String host = StringUtils.EMPTY;
+    int port = HTTPS_PORT;
+
+    try {
+      URI uri = new URI(url);
+
+      if (uri.getHost() != null) {
+        host = uri.getHost().toLowerCase(Locale.ENGLISH);
+        port = uri.getPort() != -1 ? uri.getPort()
+            : HTTPS_SCHEME.equalsIgnoreCase(uri.getScheme()) ? HTTPS_PORT : HTTP_PORT;
+      }
+    } catch (URISyntaxException e) {
+      // Nothing to do, invalid URLs are never tracked
+    }
+
+    GithubCircuitBreaker circuitBreaker = new GithubCircuitBreaker(FAILURE_THRESHOLD,
+        INITIAL_BACKOFF_IN_MILLIS, MAX_BACKOFF_IN_MILLIS);
+
+    return new GithubHostHealth(host, port, circuitBreaker);
+  }
+
+  private static String getKey(GithubHostHealth health) {
+    return health.getHost() + PORT_SEPARATOR + health.getPort();
+  }
+
+  /**
+   * Returns the health of every tracked host, to be exposed as metrics.
+   * @return Hosts health
+   */
+  public Collection<GithubHostHealth> getHosts() {
+    return Collections.unmodifiableCollection(hosts.values());
+  }
+
+  /**
+   * Probes the unhealthy tracked hosts whose backoff has elapsed.
+   */
+  public void probe() {
+    for (GithubHostHealth health : hosts.values()) {
+      if (health.tryProbe(System.currentTimeMillis())) {
+        try {
+          probe(health);
+          health.onProbeSuccess();
+        } catch (IOException | RuntimeException e) {
+          health.onFailure(e, System.currentTimeMillis());
+        }
+      }
+    }
+  }
+
+  /**
+   * Probes the host by resolving its name and opening a TCP connection to it.
+   * @param health Host to be probed
+   * @throws IOException The host is unreachable
+   */
+  protected void probe(GithubHostHealth health) throws IOException {
+    Socket socket = new Socket();
+
+    try {
+      socket.connect(new InetSocketAddress(health.getHost(), health.getPort()),
+          PROBE_TIMEOUT_IN_MILLIS);
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Stops probing the hosts.
+   */
+  public void shutdown() {
+    probeExecutor.shutdownNow();
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the Github API rate limit of a host and credential, as reported by the
+ * 'X-RateLimit-Limit', 'X-RateLimit-Remaining' and 'X-RateLimit-Reset' response headers.
+ *
+ * Requests flow freely while the budget is large. Once the remaining budget gets below
+ * {@link #THROTTLE_PERCENT} of the limit, requests are paced so the remaining budget is spread
+ * until the reset time, and the requests in excess are rejected. When the budget is exhausted,
+ * every request is rejected until the reset time.
+ *
+ * Each accepted request is taken from the remaining budget right away, so concurrent requests
+ * can't all be accepted against the same stale budget while their responses are pending.
+ */
+public class GithubRateLimit {
+
+  public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+  public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+  public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+  private static final int THROTTLE_PERCENT = 10;
+
+  private static final int UNKNOWN = -1;
+
+  private final AtomicLong nextRequestAt = new AtomicLong();
+
+  private volatile int limit = UNKNOWN;
+
+  private final AtomicInteger remaining = new AtomicInteger(UNKNOWN);
+
+  private volatile long resetAt;
+
+  /**
+   * Checks if a request may be sent now.
+   * @param now Current time in milliseconds since the epoch
+   * @return true if the request may be sent or false if it must be skipped
+   */
+  public boolean tryAcquire(long now) {
+    while (true) {
+      int currentRemaining = remaining.get();
+
+      if (currentRemaining == UNKNOWN || now >= resetAt) {
+        return true;
+      }
+
+      if (currentRemaining == 0) {
+        return false;
+      }
+
+      if ((long) currentRemaining * 100 > (long) limit * THROTTLE_PERCENT) {
+        if (remaining.compareAndSet(currentRemaining, currentRemaining - 1)) {
+          return true;
+        }
+
+        // Budget taken by another request in the meantime
+        continue;
+      }
+
+      long interval = (resetAt - now) / currentRemaining;
+      long next = nextRequestAt.get();
+
+      if (now >= next && nextRequestAt.compareAndSet(next, now + interval)) {
+        take();
+        return true;
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * Takes a request from the remaining budget, unless it's already exhausted.
+   */
+  private void take() {
+    while (true) {
+      int currentRemaining = remaining.get();
+
+      if (currentRemaining <= 0
+          || remaining.compareAndSet(currentRemaining, currentRemaining - 1)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Updates the budget with the values reported by Github. Missing or invalid values are ignored.
+   * @param limitHeader 'X-RateLimit-Limit' header value
+   * @param remainingHeader 'X-RateLimit-Remaining' header value
+   * @param resetHeader 'X-RateLimit-Reset' header value, in seconds since the epoch
+   */
+  public void update(String limitHeader, String remainingHeader, String resetHeader) {
+    try {
+      if (limitHeader == null || remainingHeader == null || resetHeader == null) {
+        return;
+      }
+
+      int newLimit = Integer.parseInt(limitHeader.trim());
+      int newRemaining = Integer.parseInt(remainingHeader.trim());
+      long newResetAt = TimeUnit.SECONDS.toMillis(Long.parseLong(resetHeader.trim()));
+
+      this.limit = newLimit;
+      this.resetAt = newResetAt;
+      this.remaining.set(Math.max(0, newRemaining));
+    } catch (NumberFormatException e) {
+      // Nothing to do, keeps the current values
+    }
+  }
+
+  /**
+   * @return Requests allowed in the current window or -1 if unknown
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return Remaining requests in the current window or -1 if unknown
+   */
+  public int getRemaining() {
+    return remaining.get();
+  }
+
+  /**
+   * @return When the current window resets, in milliseconds since the epoch
+   */
+  public long getResetAt() {
+    return resetAt;
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import java.net.URI;
+
+/**
+ * Personal access token, or no credential at all for anonymous calls.
+ */
+public class GithubTokenCredential implements GithubCredential {
+
+  /**
+   * Anonymous calls, sent without any 'Authorization' header.
+   */
+  public static final GithubTokenCredential ANONYMOUS =
+      new GithubTokenCredential("anonymous", null, null);
+
+  private static final String TOKEN_PREFIX = "token ";
+
+  private final String id;
+
+  private final String authorization;
+
+  private final URI apiUri;
+
+  /**
+   * @param id Credential identifier
+   * @param token Personal access token or null for anonymous calls
+   * @param apiUrl Github API URL the token was issued for or null for anonymous calls
+   */
+  public GithubTokenCredential(String id, String token, String apiUrl) {
+    this.id = id;
+    this.authorization = token == null ? null : TOKEN_PREFIX + token;
+    this.apiUri = apiUrl == null ? null : URI.create(apiUrl);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  public String getAuthorization() {
+    return authorization;
+  }
+
+  @Override
+  public URI getApiUri() {
+    return apiUri;
+  }
+
+}
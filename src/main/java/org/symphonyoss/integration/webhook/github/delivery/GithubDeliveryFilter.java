@@ -0,0 +1,297 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Time-windowed set of the Github delivery identifiers already received ('X-GitHub-Delivery'
+ * header), used to drop the redeliveries before the payload is read.
+ *
+ * The set is a ring of generations. Each generation covers a slice of the window and holds the
+ * 64-bit fingerprints of the deliveries received during that slice in a fixed-size open-addressing
+ * table, updated with compare-and-swap only. When a slice is over, the oldest generation is
+ * cleared and reused, so the memory is bounded by the configured capacity and a delivery is
+ * remembered for at least the configured window.
+ *
+ * Fingerprints are exact up to 64-bit hash collisions, so unlike a Bloom filter a new delivery is
+ * virtually never taken for a redelivery. When a generation is full, new deliveries are accepted
+ * without being recorded.
+ */
+@Component
+public class GithubDeliveryFilter {
+
+  private static final long DEFAULT_WINDOW_IN_MINUTES = 60;
+
+  private static final int DEFAULT_CAPACITY = 50000;
+
+  private static final int GENERATIONS = 4;
+
+  private static final int MAX_PROBES = 16;
+
+  private static final long EMPTY = 0;
+
+  private static final long REMOVED = Long.MIN_VALUE;
+
+  private static final long ROTATING = -1;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private long window = DEFAULT_WINDOW_IN_MINUTES;
+
+  private int capacity = DEFAULT_CAPACITY;
+
+  private long sliceInMillis;
+
+  private AtomicLongArray[] tables;
+
+  private AtomicLongArray slices;
+
+  private final AtomicLong duplicates = new AtomicLong();
+
+  /**
+   * Update the time window during which a delivery is remembered.
+   * @param window Window in minutes
+   */
+  @Value("${github.delivery.dedup.window-minutes:" + DEFAULT_WINDOW_IN_MINUTES + "}")
+  public void setWindow(long window) {
+    this.window = window;
+  }
+
+  /**
+   * Update the expected number of deliveries received during the time window.
+   * @param capacity Number of deliveries
+   */
+  @Value("${github.delivery.dedup.capacity:" + DEFAULT_CAPACITY + "}")
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Allocates the generations. Each one covers a slice of the window, so the window is fully
+   * covered by the generations other than the current one.
+   */
+  @PostConstruct
+  public void init() {
+    this.sliceInMillis = Math.max(1, TimeUnit.MINUTES.toMillis(window) / (GENERATIONS - 1));
+
+    int generationCapacity = Math.max(1, capacity / (GENERATIONS - 1));
+    int tableSize = Integer.highestOneBit(Math.max(MAX_PROBES, generationCapacity * 2 - 1)) << 1;
+
+    this.tables = new AtomicLongArray[GENERATIONS];
+    for (int i = 0; i < GENERATIONS; i++) {
+      tables[i] = new AtomicLongArray(tableSize);
+    }
+
+    this.slices = new AtomicLongArray(GENERATIONS);
+  }
+
+  /**
+   * Checks if the delivery was already received during the time window and records it otherwise.
+   * @param deliveryId Delivery identifier
+   * @return true if the delivery was already received
+   */
+  public boolean isDuplicate(String deliveryId) {
+    return isDuplicate(deliveryId, System.currentTimeMillis());
+  }
+
+  boolean isDuplicate(String deliveryId, long now) {
+    if (StringUtils.isEmpty(deliveryId)) {
+      return false;
+    }
+
+    long fingerprint = fingerprint(deliveryId);
+    long slice = now / sliceInMillis;
+    int current = (int) (slice % GENERATIONS);
+
+    rotate(current, slice);
+
+    for (int i = 0; i < GENERATIONS; i++) {
+      long generationSlice = slices.get(i);
+
+      if (i != current && generationSlice > slice - GENERATIONS && generationSlice < slice
+          && contains(tables[i], fingerprint)) {
+        duplicates.incrementAndGet();
+        return true;
+      }
+    }
+
+    if (insert(tables[current], fingerprint)) {
+      return false;
+    }
+
+    duplicates.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Forgets a delivery, so it's accepted if it's received again (e.g. it failed to be processed
+   * and is going to be redelivered).
+   * @param deliveryId Delivery identifier
+   */
+  public void forget(String deliveryId) {
+    if (StringUtils.isEmpty(deliveryId)) {
+      return;
+    }
+
+    long fingerprint = fingerprint(deliveryId);
+
+    for (AtomicLongArray table : tables) {
+      int mask = table.length() - 1;
+      int index = (int) fingerprint & mask;
+
+      for (int probe = 0; probe < MAX_PROBES; probe++) {
+        long value = table.get(index);
+
+        if (value == EMPTY) {
+          break;
+        }
+
+        if (value == fingerprint) {
+          table.compareAndSet(index, fingerprint, REMOVED);
+        }
+
+        index = (index + 1) & mask;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of redeliveries dropped so far.
+   * @return Number of redeliveries
+   */
+  public long getDuplicates() {
+    return duplicates.get();
+  }
+
+  /**
+   * Moves the generation to the current slice, clearing the fingerprints of its previous slice.
+   * Only the thread that marks the generation as rotating clears it, and the new slice is
+   * published after the table is cleared. The other threads wait for the new slice before
+   * recording a delivery in that generation, so a delivery is never wiped by a late clear.
+   */
+  private void rotate(int generation, long slice) {
+    while (true) {
+      long generationSlice = slices.get(generation);
+
+      if (generationSlice == ROTATING) {
+        Thread.yield();
+        continue;
+      }
+
+      if (generationSlice >= slice) {
+        return;
+      }
+
+      if (slices.compareAndSet(generation, generationSlice, ROTATING)) {
+        AtomicLongArray table = tables[generation];
+
+        for (int i = 0; i < table.length(); i++) {
+          table.set(i, EMPTY);
+        }
+
+        slices.set(generation, slice);
+        return;
+      }
+    }
+  }
+
+  private boolean contains(AtomicLongArray table, long fingerprint) {
+    int mask = table.length() - 1;
+    int index = (int) fingerprint & mask;
+
+    for (int probe = 0; probe < MAX_PROBES; probe++) {
+      long value = table.get(index);
+
+      if (value == fingerprint) {
+        return true;
+      }
+
+      if (value == EMPTY) {
+        return false;
+      }
+
+      index = (index + 1) & mask;
+    }
+
+    return false;
+  }
+
+  /**
+   * Adds the fingerprint to the table.
+   * @return false if the fingerprint was already in the table
+   */
+  private boolean insert(AtomicLongArray table, long fingerprint) {
+    int mask = table.length() - 1;
+    int index = (int) fingerprint & mask;
+
+    for (int probe = 0; probe < MAX_PROBES; probe++) {
+      long value = table.get(index);
+
+      if (value == fingerprint) {
+        return false;
+      }
+
+      if (value == EMPTY) {
+        if (table.compareAndSet(index, EMPTY, fingerprint)) {
+          return true;
+        }
+
+        // Another delivery took the slot, which may be the same delivery
+        if (table.get(index) == fingerprint) {
+          return false;
+        }
+      }
+
+      index = (index + 1) & mask;
+    }
+
+    // Table full around this slot: accept the delivery without recording it
+    return true;
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the delivery identifier, followed by the MurmurHash3 finalizer so the
+   * low bits used to index the tables are well mixed. Doesn't allocate.
+   */
+  private long fingerprint(String deliveryId) {
+    long hash = FNV_OFFSET_BASIS;
+
+    for (int i = 0; i < deliveryId.length(); i++) {
+      hash = (hash ^ deliveryId.charAt(i)) * FNV_PRIME;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return hash == EMPTY || hash == REMOVED ? 1 : hash;
+  }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+/**
+ * Priority classes of the queued payloads. Each lane serves its repositories by weighted
+ * round-robin on the class of their oldest payload, so the rare and important events aren't
+ * delayed behind bursts of low-value ones from other repositories. The events of a repository are
+ * always processed in arrival order. Payloads of the lowest class are shed under overload.
+ */
+public enum GithubEventPriority {
+
+  HIGH(8),
+
+  NORMAL(4),
+
+  LOW(1);
+
+  private final int weight;
+
+  GithubEventPriority(int weight) {
+    this.weight = weight;
+  }
+
+  /**
+   * Returns the number of payloads of this class served in a row by a lane.
+   * @return Class weight
+   */
+  public int getWeight() {
+    return weight;
+  }
+
+}
@@ -0,0 +1,405 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single-threaded lane of the ingestion queue. The payloads of each repository are kept in their
+ * own queue and processed one at a time, in arrival order, whatever their priority class. The
+ * priority classes are applied across the repositories of the lane: the repositories are served
+ * by weighted round-robin on the class of their oldest payload. Payloads without a repository
+ * are queued on their own.
+ *
+ * Payloads of the lowest class are shed when the lane depth or the time the oldest payload has
+ * been waiting reaches the shedding thresholds. When the lane is full, the oldest payload of the
+ * lowest class is shed to make room for a payload of a higher class. Shedding drops payloads but
+ * never reorders the remaining ones.
+ */
+class GithubIngestionLane implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubIngestionLane.class);
+
+  private static final GithubEventPriority[] PRIORITIES = GithubEventPriority.values();
+
+  private static final GithubEventPriority LOWEST_PRIORITY = PRIORITIES[PRIORITIES.length - 1];
+
+  private final GithubIngestionQueue owner;
+
+  /**
+   * Queues of the repositories with payloads waiting, keyed by repository full name.
+   */
+  private final Map<String, RepositoryQueue> repositories = new HashMap<>();
+
+  /**
+   * Repositories with payloads waiting, by priority class of their oldest payload. Each waiting
+   * repository is in exactly one of them.
+   */
+  private final ArrayDeque<RepositoryQueue>[] ready;
+
+  private final int capacity;
+
+  private final int shedDepth;
+
+  private final long shedLatency;
+
+  private final Thread worker;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  private int size;
+
+  private boolean accepting = true;
+
+  /**
+   * Payloads each class may still be served before the credits are refilled.
+   */
+  private final int[] credits = new int[PRIORITIES.length];
+
+  @SuppressWarnings("unchecked")
+  GithubIngestionLane(GithubIngestionQueue owner, String name, int capacity, int shedDepth,
+      long shedLatency) {
+    this.owner = owner;
+    this.capacity = capacity;
+    this.shedDepth = shedDepth;
+    this.shedLatency = shedLatency;
+    this.ready = new ArrayDeque[PRIORITIES.length];
+
+    for (int i = 0; i < ready.length; i++) {
+      ready[i] = new ArrayDeque<>();
+    }
+
+    this.worker = new Thread(this, name);
+    this.worker.setDaemon(true);
+  }
+
+  void start() {
+    worker.start();
+  }
+
+  /**
+   * Queues a payload after the payloads of its repository, unless the lane is overloaded, full or
+   * shutting down.
+   * @param repository Repository full name or null
+   * @param eventName Event name
+   * @param priority Priority class
+   * @param task Payload processing
+   * @return false if the payload was rejected, because the lane is full or shutting down. Shed
+   * payloads are accepted and dropped.
+   */
+  boolean offer(String repository, String eventName, GithubEventPriority priority,
+      Runnable task) {
+    long now = System.currentTimeMillis();
+
+    lock.lock();
+    try {
+      if (!accepting) {
+        return false;
+      }
+
+      if (priority == LOWEST_PRIORITY
+          && (size >= shedDepth || getOldestWait(now) >= shedLatency)) {
+        owner.countShedEvent(eventName);
+        return true;
+      }
+
+      if (size >= capacity && (priority == LOWEST_PRIORITY || !shedOldestLowest())) {
+        return false;
+      }
+
+      RepositoryQueue queue = repository == null ? null : repositories.get(repository);
+
+      if (queue == null) {
+        queue = new RepositoryQueue(repository);
+
+        if (repository != null) {
+          repositories.put(repository, queue);
+        }
+      }
+
+      queue.entries.addLast(new Entry(eventName, priority, now, task));
+
+      if (queue.entries.size() == 1) {
+        ready[priority.ordinal()].addLast(queue);
+      }
+
+      size++;
+      notEmpty.signal();
+
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the time the oldest queued payload has been waiting. The oldest payload of the lane is
+   * the oldest payload of one of its repositories. Must be called holding the lock.
+   */
+  private long getOldestWait(long now) {
+    long oldest = now;
+
+    for (ArrayDeque<RepositoryQueue> repositoryQueues : ready) {
+      for (RepositoryQueue queue : repositoryQueues) {
+        long enqueuedAt = queue.entries.peekFirst().enqueuedAt;
+
+        if (enqueuedAt < oldest) {
+          oldest = enqueuedAt;
+        }
+      }
+    }
+
+    return now - oldest;
+  }
+
+  /**
+   * Sheds the oldest payload of the lowest class. Must be called holding the lock.
+   * @return false if the lane has no payload of the lowest class
+   */
+  private boolean shedOldestLowest() {
+    Entry oldest = null;
+    RepositoryQueue oldestQueue = null;
+
+    for (ArrayDeque<RepositoryQueue> repositoryQueues : ready) {
+      for (RepositoryQueue queue : repositoryQueues) {
+        for (Entry entry : queue.entries) {
+          if (entry.priority == LOWEST_PRIORITY) {
+            if (oldest == null || entry.enqueuedAt < oldest.enqueuedAt) {
+              oldest = entry;
+              oldestQueue = queue;
+            }
+
+            break;
+          }
+        }
+      }
+    }
+
+    if (oldest == null) {
+      return false;
+    }
+
+    if (oldestQueue.entries.peekFirst() == oldest) {
+      ready[LOWEST_PRIORITY.ordinal()].removeFirstOccurrence(oldestQueue);
+      oldestQueue.entries.pollFirst();
+      schedule(oldestQueue);
+    } else {
+      oldestQueue.entries.removeFirstOccurrence(oldest);
+    }
+
+    size--;
+    owner.countShedEvent(oldest.eventName);
+
+    return true;
+  }
+
+  /**
+   * Returns the number of payloads waiting in this lane.
+   * @return Queue depth
+   */
+  int getDepth() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops accepting payloads. The worker stops once the queued payloads are processed.
+   */
+  void shutdown() {
+    lock.lock();
+    try {
+      accepting = false;
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the worker to process the queued payloads.
+   * @param deadline Time limit, in milliseconds since the epoch
+   * @return true if the worker has stopped
+   * @throws InterruptedException Interrupted while waiting
+   */
+  boolean awaitTermination(long deadline) throws InterruptedException {
+    worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+    return !worker.isAlive();
+  }
+
+  /**
+   * Drops the queued payloads and interrupts the worker.
+   * @return Number of payloads dropped
+   */
+  int abort() {
+    lock.lock();
+    try {
+      int dropped = size;
+
+      for (ArrayDeque<RepositoryQueue> repositoryQueues : ready) {
+        repositoryQueues.clear();
+      }
+
+      repositories.clear();
+      size = 0;
+      accepting = false;
+      notEmpty.signalAll();
+      worker.interrupt();
+
+      return dropped;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      Runnable task;
+
+      try {
+        task = take();
+      } catch (InterruptedException e) {
+        continue;
+      }
+
+      if (task == null) {
+        return;
+      }
+
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.error("Fail to process GitHub payload", e);
+      }
+    }
+  }
+
+  /**
+   * Waits for the next payload to be processed.
+   * @return Payload processing or null if the lane is shut down and drained
+   * @throws InterruptedException Interrupted while waiting
+   */
+  private Runnable take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (size == 0) {
+        if (!accepting) {
+          return null;
+        }
+
+        notEmpty.await();
+      }
+
+      size--;
+      return poll().task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Polls the next payload by weighted round-robin: the oldest payload of the first repository
+   * of the highest class with credits left is served. When no such class remains, every class
+   * gets its weight in credits again, so the lower classes are never starved. Must be called
+   * holding the lock, with the lane not empty.
+   */
+  private Entry poll() {
+    while (true) {
+      for (int i = 0; i < ready.length; i++) {
+        if (credits[i] > 0 && !ready[i].isEmpty()) {
+          credits[i]--;
+
+          RepositoryQueue queue = ready[i].pollFirst();
+          Entry entry = queue.entries.pollFirst();
+          schedule(queue);
+
+          return entry;
+        }
+      }
+
+      for (int i = 0; i < credits.length; i++) {
+        credits[i] = PRIORITIES[i].getWeight();
+      }
+    }
+  }
+
+  /**
+   * Makes a repository wait for the class of its oldest payload, or forgets it if it has no
+   * payload left. Must be called holding the lock.
+   */
+  private void schedule(RepositoryQueue queue) {
+    Entry head = queue.entries.peekFirst();
+
+    if (head != null) {
+      ready[head.priority.ordinal()].addLast(queue);
+    } else if (queue.repository != null) {
+      repositories.remove(queue.repository);
+    }
+  }
+
+  /**
+   * Payloads of a repository, in arrival order.
+   */
+  private static final class RepositoryQueue {
+
+    private final String repository;
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+    private RepositoryQueue(String repository) {
+      this.repository = repository;
+    }
+
+  }
+
+  /**
+   * Queued payload.
+   */
+  private static final class Entry {
+
+    private final String eventName;
+
+    private final GithubEventPriority priority;
+
+    private final long enqueuedAt;
+
+    private final Runnable task;
+
+    private Entry(String eventName, GithubEventPriority priority, long enqueuedAt,
+        Runnable task) {
+      this.eventName = eventName;
+      this.priority = priority;
+      this.enqueuedAt = enqueuedAt;
+      this.task = task;
+    }
+
+  }
+
+}
@@ -0,0 +1,521 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PRIORITIES;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Bounded queue of the payloads accepted by the webhook and processed asynchronously by a pool of
+ * workers, so Github gets its acknowledgement right away instead of waiting for the parsing, the
+ * user enrichment and the message posting.
+ *
+ * Each worker owns a lane. Payloads are dispatched to a lane by hashing the repository full name,
+ * so the events of a repository are posted in the order they were received while different
+ * repositories are processed in parallel. Payloads without a repository are spread across the
+ * lanes. The queue size is split evenly among the lanes.
+ *
+ * Each payload gets a priority class from its event name, qualified by the top-level 'action' or
+ * 'state' field of the payload (e.g. 'status/pending'). The default classes are defined by
+ * {@link org.symphonyoss.integration.webhook.github.GithubEventConstants#GITHUB_EVENT_PRIORITIES}.
+ * The classes never reorder the events of a repository: lanes serve their repositories by the
+ * weight of the class of their oldest payload, and shed the payloads of the lowest class when
+ * they're overloaded. Shed payloads are acknowledged and never processed.
+ *
+ * When the queue is full, payloads are rejected with a {@link GithubIngestionRejectedException}
+ * rather than piling up request threads. On shutdown, new payloads are rejected and the queued
+ * ones are processed until the drain timeout.
+ *
+ * The queue is disabled unless 'github.ingestion.async' is set.
+ */
+@Component
+public class GithubIngestionQueue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubIngestionQueue.class);
+
+  private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+  private static final int DEFAULT_WORKERS = 4;
+
+  private static final long DEFAULT_RETRY_AFTER_IN_SECONDS = 30;
+
+  private static final long DEFAULT_DRAIN_TIMEOUT_IN_SECONDS = 30;
+
+  private static final int DEFAULT_SHED_DEPTH = 100;
+
+  private static final long DEFAULT_SHED_LATENCY_IN_MILLIS = 10000;
+
+  /**
+   * Maximum number of event types whose shed payloads are counted separately. Shed payloads of
+   * other event types are counted together.
+   */
+  private static final int MAX_SHED_EVENT_TYPES = 128;
+
+  private static final String UNKNOWN_EVENT = "unknown";
+
+  private static final String OTHER_EVENTS = "other";
+
+  private static final String PRIORITY_SEPARATOR = ",";
+
+  private static final String CLASS_SEPARATOR = "=";
+
+  private static final String QUALIFIER_SEPARATOR = "/";
+
+  private static final String LANE_THREAD_NAME = "github-ingestion-%d";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final String REPOSITORY = "repository";
+
+  private static final String FULL_NAME = "full_name";
+
+  private static final String ACTION = "action";
+
+  private static final String STATE = "state";
+
+  private boolean enabled;
+
+  private int queueSize = DEFAULT_QUEUE_SIZE;
+
+  private int workers = DEFAULT_WORKERS;
+
+  private long retryAfter = DEFAULT_RETRY_AFTER_IN_SECONDS;
+
+  private long drainTimeout = DEFAULT_DRAIN_TIMEOUT_IN_SECONDS;
+
+  private int shedDepth = DEFAULT_SHED_DEPTH;
+
+  private long shedLatency = DEFAULT_SHED_LATENCY_IN_MILLIS;
+
+  private Map<String, GithubEventPriority> priorities = Collections.emptyMap();
+
+  /**
+   * Events whose priority class depends on the action or state of the payload.
+   */
+  private Set<String> qualifiedEvents = Collections.emptySet();
+
+  private GithubIngestionLane[] lanes;
+
+  private boolean shutdown;
+
+  private final AtomicInteger nextLane = new AtomicInteger();
+
+  private final AtomicLong rejectedPayloads = new AtomicLong();
+
+  private final ConcurrentMap<String, AtomicLong> shedEvents = new ConcurrentHashMap<>();
+
+  public GithubIngestionQueue() {
+    setPriorities(GITHUB_EVENT_PRIORITIES);
+  }
+
+  /**
+   * Enables the asynchronous processing of the payloads.
+   * @param enabled true to acknowledge the payloads before processing them
+   */
+  @Value("${github.ingestion.async:false}")
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Update the maximum number of payloads waiting to be processed.
+   * @param queueSize Queue size
+   */
+  @Value("${github.ingestion.queue-size:" + DEFAULT_QUEUE_SIZE + "}")
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  /**
+   * Update the number of workers processing the payloads, each one owning a lane.
+   * @param workers Number of workers
+   */
+  @Value("${github.ingestion.workers:" + DEFAULT_WORKERS + "}")
+  public void setWorkers(int workers) {
+    this.workers = workers;
+  }
+
+  /**
+   * Update the time Github is asked to wait before retrying a rejected payload.
+   * @param retryAfter Time in seconds
+   */
+  @Value("${github.ingestion.retry-after-seconds:" + DEFAULT_RETRY_AFTER_IN_SECONDS + "}")
+  public void setRetryAfter(long retryAfter) {
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * Update the maximum time spent processing the queued payloads on shutdown.
+   * @param drainTimeout Time in seconds
+   */
+  @Value("${github.ingestion.drain-timeout-seconds:" + DEFAULT_DRAIN_TIMEOUT_IN_SECONDS + "}")
+  public void setDrainTimeout(long drainTimeout) {
+    this.drainTimeout = drainTimeout;
+  }
+
+  /**
+   * Update the lane depth from which the payloads of the lowest priority class are shed.
+   * @param shedDepth Number of payloads waiting in the lane
+   */
+  @Value("${github.ingestion.shed.queue-depth:" + DEFAULT_SHED_DEPTH + "}")
+  public void setShedDepth(int shedDepth) {
+    this.shedDepth = shedDepth;
+  }
+
+  /**
+   * Update the waiting time of the oldest payload of a lane from which the payloads of the lowest
+   * priority class are shed.
+   * @param shedLatency Time in milliseconds
+   */
+  @Value("${github.ingestion.shed.latency-millis:" + DEFAULT_SHED_LATENCY_IN_MILLIS + "}")
+  public void setShedLatency(long shedLatency) {
+    this.shedLatency = shedLatency;
+  }
+
+  /**
+   * Update the priority classes of the events.
+   * @param priorities Comma-separated list of 'event=class' or 'event/action=class' entries
+   */
+  @Value("${github.ingestion.priorities:" + GITHUB_EVENT_PRIORITIES + "}")
+  public void setPriorities(String priorities) {
+    Map<String, GithubEventPriority> classes = new HashMap<>();
+    Set<String> qualified = new HashSet<>();
+
+    for (String entry : StringUtils.split(priorities, PRIORITY_SEPARATOR)) {
+      String[] parts = StringUtils.split(entry, CLASS_SEPARATOR);
+
+      try {
+        String key = parts[0].trim();
+        classes.put(key, GithubEventPriority.valueOf(parts[1].trim().toUpperCase()));
+
+        if (key.contains(QUALIFIER_SEPARATOR)) {
+          qualified.add(StringUtils.substringBefore(key, QUALIFIER_SEPARATOR));
+        }
+      } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+        LOG.warn("Invalid GitHub event priority: {}", entry);
+      }
+    }
+
+    this.priorities = classes;
+    this.qualifiedEvents = qualified;
+  }
+
+  /**
+   * Starts the workers.
+   */
+  @PostConstruct
+  public void init() {
+    if (!enabled) {
+      return;
+    }
+
+    int laneCapacity = (queueSize + workers - 1) / workers;
+    GithubIngestionLane[] lanes = new GithubIngestionLane[workers];
+
+    for (int i = 0; i < workers; i++) {
+      lanes[i] = new GithubIngestionLane(this, String.format(LANE_THREAD_NAME, i), laneCapacity,
+          shedDepth, shedLatency);
+      lanes[i].start();
+    }
+
+    this.lanes = lanes;
+  }
+
+  /**
+   * Checks if the payloads are processed asynchronously.
+   * @return true if the payloads must be queued
+   */
+  public boolean isEnabled() {
+    return lanes != null;
+  }
+
+  /**
+   * Queues a payload to be processed by the lane of its repository, unless it's shed.
+   * @param eventName Event name
+   * @param body Raw JSON payload
+   * @param task Payload processing
+   * @throws GithubIngestionRejectedException Lane full or shutting down
+   */
+  public void submit(String eventName, String body, Runnable task) {
+    Envelope envelope = readEnvelope(body, qualifiedEvents.contains(eventName));
+    GithubEventPriority priority = priorityOf(eventName, envelope.getQualifier());
+
+    String repository = envelope.getRepository();
+
+    if (!lanes[laneOf(repository)].offer(repository, eventName, priority, task)) {
+      rejectedPayloads.incrementAndGet();
+      throw new GithubIngestionRejectedException("GitHub ingestion queue is full", retryAfter);
+    }
+  }
+
+  /**
+   * Returns the priority class of the event.
+   * @param eventName Event name
+   * @param qualifier Action or state of the payload or null
+   * @return Priority class
+   */
+  GithubEventPriority priorityOf(String eventName, String qualifier) {
+    GithubEventPriority priority = null;
+
+    if (qualifier != null) {
+      priority = priorities.get(eventName + QUALIFIER_SEPARATOR + qualifier);
+    }
+
+    if (priority == null) {
+      priority = priorities.get(eventName);
+    }
+
+    return priority == null ? GithubEventPriority.NORMAL : priority;
+  }
+
+  /**
+   * Returns the lane of the repository.
+   * @param repository Repository full name or null
+   * @return Lane index
+   */
+  int laneOf(String repository) {
+    int hash;
+
+    if (repository == null) {
+      hash = nextLane.getAndIncrement();
+    } else {
+      hash = repository.hashCode();
+      hash ^= hash >>> 16;
+    }
+
+    return (hash & Integer.MAX_VALUE) % lanes.length;
+  }
+
+  /**
+   * Returns the number of payloads waiting to be processed.
+   * @return Queue depth
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+
+    for (int laneDepth : getLaneDepths()) {
+      depth += laneDepth;
+    }
+
+    return depth;
+  }
+
+  /**
+   * Returns the number of payloads waiting in each lane, so the lanes of the busiest repositories
+   * can be spotted.
+   * @return Queue depth of each lane
+   */
+  public int[] getLaneDepths() {
+    if (lanes == null) {
+      return new int[0];
+    }
+
+    int[] depths = new int[lanes.length];
+
+    for (int i = 0; i < lanes.length; i++) {
+      depths[i] = lanes[i].getDepth();
+    }
+
+    return depths;
+  }
+
+  /**
+   * Returns the number of payloads rejected so far because the queue was full.
+   * @return Number of rejected payloads
+   */
+  public long getRejectedPayloads() {
+    return rejectedPayloads.get();
+  }
+
+  /**
+   * Returns the number of payloads shed so far because their lane was overloaded.
+   * @return Number of shed payloads keyed by event name
+   */
+  public Map<String, Long> getShedEvents() {
+    Map<String, Long> result = new HashMap<>();
+
+    for (Map.Entry<String, AtomicLong> entry : shedEvents.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+
+    return result;
+  }
+
+  void countShedEvent(String eventName) {
+    String key = eventName == null ? UNKNOWN_EVENT : eventName;
+    AtomicLong counter = shedEvents.get(key);
+
+    if (counter == null) {
+      String bucket = shedEvents.size() < MAX_SHED_EVENT_TYPES ? key : OTHER_EVENTS;
+      AtomicLong newCounter = new AtomicLong();
+
+      counter = shedEvents.putIfAbsent(bucket, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+
+    counter.incrementAndGet();
+    LOG.debug("GitHub ingestion lane overloaded, {} payload shed", key);
+  }
+
+  /**
+   * Stops accepting payloads and processes the queued ones until the drain timeout.
+   */
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (lanes == null || shutdown) {
+      return;
+    }
+
+    shutdown = true;
+
+    for (GithubIngestionLane lane : lanes) {
+      lane.shutdown();
+    }
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(drainTimeout);
+    int dropped = 0;
+
+    try {
+      for (GithubIngestionLane lane : lanes) {
+        if (!lane.awaitTermination(deadline)) {
+          dropped += lane.abort();
+        }
+      }
+    } catch (InterruptedException e) {
+      for (GithubIngestionLane lane : lanes) {
+        dropped += lane.abort();
+      }
+
+      Thread.currentThread().interrupt();
+    }
+
+    if (dropped > 0) {
+      LOG.warn("GitHub ingestion queue not drained in {} s, {} payloads dropped", drainTimeout,
+          dropped);
+    }
+  }
+
+  /**
+   * Reads the repository full name, and optionally the action and state, from the payload. The
+   * payload is streamed only until the top-level fields needed are found.
+   * @param body Raw JSON payload
+   * @param qualified true to read the top-level 'action' and 'state' fields
+   * @return Fields found in the payload. Fields are null if they're missing or the payload can't
+   * be read.
+   */
+  static Envelope readEnvelope(String body, boolean qualified) {
+    Envelope envelope = new Envelope();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return envelope;
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+
+        if (REPOSITORY.equals(fieldName) && token == JsonToken.START_OBJECT) {
+          envelope.repository = readFullName(parser);
+
+          if (!qualified) {
+            break;
+          }
+        } else if (qualified && token == JsonToken.VALUE_STRING && ACTION.equals(fieldName)) {
+          envelope.action = parser.getText();
+        } else if (qualified && token == JsonToken.VALUE_STRING && STATE.equals(fieldName)) {
+          envelope.state = parser.getText();
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      // The payload is left to the parser
+    }
+
+    return envelope;
+  }
+
+  private static String readFullName(JsonParser parser) throws IOException {
+    String fullName = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (FULL_NAME.equals(fieldName) && token == JsonToken.VALUE_STRING) {
+        fullName = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return fullName;
+  }
+
+  /**
+   * Top-level fields of the payload used to dispatch it.
+   */
+  static final class Envelope {
+
+    private String repository;
+
+    private String action;
+
+    private String state;
+
+    String getRepository() {
+      return repository;
+    }
+
+    /**
+     * Returns the action of the payload, or its state for the events without action.
+     * @return Action, state or null
+     */
+    String getQualifier() {
+      return action != null ? action : state;
+    }
+
+  }
+
+}
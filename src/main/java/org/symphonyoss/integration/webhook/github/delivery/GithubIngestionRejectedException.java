@@ -0,0 +1,40 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+/**
+ * Reports a payload that couldn't be queued for asynchronous processing, because the ingestion
+ * queue is full or shutting down. Github must retry the delivery later.
+ */
+public class GithubIngestionRejectedException extends RuntimeException {
+
+  private final long retryAfterSeconds;
+
+  public GithubIngestionRejectedException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * Returns the time Github should wait before retrying the delivery.
+   * @return Time in seconds
+   */
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+}
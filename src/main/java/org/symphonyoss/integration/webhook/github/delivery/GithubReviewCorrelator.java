@@ -0,0 +1,610 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.symphonyoss.integration.webhook.github.GithubActionConstants
+    .GITHUB_ACTION_CREATED;
+import static org.symphonyoss.integration.webhook.github.GithubActionConstants
+    .GITHUB_ACTION_SUBMITTED;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.ACTION_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.BODY_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMMENTS_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMMENTS_TOTAL_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMMENT_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.HTML_URL_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.ID_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags
+    .PULL_REQUEST_REVIEW_ID_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.REVIEW_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.STATE_TAG;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.webhook.github.parser.GithubPayloadFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Correlates a pull request review with the burst of review comments Github sends along with it,
+ * so a review with many inline comments is posted as a single card instead of one card per
+ * comment.
+ *
+ * The first event of a review (the submitted review or one of its comments, matched by review id)
+ * opens a correlation window. When the window expires, the review is released with the comments
+ * received meanwhile folded into its payload: the first comments are kept, truncated, and the
+ * others are only counted. Comments whose review isn't received within the window are released
+ * one by one, as usual. A comment received again for the same review (matched by comment id) is
+ * dropped, so it's neither folded nor counted twice.
+ *
+ * A 'commented' review without a body, such as the implicit review Github creates for a single
+ * comment, has nothing to wait for: it's processed at once, the comments held for it are released
+ * one by one and its later comments aren't held, so such comments aren't delayed.
+ *
+ * The number of held payloads is bounded: when the capacity is reached, payloads are processed
+ * without being held. The correlator is disabled unless 'github.review.correlate.window-seconds'
+ * is set.
+ */
+@Component
+public class GithubReviewCorrelator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubReviewCorrelator.class);
+
+  private static final int DEFAULT_CAPACITY = 1000;
+
+  private static final int DEFAULT_MAX_COMMENTS = 10;
+
+  private static final int DEFAULT_COMMENT_LENGTH = 200;
+
+  private static final String TIMER_THREAD_NAME = "github-review-correlator";
+
+  private static final String KEY_SEPARATOR = "|";
+
+  private static final String PATH = "path";
+
+  private static final String COMMENTED_STATE = "commented";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final GithubPayloadFilter COMMENT_FILTER = GithubPayloadFilter.fromPaths(
+      Arrays.asList(ACTION_TAG, "comment.id", "comment.pull_request_review_id", "comment.path",
+          "comment.body", "comment.html_url"));
+
+  private static final GithubPayloadFilter REVIEW_FILTER =
+      GithubPayloadFilter.fromPaths(Arrays.asList(ACTION_TAG, "review.id", "review.state",
+          "review.body"));
+
+  /**
+   * Processing of a held payload.
+   */
+  public interface Release {
+
+    /**
+     * Processes the payload.
+     * @param body Raw JSON payload. Review payloads include the folded comments.
+     */
+    void run(String body);
+
+  }
+
+  private int window;
+
+  private int capacity = DEFAULT_CAPACITY;
+
+  private int maxComments = DEFAULT_MAX_COMMENTS;
+
+  private int commentLength = DEFAULT_COMMENT_LENGTH;
+
+  private ScheduledExecutorService timer;
+
+  /**
+   * Reviews being correlated keyed by instance and review id.
+   */
+  private final Map<String, Review> held = new HashMap<>();
+
+  private int heldPayloads;
+
+  private final AtomicLong foldedComments = new AtomicLong();
+
+  /**
+   * Update the time a review waits for its comments.
+   * @param window Time in seconds. Zero disables the correlator.
+   */
+  @Value("${github.review.correlate.window-seconds:0}")
+  public void setWindow(int window) {
+    this.window = window;
+  }
+
+  /**
+   * Update the maximum number of held payloads.
+   * @param capacity Maximum number of held payloads
+   */
+  @Value("${github.review.correlate.capacity:" + DEFAULT_CAPACITY + "}")
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Update the maximum number of comments folded into a review card.
+   * @param maxComments Maximum number of comments
+   */
+  @Value("${github.review.correlate.max-comments:" + DEFAULT_MAX_COMMENTS + "}")
+  public void setMaxComments(int maxComments) {
+    this.maxComments = maxComments;
+  }
+
+  /**
+   * Update the length the folded comments are truncated to.
+   * @param commentLength Maximum number of characters
+   */
+  @Value("${github.review.correlate.comment-length:" + DEFAULT_COMMENT_LENGTH + "}")
+  public void setCommentLength(int commentLength) {
+    this.commentLength = commentLength;
+  }
+
+  /**
+   * Starts the timer that expires the correlation windows.
+   */
+  @PostConstruct
+  public synchronized void init() {
+    if (window <= 0) {
+      return;
+    }
+
+    this.timer = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat(TIMER_THREAD_NAME).setDaemon(true).build());
+  }
+
+  /**
+   * Checks if the reviews are correlated with their comments.
+   * @return true if the correlator is enabled
+   */
+  public synchronized boolean isEnabled() {
+    return timer != null;
+  }
+
+  /**
+   * Holds a submitted review or one of its comments until the correlation window of the review
+   * expires. A 'commented' review without a body releases the comments held for it and isn't
+   * held. A comment already received for the review is dropped.
+   * @param instanceId Configuration instance identifier
+   * @param eventName Github event name
+   * @param body Raw JSON payload
+   * @param release Processing of the payload, performed when the window expires
+   * @return true if the payload is held or dropped and mustn't be processed now
+   */
+  public boolean hold(String instanceId, String eventName, String body, Release release) {
+    if (!isEnabled()) {
+      return false;
+    }
+
+    Event event = readEvent(eventName, body);
+
+    if (event == null) {
+      return false;
+    }
+
+    final String key = instanceId + KEY_SEPARATOR + event.reviewId;
+
+    if (event.immediate) {
+      passThrough(key);
+      return false;
+    }
+
+    synchronized (this) {
+      if (timer == null) {
+        return false;
+      }
+
+      Review review = held.get(key);
+
+      if (review != null && review.passThrough) {
+        return false;
+      }
+
+      if (review != null && event.comment != null && review.isFolded(event.commentId)) {
+        LOG.debug("GitHub review comment {} already received, payload dropped", event.commentId);
+        return true;
+      }
+
+      int added = getAddedPayloads(event, review);
+
+      if (added > 0 && heldPayloads + added > capacity) {
+        return false;
+      }
+
+      if (review == null) {
+        review = open(key);
+      }
+
+      heldPayloads += added;
+
+      if (event.comment == null) {
+        review.pending.clear();
+        review.body = body;
+        review.release = release;
+      } else {
+        review.fold(event.commentId, event.comment, maxComments);
+
+        if (added > 0) {
+          review.pending.add(new Held(body, release));
+        }
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * Opens the correlation window of a review. Must be called holding the lock.
+   * @param key Review key
+   * @return Review being correlated
+   */
+  private Review open(final String key) {
+    Review review = new Review();
+    held.put(key, review);
+
+    timer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        expire(key);
+      }
+    }, window, TimeUnit.SECONDS);
+
+    return review;
+  }
+
+  /**
+   * Releases the comments held for a review that has nothing to wait for, and lets its later
+   * comments through until the window expires. The comments are released before the review is
+   * processed by the caller.
+   * @param key Review key
+   */
+  private void passThrough(String key) {
+    List<Held> comments;
+
+    synchronized (this) {
+      if (timer == null) {
+        return;
+      }
+
+      Review review = held.get(key);
+
+      if (review == null) {
+        if (heldPayloads < capacity) {
+          open(key).passThrough = true;
+        }
+
+        return;
+      }
+
+      comments = new ArrayList<>(review.pending);
+      heldPayloads -= comments.size();
+      review.pending.clear();
+      review.passThrough = true;
+    }
+
+    for (Held comment : comments) {
+      run(comment.release, comment.body);
+    }
+  }
+
+  /**
+   * Computes the change in the number of held payloads. The review replaces its held comments,
+   * and comments received after the review are only folded.
+   * @param event Review or comment being held
+   * @param review Review being correlated or null if the event opens a new window
+   * @return Number of payloads added, negative if the review replaces several comments
+   */
+  private int getAddedPayloads(Event event, Review review) {
+    int heldByReview = review == null ? 0 : review.getHeldPayloads();
+
+    if (event.comment == null) {
+      return 1 - heldByReview;
+    }
+
+    return review != null && review.release != null ? 0 : 1;
+  }
+
+  /**
+   * Expires the correlation window of a review. Called by the timer thread.
+   * @param key Review key
+   */
+  private void expire(String key) {
+    Review review;
+
+    synchronized (this) {
+      review = held.remove(key);
+
+      if (review == null) {
+        return;
+      }
+
+      heldPayloads -= review.getHeldPayloads();
+    }
+
+    release(review);
+  }
+
+  /**
+   * Processes the review with its comments folded, or the comments one by one if the review
+   * wasn't received. Called without holding the lock, so slow processing doesn't delay new
+   * payloads.
+   */
+  private void release(Review review) {
+    if (review.release != null) {
+      foldedComments.addAndGet(review.total);
+      run(review.release, merge(review));
+      return;
+    }
+
+    for (Held comment : review.pending) {
+      run(comment.release, comment.body);
+    }
+  }
+
+  private void run(Release release, String body) {
+    try {
+      release.run(body);
+    } catch (RuntimeException e) {
+      LOG.error("Fail to process GitHub review", e);
+    }
+  }
+
+  /**
+   * Adds the folded comments and the number of comments received to the review payload.
+   * @param review Correlated review
+   * @return Raw JSON payload
+   */
+  private String merge(Review review) {
+    if (review.total == 0) {
+      return review.body;
+    }
+
+    try {
+      ObjectNode node = (ObjectNode) MAPPER.readTree(review.body);
+      node.putArray(COMMENTS_TAG).addAll(review.comments);
+      node.put(COMMENTS_TOTAL_TAG, review.total);
+
+      return MAPPER.writeValueAsString(node);
+    } catch (IOException e) {
+      LOG.warn("Fail to fold the comments into the GitHub review", e);
+      return review.body;
+    }
+  }
+
+  /**
+   * Reads the review id of a submitted review or of a created review comment, streaming only the
+   * fields required to fold the comment.
+   * @param eventName Github event name
+   * @param body Raw JSON payload
+   * @return Review id and comment or null if the payload isn't correlated
+   */
+  Event readEvent(String eventName, String body) {
+    boolean isReview = GITHUB_EVENT_PULL_REQUEST_REVIEW.equals(eventName);
+
+    if (!isReview && !GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT.equals(eventName)) {
+      return null;
+    }
+
+    JsonNode node;
+
+    try {
+      node = isReview ? REVIEW_FILTER.read(body) : COMMENT_FILTER.read(body);
+    } catch (IOException e) {
+      return null;
+    }
+
+    String action = node.path(ACTION_TAG).asText();
+
+    if (isReview) {
+      JsonNode reviewId = node.path(REVIEW_TAG).path(ID_TAG);
+
+      if (!GITHUB_ACTION_SUBMITTED.equals(action) || !reviewId.canConvertToLong()) {
+        return null;
+      }
+
+      JsonNode review = node.path(REVIEW_TAG);
+      JsonNode reviewBody = review.path(BODY_TAG);
+      boolean immediate = COMMENTED_STATE.equalsIgnoreCase(review.path(STATE_TAG).asText())
+          && (!reviewBody.isTextual() || StringUtils.isBlank(reviewBody.textValue()));
+
+      return new Event(reviewId.asLong(), 0, null, immediate);
+    }
+
+    JsonNode comment = node.path(COMMENT_TAG);
+    JsonNode reviewId = comment.path(PULL_REQUEST_REVIEW_ID_TAG);
+    JsonNode commentId = comment.path(ID_TAG);
+
+    if (!GITHUB_ACTION_CREATED.equals(action) || !reviewId.canConvertToLong()
+        || !commentId.canConvertToLong()) {
+      return null;
+    }
+
+    ObjectNode folded = JsonNodeFactory.instance.objectNode();
+    folded.put(PATH, comment.path(PATH).asText());
+    folded.put(BODY_TAG, StringUtils.abbreviate(comment.path(BODY_TAG).asText(),
+        Math.max(commentLength, 4)));
+    folded.put(HTML_URL_TAG, comment.path(HTML_URL_TAG).asText());
+
+    return new Event(reviewId.asLong(), commentId.asLong(), folded, false);
+  }
+
+  /**
+   * Returns the number of payloads currently held.
+   * @return Number of held payloads
+   */
+  public synchronized int getHeldPayloads() {
+    return heldPayloads;
+  }
+
+  /**
+   * Returns the number of comments folded into review cards so far.
+   * @return Number of folded comments
+   */
+  public long getFoldedComments() {
+    return foldedComments.get();
+  }
+
+  /**
+   * Stops the timer and processes the held payloads.
+   */
+  @PreDestroy
+  public void shutdown() {
+    List<Review> reviews;
+
+    synchronized (this) {
+      if (timer == null) {
+        return;
+      }
+
+      reviews = new ArrayList<>(held.values());
+      held.clear();
+      heldPayloads = 0;
+
+      timer.shutdownNow();
+      timer = null;
+    }
+
+    for (Review review : reviews) {
+      release(review);
+    }
+  }
+
+  /**
+   * Review id and folded comment read from a payload.
+   */
+  static final class Event {
+
+    private final long reviewId;
+
+    /**
+     * Comment id or zero if the payload is the review itself.
+     */
+    private final long commentId;
+
+    /**
+     * Folded comment or null if the payload is the review itself.
+     */
+    private final ObjectNode comment;
+
+    /**
+     * true if the payload is a review that has no comments to wait for.
+     */
+    private final boolean immediate;
+
+    private Event(long reviewId, long commentId, ObjectNode comment, boolean immediate) {
+      this.reviewId = reviewId;
+      this.commentId = commentId;
+      this.comment = comment;
+      this.immediate = immediate;
+    }
+
+  }
+
+  /**
+   * Held payload.
+   */
+  private static final class Held {
+
+    private final String body;
+
+    private final Release release;
+
+    private Held(String body, Release release) {
+      this.body = body;
+      this.release = release;
+    }
+
+  }
+
+  /**
+   * Review being correlated.
+   */
+  private static final class Review {
+
+    /**
+     * Review payload or null if the review wasn't received yet.
+     */
+    private String body;
+
+    private Release release;
+
+    private final List<ObjectNode> comments = new ArrayList<>();
+
+    /**
+     * Ids of the comments received, folded or only counted.
+     */
+    private final Set<Long> commentIds = new HashSet<>();
+
+    private int total;
+
+    /**
+     * true if the review was processed at once and its comments aren't held.
+     */
+    private boolean passThrough;
+
+    /**
+     * Comments released one by one if the review isn't received.
+     */
+    private final List<Held> pending = new ArrayList<>();
+
+    private boolean isFolded(long commentId) {
+      return commentIds.contains(commentId);
+    }
+
+    private void fold(long commentId, ObjectNode comment, int maxComments) {
+      commentIds.add(commentId);
+      total++;
+
+      if (comments.size() < maxComments) {
+        comments.add(comment);
+      }
+    }
+
+    private int getHeldPayloads() {
+      return pending.size() + (release == null ? 0 : 1);
+    }
+
+  }
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Verifies the 'X-Hub-Signature-256' header sent by Github, the HMAC-SHA256 of the payload keyed
+ * by the webhook secret.
+ *
+ * The payload is encoded to UTF-8 in small chunks fed straight into the MAC, so it's hashed in a
+ * single pass without copying it into a byte array. The MACs are pooled per secret along with
+ * their encoder and buffer, already initialized with the secret, so the requests skip the
+ * provider lookup and the key setup. Signatures are compared in constant time.
+ *
+ * Each configuration instance may have its own secret, set through
+ * 'github.webhook.instance-secrets'. The other instances use 'github.webhook.secret'. The
+ * verification of an instance is disabled unless one of them is set. Once it's set, unsigned
+ * payloads are rejected.
+ */
+@Component
+public class GithubSignatureVerifier {
+
+  private static final String SIGNATURE_PREFIX = "sha256=";
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private static final int SIGNATURE_LENGTH = 32;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final int POOL_SIZE = 32;
+
+  private static final String INSTANCE_SEPARATOR = ":";
+
+  /**
+   * MACs keyed by the webhook secret, or null if no secret is set.
+   */
+  private volatile MacPool defaultMacs;
+
+  /**
+   * MACs keyed by the secret of each configuration instance that has its own secret.
+   */
+  private volatile Map<String, MacPool> instanceMacs = Collections.emptyMap();
+
+  private final AtomicLong rejectedPayloads = new AtomicLong();
+
+  /**
+   * Update the webhook secret used by the configuration instances without their own secret.
+   * @param secret Secret configured in the Github webhook
+   * @throws IllegalStateException HMAC-SHA256 not supported by the JVM
+   */
+  @Value("${github.webhook.secret:}")
+  public void setSecret(String secret) {
+    this.defaultMacs = StringUtils.isEmpty(secret) ? null : new MacPool(secret);
+  }
+
+  /**
+   * Update the webhook secrets of the configuration instances that have their own secret.
+   * @param secrets Comma-separated 'instanceId:secret' pairs. Secrets can't contain commas.
+   * @throws IllegalStateException HMAC-SHA256 not supported by the JVM
+   */
+  @Value("${github.webhook.instance-secrets:}")
+  public void setInstanceSecrets(String secrets) {
+    Map<String, MacPool> macs = new HashMap<>();
+
+    for (String entry : StringUtils.split(StringUtils.defaultString(secrets), ',')) {
+      String instanceId = StringUtils.substringBefore(entry, INSTANCE_SEPARATOR).trim();
+      String secret = StringUtils.substringAfter(entry, INSTANCE_SEPARATOR);
+
+      if (StringUtils.isNotEmpty(instanceId) && StringUtils.isNotEmpty(secret)) {
+        macs.put(instanceId, new MacPool(secret));
+      }
+    }
+
+    this.instanceMacs = macs;
+  }
+
+  /**
+   * Checks the payload signature with the webhook secret.
+   * @param signature 'X-Hub-Signature-256' header ('sha256=' followed by 64 hexadecimal digits)
+   * @param body Raw payload
+   * @return true if the signature is valid or the verification is disabled
+   */
+  public boolean isValid(String signature, String body) {
+    return isValid(null, signature, body);
+  }
+
+  /**
+   * Checks the payload signature with the secret of the configuration instance.
+   * @param instanceId Configuration instance identifier or null to use the webhook secret
+   * @param signature 'X-Hub-Signature-256' header ('sha256=' followed by 64 hexadecimal digits)
+   * @param body Raw payload
+   * @return true if the signature is valid or the verification is disabled
+   */
+  public boolean isValid(String instanceId, String signature, String body) {
+    MacPool macs = instanceId == null ? null : instanceMacs.get(instanceId);
+
+    if (macs == null) {
+      macs = defaultMacs;
+    }
+
+    if (macs == null) {
+      return true;
+    }
+
+    byte[] expected = decodeSignature(signature);
+
+    if (expected == null || body == null) {
+      rejectedPayloads.incrementAndGet();
+      return false;
+    }
+
+    Verification verification = macs.borrow();
+    try {
+      byte[] actual = verification.digest(body);
+
+      if (MessageDigest.isEqual(expected, actual)) {
+        return true;
+      }
+    } catch (CharacterCodingException e) {
+      // Payload has unpaired surrogates, so it wasn't received as valid UTF-8 and is rejected
+    } finally {
+      macs.release(verification);
+    }
+
+    rejectedPayloads.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Returns the number of payloads rejected so far because of a missing or invalid signature.
+   * @return Number of rejected payloads
+   */
+  public long getRejectedPayloads() {
+    return rejectedPayloads.get();
+  }
+
+  /**
+   * Decodes the hexadecimal signature.
+   * @return Signature bytes or null if the header is missing or malformed
+   */
+  private static byte[] decodeSignature(String signature) {
+    if (signature == null || !signature.startsWith(SIGNATURE_PREFIX)
+        || signature.length() != SIGNATURE_PREFIX.length() + SIGNATURE_LENGTH * 2) {
+      return null;
+    }
+
+    byte[] result = new byte[SIGNATURE_LENGTH];
+
+    for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+      int offset = SIGNATURE_PREFIX.length() + i * 2;
+      int high = Character.digit(signature.charAt(offset), 16);
+      int low = Character.digit(signature.charAt(offset + 1), 16);
+
+      if (high < 0 || low < 0) {
+        return null;
+      }
+
+      result[i] = (byte) ((high << 4) | low);
+    }
+
+    return result;
+  }
+
+  /**
+   * Pool of the verifications keyed by a secret.
+   */
+  private static final class MacPool {
+
+    private final Mac prototype;
+
+    private final BlockingQueue<Verification> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private MacPool(String secret) {
+      try {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+        this.prototype = mac;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Couldn't initialize " + HMAC_ALGORITHM, e);
+      }
+    }
+
+    private Verification borrow() {
+      Verification verification = pool.poll();
+
+      if (verification == null) {
+        try {
+          verification = new Verification((Mac) prototype.clone());
+        } catch (CloneNotSupportedException e) {
+          throw new IllegalStateException("Couldn't clone " + HMAC_ALGORITHM, e);
+        }
+      }
+
+      return verification;
+    }
+
+    private void release(Verification verification) {
+      pool.offer(verification);
+    }
+
+  }
+
+  /**
+   * MAC initialized with the secret, along with the encoder and buffer used to feed it.
+   */
+  private static final class Verification {
+
+    private final Mac mac;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private Verification(Mac mac) {
+      this.mac = mac;
+    }
+
+    private byte[] digest(String body) throws CharacterCodingException {
+      CharBuffer chars = CharBuffer.wrap(body);
+
+      encoder.reset();
+      mac.reset();
+      buffer.clear();
+
+      CoderResult result;
+      do {
+        result = encoder.encode(chars, buffer, true);
+        update(result);
+      } while (result.isOverflow());
+
+      do {
+        result = encoder.flush(buffer);
+        update(result);
+      } while (result.isOverflow());
+
+      return mac.doFinal();
+    }
+
+    private void update(CoderResult result) throws CharacterCodingException {
+      if (result.isError()) {
+        result.throwException();
+      }
+
+      buffer.flip();
+      mac.update(buffer);
+      buffer.clear();
+    }
+
+  }
+
+}
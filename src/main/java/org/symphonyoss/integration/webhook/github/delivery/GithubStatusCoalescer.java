@@ -0,0 +1,466 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Coalesces the commit statuses reported for the same repository, commit and context, so a CI
+ * run going from 'pending' to 'success' is posted once instead of once per state change.
+ *
+ * Pending statuses are held for a time window. A newer pending status for the same key replaces
+ * the held one in place, keeping its deadline. A terminal status (success, failure or error) is
+ * processed at once and drops the held status, which is never read nor rendered. Held statuses
+ * whose window expires without a terminal status are released and processed as usual.
+ *
+ * Expiry is driven by a hashed timer wheel with one-second slots, so holding and expiring a status
+ * are constant-time operations. The number of held statuses is bounded: when the capacity is
+ * reached, pending statuses are processed without being held.
+ *
+ * The ticker thread never processes the expired statuses. It hands them to a release thread with
+ * a bounded queue, so a slow release doesn't delay the other expiries. Statuses that can't be
+ * queued or whose processing fails, for instance because the ingestion queue rejects them, are
+ * logged and counted as dropped.
+ *
+ * The coalescer is disabled unless 'github.status.coalesce.window-seconds' is set.
+ */
+@Component
+public class GithubStatusCoalescer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubStatusCoalescer.class);
+
+  private static final int DEFAULT_CAPACITY = 10000;
+
+  private static final long TICK_IN_MILLIS = 1000;
+
+  private static final String TICKER_THREAD_NAME = "github-status-coalescer";
+
+  private static final String RELEASE_THREAD_NAME = "github-status-release";
+
+  private static final long RELEASE_SHUTDOWN_TIMEOUT_IN_SECONDS = 5;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final String REPOSITORY = "repository";
+
+  private static final String FULL_NAME = "full_name";
+
+  private static final String SHA = "sha";
+
+  private static final String CONTEXT = "context";
+
+  private static final String STATE = "state";
+
+  private static final String PENDING_STATE = "pending";
+
+  private static final Set<String> TERMINAL_STATES =
+      new HashSet<>(Arrays.asList("success", "failure", "error"));
+
+  private static final String KEY_SEPARATOR = "|";
+
+  private int window;
+
+  private int capacity = DEFAULT_CAPACITY;
+
+  private ScheduledExecutorService ticker;
+
+  private ThreadPoolExecutor releaseExecutor;
+
+  /**
+   * Held statuses keyed by instance, repository, commit and context.
+   */
+  private final Map<String, Entry> held = new HashMap<>();
+
+  /**
+   * Timer wheel slots. Each slot keeps the statuses expiring when the wheel reaches it.
+   */
+  private List<Set<Entry>> wheel;
+
+  private long tick;
+
+  private final AtomicLong coalescedStatuses = new AtomicLong();
+
+  private final AtomicLong droppedStatuses = new AtomicLong();
+
+  /**
+   * Update the time a pending status is held waiting for a newer status.
+   * @param window Time in seconds. Zero disables the coalescer.
+   */
+  @Value("${github.status.coalesce.window-seconds:0}")
+  public void setWindow(int window) {
+    this.window = window;
+  }
+
+  /**
+   * Update the maximum number of held statuses.
+   * @param capacity Maximum number of held statuses
+   */
+  @Value("${github.status.coalesce.capacity:" + DEFAULT_CAPACITY + "}")
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Creates the timer wheel and starts ticking it.
+   */
+  @PostConstruct
+  public void init() {
+    if (window <= 0) {
+      return;
+    }
+
+    createWheel();
+
+    this.releaseExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(capacity),
+        new ThreadFactoryBuilder().setNameFormat(RELEASE_THREAD_NAME).setDaemon(true).build(),
+        new RejectedExecutionHandler() {
+          @Override
+          public void rejectedExecution(Runnable status, ThreadPoolExecutor executor) {
+            droppedStatuses.incrementAndGet();
+            LOG.warn("GitHub status dropped, the release queue is full or shutting down");
+          }
+        });
+
+    this.ticker = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat(TICKER_THREAD_NAME).setDaemon(true).build());
+    this.ticker.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        dispatch(advance());
+      }
+    }, TICK_IN_MILLIS, TICK_IN_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Creates a wheel with one slot more than the window, so every deadline falls within a single
+   * turn of the wheel.
+   */
+  synchronized void createWheel() {
+    List<Set<Entry>> slots = new ArrayList<>(window + 1);
+
+    for (int i = 0; i <= window; i++) {
+      slots.add(new LinkedHashSet<Entry>());
+    }
+
+    this.wheel = slots;
+  }
+
+  /**
+   * Checks if the statuses are coalesced.
+   * @return true if the coalescer is enabled
+   */
+  public synchronized boolean isEnabled() {
+    return wheel != null;
+  }
+
+  /**
+   * Holds a pending status, replacing the status already held for the same key, or drops the held
+   * status when a terminal status arrives.
+   * @param instanceId Configuration instance identifier
+   * @param body Raw JSON payload of the status event
+   * @param release Processing of the payload, performed when its window expires
+   * @return true if the status is held and mustn't be processed now
+   */
+  public boolean hold(String instanceId, String body, Runnable release) {
+    Status status = readStatus(body);
+
+    if (status == null) {
+      return false;
+    }
+
+    String key = instanceId + KEY_SEPARATOR + status.repository + KEY_SEPARATOR + status.sha
+        + KEY_SEPARATOR + status.context;
+
+    synchronized (this) {
+      if (wheel == null) {
+        return false;
+      }
+
+      Entry entry = held.get(key);
+
+      if (TERMINAL_STATES.contains(status.state)) {
+        if (entry != null) {
+          held.remove(key);
+          wheel.get(entry.slot).remove(entry);
+          coalescedStatuses.incrementAndGet();
+        }
+
+        return false;
+      }
+
+      if (!PENDING_STATE.equals(status.state)) {
+        return false;
+      }
+
+      if (entry != null) {
+        entry.release = release;
+        coalescedStatuses.incrementAndGet();
+        return true;
+      }
+
+      if (held.size() >= capacity) {
+        return false;
+      }
+
+      entry = new Entry(key, release, (int) ((tick + window) % wheel.size()));
+      held.put(key, entry);
+      wheel.get(entry.slot).add(entry);
+
+      return true;
+    }
+  }
+
+  /**
+   * Advances the wheel by one slot.
+   * @return Held statuses whose window has expired
+   */
+  synchronized List<Runnable> advance() {
+    tick++;
+
+    Set<Entry> slot = wheel.get((int) (tick % wheel.size()));
+    List<Runnable> expired = new ArrayList<>(slot.size());
+
+    for (Entry entry : slot) {
+      held.remove(entry.key);
+      expired.add(entry.release);
+    }
+
+    slot.clear();
+
+    return expired;
+  }
+
+  /**
+   * Hands the released statuses to the release thread. Called by the ticker without holding the
+   * lock.
+   */
+  void dispatch(List<Runnable> statuses) {
+    for (final Runnable status : statuses) {
+      releaseExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          release(status);
+        }
+      });
+    }
+  }
+
+  /**
+   * Processes a released status, counting it as dropped if the processing fails.
+   */
+  private void release(Runnable status) {
+    try {
+      status.run();
+    } catch (RuntimeException e) {
+      droppedStatuses.incrementAndGet();
+      LOG.error("GitHub status dropped, fail to process it", e);
+    }
+  }
+
+  /**
+   * Returns the number of statuses currently held.
+   * @return Number of held statuses
+   */
+  public synchronized int getHeldStatuses() {
+    return held.size();
+  }
+
+  /**
+   * Returns the number of statuses dropped so far, because a newer status was received for the
+   * same key.
+   * @return Number of coalesced statuses
+   */
+  public long getCoalescedStatuses() {
+    return coalescedStatuses.get();
+  }
+
+  /**
+   * Returns the number of released statuses dropped so far, because they couldn't be queued or
+   * processed.
+   * @return Number of dropped statuses
+   */
+  public long getDroppedStatuses() {
+    return droppedStatuses.get();
+  }
+
+  /**
+   * Stops the wheel, waits for the statuses already released and processes the held statuses on
+   * the calling thread.
+   */
+  @PreDestroy
+  public void shutdown() {
+    List<Runnable> statuses;
+
+    synchronized (this) {
+      if (wheel == null) {
+        return;
+      }
+
+      statuses = new ArrayList<>(held.size());
+
+      for (Set<Entry> slot : wheel) {
+        for (Entry entry : slot) {
+          statuses.add(entry.release);
+        }
+
+        slot.clear();
+      }
+
+      held.clear();
+      wheel = null;
+    }
+
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+
+    if (releaseExecutor != null) {
+      releaseExecutor.shutdown();
+
+      try {
+        releaseExecutor.awaitTermination(RELEASE_SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    for (Runnable status : statuses) {
+      release(status);
+    }
+  }
+
+  /**
+   * Reads the repository full name, commit, context and state from a status payload, streaming
+   * only its top-level fields.
+   * @param body Raw JSON payload
+   * @return Status fields or null if any of them is missing or the payload can't be read
+   */
+  static Status readStatus(String body) {
+    Status status = new Status();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+
+        if (token == JsonToken.VALUE_STRING && SHA.equals(fieldName)) {
+          status.sha = parser.getText();
+        } else if (token == JsonToken.VALUE_STRING && CONTEXT.equals(fieldName)) {
+          status.context = parser.getText();
+        } else if (token == JsonToken.VALUE_STRING && STATE.equals(fieldName)) {
+          status.state = parser.getText();
+        } else if (token == JsonToken.START_OBJECT && REPOSITORY.equals(fieldName)) {
+          status.repository = readFullName(parser);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      return null;
+    }
+
+    return status.isComplete() ? status : null;
+  }
+
+  private static String readFullName(JsonParser parser) throws IOException {
+    String fullName = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (FULL_NAME.equals(fieldName) && token == JsonToken.VALUE_STRING) {
+        fullName = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return fullName;
+  }
+
+  /**
+   * Top-level fields of a status payload.
+   */
+  static final class Status {
+
+    private String repository;
+
+    private String sha;
+
+    private String context;
+
+    private String state;
+
+    private boolean isComplete() {
+      return repository != null && sha != null && context != null && state != null;
+    }
+
+  }
+
+  /**
+   * Held status.
+   */
+  private static final class Entry {
+
+    private final String key;
+
+    private final int slot;
+
+    private Runnable release;
+
+    private Entry(String key, Runnable release, int slot) {
+      this.key = key;
+      this.release = release;
+      this.slot = slot;
+    }
+
+  }
+
+}
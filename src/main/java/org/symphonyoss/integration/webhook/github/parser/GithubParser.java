@@ -47,6 +47,12 @@ public interface GithubParser {
    */
   void setIntegrationUser(String integrationUser);
 
+  /**
+   * Returns the filter with the payload paths required by one's parser.
+   * @return Payload filter or null if the parser requires the whole payload.
+   */
+  GithubPayloadFilter getPayloadFilter();
+
   /**
    * Parse a received Json message into a Symphony MessageML format.
    * @param parameters request's query string parameters.
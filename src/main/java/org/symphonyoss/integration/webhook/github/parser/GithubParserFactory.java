@@ -18,20 +18,23 @@ package org.symphonyoss.integration.webhook.github.parser;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants
     .GITHUB_HEADER_EVENT_NAME;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.symphonyoss.integration.json.JsonUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.symphonyoss.integration.model.config.IntegrationSettings;
 import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.parser.WebHookParser;
 import org.symphonyoss.integration.webhook.parser.WebHookParserFactory;
 
-import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 
@@ -41,15 +44,53 @@ import javax.annotation.PostConstruct;
  */
 public abstract class GithubParserFactory implements WebHookParserFactory {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(GithubParserFactory.class);
+  /**
+   * Maximum number of event types whose rejections are counted separately. Rejections of other
+   * event types are counted together.
+   */
+  private static final int MAX_REJECTED_EVENT_TYPES = 128;
+
+  private static final String UNKNOWN_EVENT = "unknown";
+
+  private static final String OTHER_EVENTS = "other";
+
+  /**
+   * Parser returned for the rejected events. It doesn't read the payload.
+   */
+  private static final WebHookParser REJECTED_EVENT_PARSER = new NullGithubParser();
 
   protected Map<String, GithubParser> parsers = new HashMap<>();
 
-  @Autowired
-  private NullGithubParser defaultGithubParser;
+  private final Map<String, WebHookParser> adapters = new HashMap<>();
+
+  private final ConcurrentMap<String, AtomicLong> rejectedEvents = new ConcurrentHashMap<>();
+
+  private Set<String> disabledEvents = Collections.emptySet();
+
+  @Autowired(required = false)
+  private GithubRefFilter refFilter;
 
   /**
-   * Map the event type to the parser.
+   * Update the events that must be ignored by every configuration instance of the integration,
+   * even though they're supported.
+   * @param disabledEvents Comma-separated event names (e.g. 'status,deployment_status')
+   */
+  @Value("${github.events.disabled:}")
+  public void setDisabledEvents(String disabledEvents) {
+    Set<String> events = new HashSet<>();
+
+    for (String event : StringUtils.split(StringUtils.defaultString(disabledEvents), ',')) {
+      if (StringUtils.isNotBlank(event)) {
+        events.add(event.trim());
+      }
+    }
+
+    this.disabledEvents = events;
+  }
+
+  /**
+   * Map the event type to the parser. The adapters of the enabled events are created once, so
+   * no adapter is allocated per event.
    */
   @PostConstruct
   public void init() {
@@ -59,6 +100,12 @@ public abstract class GithubParserFactory implements WebHookParserFactory {
         this.parsers.put(eventType, parser);
       }
     }
+
+    for (Map.Entry<String, GithubParser> entry : parsers.entrySet()) {
+      if (!disabledEvents.contains(entry.getKey())) {
+        adapters.put(entry.getKey(), new GithubWebHookParserAdapter(entry.getValue(), refFilter));
+      }
+    }
   }
 
   /**
@@ -76,16 +123,39 @@ public abstract class GithubParserFactory implements WebHookParserFactory {
     }
   }
 
+  /**
+   * Get the parser based on the 'x-github-event' header. Unsupported and disabled events are
+   * rejected from the header alone: the returned parser doesn't read the payload and the
+   * rejection is only counted.
+   * @param payload Payload received from Github
+   * @return Parser to handle the payload
+   */
   @Override
   public WebHookParser getParser(WebHookPayload payload) {
-      String eventName = payload.getHeaders().get(GITHUB_HEADER_EVENT_NAME);
-      GithubParser parser = getParser(eventName);
+    String eventName = payload.getHeaders().get(GITHUB_HEADER_EVENT_NAME);
+    WebHookParser adapter = eventName == null ? null : adapters.get(eventName);
 
-      if (parser == null) {
-        parser = defaultGithubParser;
-      }
+    if (adapter == null) {
+      countRejectedEvent(eventName);
+      return REJECTED_EVENT_PARSER;
+    }
 
-      return new GithubWebHookParserAdapter(parser);
+    return adapter;
+  }
+
+  /**
+   * Checks if the event is supported and enabled, so payloads of rejected events may be dropped
+   * before they're held or queued. The rejection is counted.
+   * @param eventName Github event taken from the 'x-github-event' header
+   * @return true if the event must be processed
+   */
+  public boolean isEventAccepted(String eventName) {
+    if (eventName != null && adapters.containsKey(eventName)) {
+      return true;
+    }
+
+    countRejectedEvent(eventName);
+    return false;
   }
 
   /**
@@ -93,18 +163,43 @@ public abstract class GithubParserFactory implements WebHookParserFactory {
    *
    * The field used to do perform this selection is 'x-github-event'.
    * @param eventName Github event
-   * @return Parser class to handle the event2
+   * @return Parser class to handle the event or null if the event isn't supported
    */
   public GithubParser getParser(String eventName) {
-    GithubParser result = parsers.get(eventName);
+    return parsers.get(eventName);
+  }
 
-    if (result == null) {
-      LOGGER.info("Unhandled event {}", eventName);
+  /**
+   * Returns the number of events rejected so far, because they're not supported or disabled.
+   * @return Number of rejected events keyed by event name
+   */
+  public Map<String, Long> getRejectedEvents() {
+    Map<String, Long> result = new HashMap<>();
+
+    for (Map.Entry<String, AtomicLong> entry : rejectedEvents.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
     }
 
     return result;
   }
 
+  private void countRejectedEvent(String eventName) {
+    String key = eventName == null ? UNKNOWN_EVENT : eventName;
+    AtomicLong counter = rejectedEvents.get(key);
+
+    if (counter == null) {
+      String bucket = rejectedEvents.size() < MAX_REJECTED_EVENT_TYPES ? key : OTHER_EVENTS;
+      AtomicLong newCounter = new AtomicLong();
+
+      counter = rejectedEvents.putIfAbsent(bucket, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+
+    counter.incrementAndGet();
+  }
+
   /**
    * Get a list of parsers supported by the factory.
    * @return list of parsers supported by the factory.
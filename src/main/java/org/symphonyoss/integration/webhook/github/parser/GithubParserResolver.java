@@ -42,4 +42,14 @@ public class GithubParserResolver extends WebHookParserResolver {
     return new ArrayList<WebHookParserFactory>(factories);
   }
 
+  /**
+   * Checks if the event is accepted by the parser factory of the MessageML version supported.
+   * @param eventName Github event
+   * @return true if the event must be processed
+   * @see GithubParserFactory#isEventAccepted(String)
+   */
+  public boolean isEventAccepted(String eventName) {
+    return ((GithubParserFactory) getFactory()).isEventAccepted(eventName);
+  }
+
 }
@@ -17,26 +17,61 @@
 package org.symphonyoss.integration.webhook.github.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.google.common.io.CountingInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.json.JsonUtils;
+import org.symphonyoss.integration.webhook.github.client.GithubAppCredential;
+import org.symphonyoss.integration.webhook.github.client.GithubConnectionPool;
+import org.symphonyoss.integration.webhook.github.client.GithubCredential;
+import org.symphonyoss.integration.webhook.github.client.GithubCredentials;
+import org.symphonyoss.integration.webhook.github.client.GithubHostHealth;
+import org.symphonyoss.integration.webhook.github.client.GithubHostRegistry;
+import org.symphonyoss.integration.webhook.github.client.GithubRateLimit;
+import org.symphonyoss.integration.webhook.github.client.GithubTokenCredential;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -51,65 +86,704 @@ public class GithubParserUtils {
 
   private static final Logger LOG = LoggerFactory.getLogger(GithubParserUtils.class);
 
-  private List<String> unknownHosts = Collections.synchronizedList(new ArrayList<String>());
+  private static final Pattern VALID_LOGIN = Pattern.compile("^[A-Za-z0-9](?:[A-Za-z0-9-]*)$");
+
+  private static final String USER_ALIAS = "u";
+
+  private static final String QUERY_FIELD = "query";
+
+  private static final String DATA_FIELD = "data";
+
+  private static final String LOGIN_FIELD = "login";
+
+  private static final String NAME_FIELD = "name";
+
+  private static final long DEFAULT_CACHED_RESPONSES_MAX_BYTES = 8 * 1024 * 1024;
+
+  private static final long DEFAULT_CACHED_RESPONSES_EXPIRATION_IN_HOURS = 24;
+
+  private static final int SERVER_ERROR_MIN_STATUS = 500;
+
+  private static final int SERVER_ERROR_MAX_STATUS = 599;
+
+  private static final String RATE_LIMIT_KEY_SEPARATOR = "|";
+
+  private static final String DEFAULT_API_URL = "https://api.github.com";
+
+  private static final String HTTPS_SCHEME = "https";
+
+  private static final int HTTPS_PORT = 443;
+
+  private static final int HTTP_PORT = 80;
 
   private Client baseClientTargetBuilder;
 
+  private final GithubConnectionPool connectionPool = new GithubConnectionPool();
+
+  private String graphqlUrl;
+
+  private long cachedResponsesMaxBytes = DEFAULT_CACHED_RESPONSES_MAX_BYTES;
+
+  private long cachedResponsesExpiration = DEFAULT_CACHED_RESPONSES_EXPIRATION_IN_HOURS;
+
+  /**
+   * Latest response of each URL along with its validators, used to revalidate the response
+   * instead of downloading it again. Bounded by the size of the kept responses.
+   */
+  private Cache<String, CachedResponse> cachedResponses = buildCachedResponses();
+
+  private final ConcurrentMap<String, GithubRateLimit> rateLimits = new ConcurrentHashMap<>();
+
+  private final GithubHostRegistry hostRegistry = new GithubHostRegistry();
+
+  private volatile GithubCredentials credentials =
+      new GithubCredentials(Collections.<GithubCredential>emptyList());
+
+  private final List<GithubAppCredential> appCredentials = new ArrayList<>();
+
+  private String tokens;
+
+  private String appId;
+
+  private String appPrivateKeyPath;
+
+  private String appInstallationId;
+
+  private String apiUrl = DEFAULT_API_URL;
+
+  private String tokensApiUrl = DEFAULT_API_URL;
+
   public GithubParserUtils() {
-    baseClientTargetBuilder = ClientBuilder.newBuilder().build();
+    ClientConfig clientConfig = new ClientConfig();
+    clientConfig.connectorProvider(new ApacheConnectorProvider());
+    clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER,
+        connectionPool.getConnectionManager());
+
+    baseClientTargetBuilder = ClientBuilder.newClient(clientConfig);
     baseClientTargetBuilder.property(ClientProperties.CONNECT_TIMEOUT, 15000);
     baseClientTargetBuilder.property(ClientProperties.READ_TIMEOUT, 15000);
+
+    // Redirects would carry the 'Authorization' header to whatever host they point to
+    baseClientTargetBuilder.property(ClientProperties.FOLLOW_REDIRECTS, false);
+
+    hostRegistry.track(DEFAULT_API_URL);
+  }
+
+  /**
+   * Update the maximum number of pooled connections to the Github API hosts.
+   * @param maxConnections Maximum number of connections
+   */
+  @Value("${github.http.max-connections:" + GithubConnectionPool.DEFAULT_MAX_CONNECTIONS + "}")
+  public void setMaxConnections(int maxConnections) {
+    connectionPool.setMaxConnections(maxConnections);
+  }
+
+  /**
+   * Update the maximum number of pooled connections to each Github API host.
+   * @param maxConnectionsPerRoute Maximum number of connections per host
+   */
+  @Value("${github.http.max-connections-per-route:"
+      + GithubConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE + "}")
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    connectionPool.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+  }
+
+  /**
+   * Update how long a pooled connection may stay idle before it's closed.
+   * @param idleTimeoutInSeconds Idle timeout in seconds
+   */
+  @Value("${github.http.idle-timeout-seconds:"
+      + GithubConnectionPool.DEFAULT_IDLE_TIMEOUT_IN_SECONDS + "}")
+  public void setIdleTimeout(long idleTimeoutInSeconds) {
+    connectionPool.setIdleTimeout(idleTimeoutInSeconds);
+  }
+
+  /**
+   * Update the maximum size of the responses kept to be revalidated.
+   * @param cachedResponsesMaxBytes Maximum size in bytes of the response bodies
+   */
+  @Value("${github.http.cache.max-bytes:" + DEFAULT_CACHED_RESPONSES_MAX_BYTES + "}")
+  public void setCachedResponsesMaxBytes(long cachedResponsesMaxBytes) {
+    this.cachedResponsesMaxBytes = cachedResponsesMaxBytes;
+    this.cachedResponses = buildCachedResponses();
+  }
+
+  /**
+   * Update how long a response is kept to be revalidated.
+   * @param cachedResponsesExpiration Expiration in hours
+   */
+  @Value("${github.http.cache.expiration-hours:"
+      + DEFAULT_CACHED_RESPONSES_EXPIRATION_IN_HOURS + "}")
+  public void setCachedResponsesExpiration(long cachedResponsesExpiration) {
+    this.cachedResponsesExpiration = cachedResponsesExpiration;
+    this.cachedResponses = buildCachedResponses();
+  }
+
+  private Cache<String, CachedResponse> buildCachedResponses() {
+    return Caffeine.newBuilder()
+        .maximumWeight(cachedResponsesMaxBytes)
+        .weigher(new Weigher<String, CachedResponse>() {
+          @Override
+          public int weigh(String url, CachedResponse response) {
+            return (int) Math.min(Integer.MAX_VALUE, response.size);
+          }
+        })
+        .expireAfterWrite(cachedResponsesExpiration, TimeUnit.HOURS)
+        .build();
+  }
+
+  /**
+   * Update the personal access tokens used to authenticate the calls to the Github API.
+   * @param tokens Comma-separated personal access tokens
+   */
+  @Value("${github.api.tokens:}")
+  public void setTokens(String tokens) {
+    this.tokens = tokens;
+  }
+
+  /**
+   * Update the Github API URL the personal access tokens were issued for. The tokens are only
+   * sent to this scheme, host and port.
+   * @param tokensApiUrl Github API URL
+   */
+  @Value("${github.api.url:" + DEFAULT_API_URL + "}")
+  public void setTokensApiUrl(String tokensApiUrl) {
+    this.tokensApiUrl = tokensApiUrl;
+    hostRegistry.track(tokensApiUrl);
+  }
+
+  /**
+   * Update the Github App used to authenticate the calls to the Github API.
+   * @param appId Github App identifier
+   */
+  @Value("${github.app.id:}")
+  public void setAppId(String appId) {
+    this.appId = appId;
+  }
+
+  /**
+   * Update the private key of the Github App.
+   * @param appPrivateKeyPath Path of the PEM encoded private key
+   */
+  @Value("${github.app.private-key-path:}")
+  public void setAppPrivateKeyPath(String appPrivateKeyPath) {
+    this.appPrivateKeyPath = appPrivateKeyPath;
+  }
+
+  /**
+   * Update the Github App installation whose tokens are used.
+   * @param appInstallationId Installation identifier
+   */
+  @Value("${github.app.installation-id:}")
+  public void setAppInstallationId(String appInstallationId) {
+    this.appInstallationId = appInstallationId;
+  }
+
+  /**
+   * Update the Github API URL where the App installation tokens are minted. The installation
+   * tokens are only sent to this scheme, host and port.
+   * @param apiUrl Github API URL
+   */
+  @Value("${github.app.api-url:" + DEFAULT_API_URL + "}")
+  public void setApiUrl(String apiUrl) {
+    this.apiUrl = apiUrl;
+    hostRegistry.track(apiUrl);
+  }
+
+  /**
+   * Builds the credentials used to authenticate the calls to the Github API. Calls are sent
+   * anonymously when no credential is configured.
+   */
+  @PostConstruct
+  public void initCredentials() {
+    List<GithubCredential> configuredCredentials = new ArrayList<>();
+
+    if (StringUtils.isNotBlank(tokens)) {
+      int index = 0;
+      for (String token : tokens.split(",")) {
+        if (StringUtils.isNotBlank(token)) {
+          configuredCredentials.add(
+              new GithubTokenCredential("token-" + index++, token.trim(), tokensApiUrl));
+        }
+      }
+    }
+
+    if (StringUtils.isNotBlank(appId)) {
+      try {
+        String pem = new String(Files.readAllBytes(Paths.get(appPrivateKeyPath)),
+            StandardCharsets.US_ASCII);
+        GithubAppCredential appCredential = new GithubAppCredential(appId,
+            GithubAppCredential.readPrivateKey(pem), apiUrl, appInstallationId,
+            baseClientTargetBuilder);
+
+        appCredential.start();
+        appCredentials.add(appCredential);
+        configuredCredentials.add(appCredential);
+      } catch (IOException | GeneralSecurityException e) {
+        LOG.error("Couldn't read the GitHub App " + appId + " private key", e);
+      }
+    }
+
+    credentials = new GithubCredentials(configuredCredentials);
+  }
+
+  /**
+   * Closes the HTTP client and its pooled connections.
+   */
+  @PreDestroy
+  public void shutdown() {
+    for (GithubAppCredential appCredential : appCredentials) {
+      appCredential.shutdown();
+    }
+
+    baseClientTargetBuilder.close();
+    connectionPool.shutdown();
+    hostRegistry.shutdown();
+  }
+
+  /**
+   * Returns the health registry of the Github API hosts.
+   * @return Host health registry
+   */
+  public GithubHostRegistry getHostRegistry() {
+    return hostRegistry;
+  }
+
+  /**
+   * Returns the pool of connections to the Github API hosts.
+   * @return Connection pool
+   */
+  public GithubConnectionPool getConnectionPool() {
+    return connectionPool;
   }
 
   /**
    * Hits an URL with http GET method, without any authentication.
    * Expects and returns a formatted json as an answer, null otherwise.
    *
+   * Responses carrying an 'ETag' or 'Last-Modified' header are kept, so the next request for the
+   * same URL is sent with 'If-None-Match' or 'If-Modified-Since'. When Github answers
+   * '304 Not Modified', the kept response is returned without downloading it again. Such answers
+   * don't count against the Github API rate limit. The returned JSON may then be shared between
+   * calls, so it must not be modified.
+   *
+   * No request is sent while the Github API rate limit is exhausted, or the circuit breaker of
+   * the host is open. Null is returned instead.
+   *
    * @param url the URL to hit.
    * @return expects and returns a formatted JSON as an answer, null otherwise.
    * @throws IOException if something goes wrong while converting the answer into a JSON.
    */
   public JsonNode doGetJsonApi(String url) throws IOException {
+    GithubHostHealth host = hostRegistry.getHost(url);
+
+    GithubCredential credential = acquire(host, url);
+
+    if (credential == null) {
+      return null;
+    }
+
     WebTarget githubWebTarget = baseClientTargetBuilder.target(url);
+    CachedResponse cachedResponse = cachedResponses.getIfPresent(url);
 
     Response response = null;
     try {
-      response = githubWebTarget.request().accept(MediaType.APPLICATION_JSON_TYPE).get();
+      Invocation.Builder request =
+          githubWebTarget.request().accept(MediaType.APPLICATION_JSON_TYPE);
+
+      if (cachedResponse != null) {
+        request = cachedResponse.addValidators(request);
+      }
+
+      response = execute(host, credential, request, null);
+
+      int status = response.getStatus();
+      if (status == Response.Status.OK.getStatusCode()) {
+        InputStream entity = (InputStream) response.getEntity();
+
+        if (entity == null) {
+          return null;
+        }
+
+        CountingInputStream countedEntity = new CountingInputStream(entity);
+        JsonNode body = JsonUtils.readTree(countedEntity);
+        cacheResponse(url, response, body, countedEntity.getCount());
+        return body;
+      } else if (status == Response.Status.NOT_MODIFIED.getStatusCode() && cachedResponse != null) {
+        return cachedResponse.body;
+      } else {
+        return null;
+      }
+    } catch (ProcessingException e){
+      return handleProcessingException(e);
+    } finally {
+      if (response != null) {
+        response.close();
+      } else {
+        // Gives the trial back if the request failed before its outcome was recorded
+        host.releaseTrial();
+      }
+    }
+  }
+
+  /**
+   * Checks the health of the host and the rate limit before sending a request. The credentials
+   * are taken in round-robin, skipping the ones whose rate limit is exhausted.
+   *
+   * The circuit breaker is checked first, so no rate limit budget is taken for requests that
+   * aren't sent while the host is failing. If no credential has budget left, the call acquired
+   * from the circuit breaker is given back.
+   *
+   * Only the credentials issued for the scheme, host and port of the URL are used. URLs read from
+   * the payload may point to any host, so the request is sent anonymously when no credential was
+   * issued for it.
+   * @param host Github API host
+   * @param url URL to be called
+   * @return Credential to be used or null if the request must be skipped
+   */
+  private GithubCredential acquire(GithubHostHealth host, String url) {
+    long now = System.currentTimeMillis();
+
+    if (!host.tryAcquire(now)) {
+      return null;
+    }
+
+    GithubCredential credential = acquireCredential(host, toUri(url), now);
+
+    if (credential == null) {
+      host.releaseTrial();
+      LOG.debug("GitHub API rate limit nearly exhausted for {}, request skipped", host.getHost());
+    }
+
+    return credential;
+  }
+
+  /**
+   * Takes a request from the rate limit budget of the first credential issued for the URL that
+   * has budget left, or of the anonymous credential if none was issued for it.
+   * @param host Github API host
+   * @param uri URL to be called or null if it's invalid
+   * @param now Current time in milliseconds
+   * @return Credential to be used or null if the rate limit is exhausted
+   */
+  private GithubCredential acquireCredential(GithubHostHealth host, URI uri, long now) {
+    GithubCredentials currentCredentials = credentials;
+    boolean issued = false;
+
+    for (int i = 0; i < currentCredentials.size(); i++) {
+      GithubCredential credential = currentCredentials.next();
+
+      if (!isIssuedFor(credential, uri)) {
+        continue;
+      }
+
+      issued = true;
+
+      if (credential.isAvailable() && getRateLimit(host, credential).tryAcquire(now)) {
+        return credential;
+      }
+    }
+
+    if (!issued) {
+      GithubCredential anonymous = GithubTokenCredential.ANONYMOUS;
+
+      if (getRateLimit(host, anonymous).tryAcquire(now)) {
+        return anonymous;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks if the credential may be sent to the URL, i.e. the URL has the same scheme, host and
+   * port as the Github API the credential was issued for.
+   * @param credential Credential
+   * @param uri URL to be called or null if it's invalid
+   * @return true if the credential carries no secret or was issued for the URL
+   */
+  private static boolean isIssuedFor(GithubCredential credential, URI uri) {
+    URI apiUri = credential.getApiUri();
+
+    if (apiUri == null) {
+      return true;
+    }
+
+    return uri != null && uri.getHost() != null
+        && StringUtils.equalsIgnoreCase(apiUri.getScheme(), uri.getScheme())
+        && StringUtils.equalsIgnoreCase(apiUri.getHost(), uri.getHost())
+        && getPort(apiUri) == getPort(uri);
+  }
+
+  private static int getPort(URI uri) {
+    if (uri.getPort() != -1) {
+      return uri.getPort();
+    }
+
+    return HTTPS_SCHEME.equalsIgnoreCase(uri.getScheme()) ? HTTPS_PORT : HTTP_PORT;
+  }
+
+  private static URI toUri(String url) {
+    if (url == null) {
+      return null;
+    }
+
+    try {
+      return new URI(url);
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Sends the request, recording the rate limit reported by Github and the outcome of the call in
+   * the health of the host.
+   * @param host Github API host
+   * @param credential Credential used to authenticate the request
+   * @param request Request to be sent
+   * @param entity Entity to be posted or null to send a GET request
+   * @return HTTP response
+   */
+  private Response execute(GithubHostHealth host, GithubCredential credential,
+      Invocation.Builder request, Entity<?> entity) {
+    Invocation.Builder authorizedRequest = request;
+    String authorization = credential.getAuthorization();
+
+    if (authorization != null) {
+      authorizedRequest = request.header(HttpHeaders.AUTHORIZATION, authorization);
+    }
+
+    Response response;
+    try {
+      response = entity == null ? authorizedRequest.get() : authorizedRequest.post(entity);
+    } catch (RuntimeException e) {
+      host.onFailure(e.getCause(), System.currentTimeMillis());
+      throw e;
+    }
+
+    GithubRateLimit rateLimit = getRateLimit(host, credential);
+    rateLimit.update(response.getHeaderString(GithubRateLimit.LIMIT_HEADER),
+        response.getHeaderString(GithubRateLimit.REMAINING_HEADER),
+        response.getHeaderString(GithubRateLimit.RESET_HEADER));
+
+    int status = response.getStatus();
+    if (status >= SERVER_ERROR_MIN_STATUS && status <= SERVER_ERROR_MAX_STATUS) {
+      host.onServerError(System.currentTimeMillis());
+    } else {
+      host.onSuccess();
+    }
+
+    return response;
+  }
+
+  /**
+   * Returns the rate limit of a credential on a host. Only the rate limits of the tracked hosts
+   * are kept, the other hosts get a throwaway one.
+   * @param host Github API host
+   * @param credential Credential
+   * @return Rate limit
+   */
+  GithubRateLimit getRateLimit(GithubHostHealth host, GithubCredential credential) {
+    if (!hostRegistry.isTracked(host)) {
+      return new GithubRateLimit();
+    }
+
+    String key = host.getHost() + RATE_LIMIT_KEY_SEPARATOR + credential.getId();
+    GithubRateLimit rateLimit = rateLimits.get(key);
+
+    if (rateLimit == null) {
+      rateLimit = new GithubRateLimit();
+      GithubRateLimit current = rateLimits.putIfAbsent(key, rateLimit);
+
+      if (current != null) {
+        rateLimit = current;
+      }
+    }
+
+    return rateLimit;
+  }
+
+  /**
+   * Keeps the response if it carries any validator.
+   * @param url the URL hit.
+   * @param response HTTP response
+   * @param body Response body
+   * @param size Response body size in bytes
+   */
+  private void cacheResponse(String url, Response response, JsonNode body, long size) {
+    String etag = response.getHeaderString(HttpHeaders.ETAG);
+    String lastModified = response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+
+    if (StringUtils.isNotEmpty(etag) || StringUtils.isNotEmpty(lastModified)) {
+      cachedResponses.put(url, new CachedResponse(etag, lastModified, body, size));
+    } else {
+      cachedResponses.invalidate(url);
+    }
+  }
+
+  /**
+   * Hits an URL with http POST method, without any authentication, sending a JSON body.
+   * Expects and returns a formatted json as an answer, null otherwise.
+   *
+   * @param url the URL to hit.
+   * @param body JSON body to be sent.
+   * @return expects and returns a formatted JSON as an answer, null otherwise.
+   * @throws IOException if something goes wrong while converting the answer into a JSON.
+   */
+  public JsonNode doPostJsonApi(String url, JsonNode body) throws IOException {
+    GithubHostHealth host = hostRegistry.getHost(url);
+
+    GithubCredential credential = acquire(host, url);
+
+    if (credential == null) {
+      return null;
+    }
+
+    WebTarget githubWebTarget = baseClientTargetBuilder.target(url);
+
+    Response response = null;
+    try {
+      Invocation.Builder request =
+          githubWebTarget.request().accept(MediaType.APPLICATION_JSON_TYPE);
+      response = execute(host, credential, request, Entity.json(body.toString()));
       if (response.getStatus() == Response.Status.OK.getStatusCode()) {
         return JsonUtils.readTree((InputStream) response.getEntity());
       } else {
         return null;
       }
     } catch (ProcessingException e){
-      logUnknownHostException(e, url);
-      return null;
+      return handleProcessingException(e);
     } finally {
       if (response != null) {
         response.close();
+      } else {
+        // Gives the trial back if the request failed before its outcome was recorded
+        host.releaseTrial();
       }
     }
   }
 
   /**
-   * Log {@link UnknownHostException} just one time.
+   * Update the Github GraphQL endpoint used to resolve several users at once. The batched lookup
+   * is disabled when no endpoint is configured.
+   * @param graphqlUrl GraphQL endpoint URL (e.g. 'https://api.github.com/graphql')
+   */
+  @Value("${github.graphql.url:}")
+  public void setGraphqlUrl(String graphqlUrl) {
+    this.graphqlUrl = graphqlUrl;
+
+    if (StringUtils.isNotBlank(graphqlUrl)) {
+      hostRegistry.track(graphqlUrl);
+    }
+  }
+
+  /**
+   * Checks if the batched user lookup through the GraphQL endpoint is enabled.
+   * @return true if a GraphQL endpoint has been configured
+   */
+  public boolean isGraphqlEnabled() {
+    return StringUtils.isNotEmpty(graphqlUrl);
+  }
+
+  /**
+   * Resolves the public names of several users in a single GraphQL request. Each login is
+   * queried through an alias (e.g. 'u0: user(login: "octocat") { login name }').
+   *
+   * Logins that can't be safely embedded in the query (e.g. 'dependabot[bot]') and users missing
+   * from the response are omitted from the result, so the caller may fall back to the REST API.
+   *
+   * @param logins User logins
+   * @return Public names keyed by login. Users without a public name are mapped to an empty string.
+   * @throws IOException if something goes wrong while converting the answer into a JSON.
+   */
+  public Map<String, String> doGetUserPublicNames(Collection<String> logins) throws IOException {
+    Map<String, String> names = new HashMap<>();
+
+    StringBuilder query = new StringBuilder("query {");
+    int aliases = 0;
+
+    for (String login : logins) {
+      if (VALID_LOGIN.matcher(login).matches()) {
+        query.append(' ').append(USER_ALIAS).append(aliases++)
+            .append(": user(login: \"").append(login).append("\") { login name }");
+      }
+    }
+
+    if (aliases == 0) {
+      return names;
+    }
+
+    query.append(" }");
+
+    ObjectNode body = JsonNodeFactory.instance.objectNode();
+    body.put(QUERY_FIELD, query.toString());
+
+    JsonNode response = doPostJsonApi(graphqlUrl, body);
+
+    if (response != null) {
+      JsonNode data = response.path(DATA_FIELD);
+
+      for (int i = 0; i < aliases; i++) {
+        JsonNode user = data.path(USER_ALIAS + i);
+
+        if (user.isObject()) {
+          String name = user.path(NAME_FIELD).asText(StringUtils.EMPTY);
+          names.put(user.path(LOGIN_FIELD).asText(), name);
+        }
+      }
+    }
+
+    return names;
+  }
+
+  /**
+   * Unknown hosts are already reported by the host health registry, so the caller just gets no
+   * answer. Other failures are propagated.
    * @param exception {@link ProcessingException} that wraps the root cause
-   * @param url URL to hit.
+   * @return null if the host is unknown
    */
-  private void logUnknownHostException(ProcessingException exception, String url) {
+  private JsonNode handleProcessingException(ProcessingException exception) {
     if (!UnknownHostException.class.isInstance(exception.getCause())) {
       throw exception;
     }
 
-    try {
-      String host = new URI(url).getHost();
+    return null;
+  }
+
+  /**
+   * Response kept to be revalidated.
+   */
+  private static final class CachedResponse {
+
+    private final String etag;
+
+    private final String lastModified;
+
+    private final JsonNode body;
+
+    private final long size;
 
-      if (!unknownHosts.contains(host)) {
-        unknownHosts.add(host);
-        LOG.error("Couldn't reach GitHub API due to: Host {} unreachable", host);
+    private CachedResponse(String etag, String lastModified, JsonNode body, long size) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.body = body;
+      this.size = size;
+    }
+
+    private Invocation.Builder addValidators(Invocation.Builder request) {
+      Invocation.Builder conditionalRequest = request;
+
+      if (StringUtils.isNotEmpty(etag)) {
+        conditionalRequest = conditionalRequest.header(HttpHeaders.IF_NONE_MATCH, etag);
       }
-    } catch (URISyntaxException e) {
-      LOG.error("Invalid GitHub URL: {}", url);
+
+      if (StringUtils.isNotEmpty(lastModified)) {
+        conditionalRequest = conditionalRequest.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+      }
+
+      return conditionalRequest;
     }
+
   }
 
 }
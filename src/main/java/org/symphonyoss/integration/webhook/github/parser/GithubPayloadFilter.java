@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming reader that builds only the parts of a Github payload declared by a parser.
+ *
+ * The declared paths use the same dotted notation as the metadata files (e.g.
+ * 'repository.full_name'). Each path is stored in a trie; while the payload is streamed through
+ * Jackson's {@link JsonParser}, every field that doesn't belong to the trie is skipped without
+ * allocating nodes for it (e.g. 'commits', 'pull_request.head.repo.owner', '_links'). When a path
+ * ends, the whole value under it is kept, unless a {@link GithubPayloadReducer} is declared for the
+ * path: the value is then streamed through the reducer and replaced by its result.
+ */
+public class GithubPayloadFilter {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final String PATH_SEPARATOR = "\\.";
+
+  private final PathNode root = new PathNode();
+
+  private GithubPayloadFilter() {
+  }
+
+  /**
+   * Creates a payload filter that keeps the given paths.
+   * @param paths Dotted paths to be kept (e.g. 'pull_request.head.repo.html_url')
+   * @return Payload filter
+   */
+  public static GithubPayloadFilter fromPaths(Collection<String> paths) {
+    return fromPaths(paths, Collections.<String, GithubPayloadReducer>emptyMap());
+  }
+
+  /**
+   * Creates a payload filter that keeps the given paths and reduces the values of other paths.
+   * @param paths Dotted paths to be kept (e.g. 'pull_request.head.repo.html_url')
+   * @param reducers Reducers keyed by the dotted paths whose values are reduced (e.g. 'commits')
+   * @return Payload filter
+   */
+  public static GithubPayloadFilter fromPaths(Collection<String> paths,
+      Map<String, GithubPayloadReducer> reducers) {
+    GithubPayloadFilter filter = new GithubPayloadFilter();
+
+    for (String path : paths) {
+      filter.addPath(path).leaf = true;
+    }
+
+    for (Map.Entry<String, GithubPayloadReducer> entry : reducers.entrySet()) {
+      filter.addPath(entry.getKey()).reducer = entry.getValue();
+    }
+
+    return filter;
+  }
+
+  /**
+   * Adds a new path to the trie. Field names are interned, as Jackson does with the names it
+   * reads, to speed up the lookups performed while streaming.
+   * @param path Dotted path
+   * @return Trie node related to the last field of the path
+   */
+  private PathNode addPath(String path) {
+    PathNode current = root;
+
+    for (String field : path.split(PATH_SEPARATOR)) {
+      current = current.addChild(field.intern());
+    }
+
+    return current;
+  }
+
+  /**
+   * Reads the payload keeping only the declared paths.
+   * @param body Raw JSON payload
+   * @return JSON tree containing only the declared paths
+   * @throws IOException Failure to read the payload
+   */
+  public JsonNode read(String body) throws IOException {
+    JsonParser parser = MAPPER.getFactory().createParser(body);
+
+    try {
+      JsonToken token = parser.nextToken();
+
+      if (token == null) {
+        throw new IOException("No content to map due to end-of-input");
+      }
+
+      if (token != JsonToken.START_OBJECT) {
+        return MAPPER.readTree(parser);
+      }
+
+      return readObject(parser, root);
+    } finally {
+      parser.close();
+    }
+  }
+
+  /**
+   * Reads the current JSON object keeping only the fields declared in the trie node. The parser
+   * must be positioned at the START_OBJECT token.
+   * @param parser JSON parser
+   * @param node Trie node related to the current object
+   * @return Filtered JSON object
+   * @throws IOException Failure to read the payload
+   */
+  private ObjectNode readObject(JsonParser parser, PathNode node) throws IOException {
+    ObjectNode result = JsonNodeFactory.instance.objectNode();
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      PathNode child = node.getChild(fieldName);
+
+      if (child == null) {
+        parser.skipChildren();
+      } else if (child.reducer != null) {
+        result.set(fieldName, child.reducer.reduce(parser));
+      } else if (token == JsonToken.VALUE_NULL) {
+        result.putNull(fieldName);
+      } else if (child.leaf || token != JsonToken.START_OBJECT) {
+        result.set(fieldName, MAPPER.readTree(parser));
+      } else {
+        result.set(fieldName, readObject(parser, child));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Trie node. Leaf nodes indicate the whole value must be kept, and nodes with a reducer that
+   * the value must be reduced.
+   */
+  private static final class PathNode {
+
+    private final Map<String, PathNode> children = new HashMap<>();
+
+    private boolean leaf;
+
+    private GithubPayloadReducer reducer;
+
+    private PathNode addChild(String field) {
+      PathNode child = children.get(field);
+
+      if (child == null) {
+        child = new PathNode();
+        children.put(field, child);
+      }
+
+      return child;
+    }
+
+    private PathNode getChild(String field) {
+      return children.get(field);
+    }
+
+  }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+/**
+ * Reduces the value of a payload path while the payload is streamed by
+ * {@link GithubPayloadFilter}, so large values (e.g. the 'commits' of a push) are summarized in a
+ * single pass without being materialized.
+ */
+public interface GithubPayloadReducer {
+
+  /**
+   * Reduces the current value. The parser is positioned at the first token of the value and must
+   * be left at its last token (e.g. the END_ARRAY of an array).
+   * @param parser JSON parser
+   * @return Node kept in place of the value
+   * @throws IOException Failure to read the payload
+   */
+  JsonNode reduce(JsonParser parser) throws IOException;
+
+}
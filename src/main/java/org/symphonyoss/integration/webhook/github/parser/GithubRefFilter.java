@@ -0,0 +1,304 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser;
+
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_CREATE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Per-instance filter of the branches and tags whose push, create and status events are handled.
+ *
+ * The filter is a list of glob patterns (e.g. 'main', 'release/**', 'refs/tags/v*') or regular
+ * expressions prefixed by 'regex:' (e.g. 'regex:hotfix-[0-9]+'). All of them are compiled into a
+ * single pattern, matched against both the full ref (e.g. 'refs/heads/main') and the short
+ * branch or tag name (e.g. 'main').
+ *
+ * The ref is read by streaming the payload just far enough to find it: the top-level 'ref' field
+ * for push events, 'ref' and 'ref_type' for create events and the 'branches' names for status
+ * events. Other fields are skipped without building any node, so a rejected event never gets a
+ * JSON tree, user enrichment or rendering. Payloads without a ref, or that can't be read, are
+ * accepted and left to the parser.
+ *
+ * The filter is disabled unless 'github.ref-filter.patterns' is set.
+ */
+@Component
+public class GithubRefFilter {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final String REGEX_PREFIX = "regex:";
+
+  private static final String BRANCH_PREFIX = "refs/heads/";
+
+  private static final String TAG_PREFIX = "refs/tags/";
+
+  private static final String REF_FIELD = "ref";
+
+  private static final String REF_TYPE_FIELD = "ref_type";
+
+  private static final String BRANCHES_FIELD = "branches";
+
+  private static final String NAME_FIELD = "name";
+
+  private static final String BRANCH_REF_TYPE = "branch";
+
+  private static final String TAG_REF_TYPE = "tag";
+
+  private Pattern pattern;
+
+  private final AtomicLong filteredEvents = new AtomicLong();
+
+  /**
+   * Update the branches and tags whose events are handled.
+   * @param patterns Comma-separated glob patterns or regular expressions prefixed by 'regex:'
+   */
+  @Value("${github.ref-filter.patterns:}")
+  public void setPatterns(String patterns) {
+    StringBuilder regex = new StringBuilder();
+
+    for (String entry : StringUtils.split(StringUtils.defaultString(patterns), ',')) {
+      String trimmed = entry.trim();
+
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+
+      if (regex.length() > 0) {
+        regex.append('|');
+      }
+
+      regex.append("(?:");
+      if (trimmed.startsWith(REGEX_PREFIX)) {
+        regex.append(trimmed.substring(REGEX_PREFIX.length()));
+      } else {
+        regex.append(globToRegex(trimmed));
+      }
+      regex.append(')');
+    }
+
+    this.pattern = regex.length() == 0 ? null : Pattern.compile(regex.toString());
+  }
+
+  /**
+   * Converts a glob pattern into a regular expression. '**' matches any sequence of characters,
+   * '*' and '?' don't match the '/' separator.
+   * @param glob Glob pattern
+   * @return Regular expression
+   */
+  private static String globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+
+      if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+        regex.append(".*");
+        i++;
+      } else if (c == '*') {
+        regex.append("[^/]*");
+      } else if (c == '?') {
+        regex.append("[^/]");
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+
+    return regex.toString();
+  }
+
+  /**
+   * Checks if the event must be handled according to its ref.
+   * @param eventName Github event
+   * @param body Raw JSON payload
+   * @return false if the event refers to a branch or tag filtered out
+   */
+  public boolean accept(String eventName, String body) {
+    if (pattern == null || body == null) {
+      return true;
+    }
+
+    boolean accepted;
+
+    try {
+      if (GITHUB_EVENT_PUSH.equals(eventName)) {
+        accepted = acceptPush(body);
+      } else if (GITHUB_EVENT_CREATE.equals(eventName)) {
+        accepted = acceptCreate(body);
+      } else if (GITHUB_EVENT_STATUS.equals(eventName)) {
+        accepted = acceptStatus(body);
+      } else {
+        accepted = true;
+      }
+    } catch (IOException e) {
+      accepted = true;
+    }
+
+    if (!accepted) {
+      filteredEvents.incrementAndGet();
+    }
+
+    return accepted;
+  }
+
+  /**
+   * Returns the number of events filtered out so far.
+   * @return Number of filtered events
+   */
+  public long getFilteredEvents() {
+    return filteredEvents.get();
+  }
+
+  private boolean acceptPush(String body) throws IOException {
+    try (JsonParser parser = openObject(body)) {
+      while (nextField(parser)) {
+        if (REF_FIELD.equals(parser.getCurrentName())) {
+          String ref = parser.getValueAsString();
+          return ref == null || matches(ref);
+        }
+
+        parser.skipChildren();
+      }
+    }
+
+    return true;
+  }
+
+  private boolean acceptCreate(String body) throws IOException {
+    String ref = null;
+    String refType = null;
+
+    try (JsonParser parser = openObject(body)) {
+      while ((ref == null || refType == null) && nextField(parser)) {
+        String fieldName = parser.getCurrentName();
+
+        if (REF_FIELD.equals(fieldName)) {
+          ref = parser.getValueAsString();
+        } else if (REF_TYPE_FIELD.equals(fieldName)) {
+          refType = parser.getValueAsString();
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+
+    if (ref == null) {
+      return true;
+    }
+
+    if (BRANCH_REF_TYPE.equals(refType)) {
+      return matches(BRANCH_PREFIX + ref);
+    } else if (TAG_REF_TYPE.equals(refType)) {
+      return matches(TAG_PREFIX + ref);
+    }
+
+    return true;
+  }
+
+  private boolean acceptStatus(String body) throws IOException {
+    try (JsonParser parser = openObject(body)) {
+      while (nextField(parser)) {
+        if (BRANCHES_FIELD.equals(parser.getCurrentName())
+            && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+          return acceptBranches(parser);
+        }
+
+        parser.skipChildren();
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the names of the branches listed by a status event. The parser must be positioned at
+   * the START_ARRAY token.
+   */
+  private boolean acceptBranches(JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      while (nextField(parser)) {
+        if (NAME_FIELD.equals(parser.getCurrentName())) {
+          String name = parser.getValueAsString();
+
+          if (name != null && matches(BRANCH_PREFIX + name)) {
+            return true;
+          }
+        }
+
+        parser.skipChildren();
+      }
+    }
+
+    return false;
+  }
+
+  private JsonParser openObject(String body) throws IOException {
+    JsonParser parser = JSON_FACTORY.createParser(body);
+
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      parser.close();
+      throw new IOException("Payload is not a JSON object");
+    }
+
+    return parser;
+  }
+
+  /**
+   * Moves to the value of the next field of the current object.
+   * @return false if the object is over
+   */
+  private boolean nextField(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.FIELD_NAME) {
+      return false;
+    }
+
+    parser.nextToken();
+    return true;
+  }
+
+  /**
+   * Matches the full ref and the short branch or tag name against the patterns.
+   * @param ref Full ref (e.g. 'refs/heads/main')
+   * @return true if any of them matches
+   */
+  private boolean matches(String ref) {
+    if (pattern.matcher(ref).matches()) {
+      return true;
+    }
+
+    String shortName = null;
+    if (ref.startsWith(BRANCH_PREFIX)) {
+      shortName = ref.substring(BRANCH_PREFIX.length());
+    } else if (ref.startsWith(TAG_PREFIX)) {
+      shortName = ref.substring(TAG_PREFIX.length());
+    }
+
+    return shortName != null && pattern.matcher(shortName).matches();
+  }
+
+}
@@ -1,5 +1,8 @@
 package org.symphonyoss.integration.webhook.github.parser;
 
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_EVENT_NAME;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import org.symphonyoss.integration.json.JsonUtils;
 import org.symphonyoss.integration.model.message.Message;
@@ -22,10 +25,22 @@ public class GithubWebHookParserAdapter implements WebHookParser {
 
   private GithubParser parser;
 
+  private GithubRefFilter refFilter;
+
   public GithubWebHookParserAdapter(GithubParser parser) {
     this.parser = parser;
   }
 
+  /**
+   * @param parser Github parser
+   * @param refFilter Filter of the branches and tags whose events are handled, or null to handle
+   * all of them
+   */
+  public GithubWebHookParserAdapter(GithubParser parser, GithubRefFilter refFilter) {
+    this.parser = parser;
+    this.refFilter = refFilter;
+  }
+
   @Override
   public List<String> getEvents() {
     return parser.getEvents();
@@ -33,8 +48,13 @@ public class GithubWebHookParserAdapter implements WebHookParser {
 
   @Override
   public Message parse(WebHookPayload payload) throws WebHookParseException {
+    if (refFilter != null && !refFilter.accept(
+        payload.getHeaders().get(GITHUB_HEADER_EVENT_NAME), payload.getBody())) {
+      return null;
+    }
+
     try {
-      JsonNode rootNode = JsonUtils.readTree(payload.getBody());
+      JsonNode rootNode = readPayload(payload.getBody());
       Map<String, String> parameters = payload.getParameters();
       Map<String, String> headers = payload.getHeaders();
 
@@ -45,4 +65,21 @@ public class GithubWebHookParserAdapter implements WebHookParser {
     }
   }
 
+  /**
+   * Reads the payload using the parser filter, if the parser has declared the paths it requires.
+   * Otherwise, reads the whole payload.
+   * @param body Raw JSON payload
+   * @return JSON tree
+   * @throws IOException Failure to read the payload
+   */
+  private JsonNode readPayload(String body) throws IOException {
+    GithubPayloadFilter filter = parser.getPayloadFilter();
+
+    if (filter == null) {
+      return JsonUtils.readTree(body);
+    }
+
+    return filter.read(body);
+  }
+
 }
@@ -16,21 +16,20 @@
 package org.symphonyoss.integration.webhook.github.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.model.message.Message;
-import org.symphonyoss.integration.webhook.github.parser.GithubParser;
-import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+import org.symphonyoss.integration.webhook.parser.WebHookParser;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Parser to skip incoming requests from Github
+ * Parser to skip incoming requests from Github. It's also used as the webhook parser of the
+ * rejected events, so their payload is never read.
  * Created by campidelli on 02/05/17.
  */
-@Component
-public class NullGithubParser implements GithubParser {
+public class NullGithubParser implements GithubParser, WebHookParser {
 
   @Override
   public List<String> getEvents() {
@@ -42,6 +41,11 @@ public class NullGithubParser implements GithubParser {
     // Do nothing
   }
 
+  @Override
+  public GithubPayloadFilter getPayloadFilter() {
+    return null;
+  }
+
   @Override
   public Message parse(Map<String, String> parameters, JsonNode node) throws GithubParserException {
     return null;
@@ -53,4 +57,9 @@ public class NullGithubParser implements GithubParser {
     return parse(parameters, node);
   }
 
+  @Override
+  public Message parse(WebHookPayload payload) {
+    return null;
+  }
+
 }
@@ -0,0 +1,253 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.symphonyoss.integration.webhook.github.GithubActionConstants
+    .GITHUB_ACTION_COMPLETED;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_CHECK_RUN;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_CHECK_SUITE;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.ACTION_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.CHECK_RUN_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.CHECK_SUITE_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMPLETED_AT_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.CONCLUSION_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.HEAD_BRANCH_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.HEAD_SHA_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.HTML_URL_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.ID_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.NAME_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.REPOSITORY_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.ROLLUP_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.STARTED_AT_TAG;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.model.message.Message;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.service.UserService;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * This class is responsible to roll up the events 'check_run' and 'check_suite' sent by Github
+ * Webhook when the Agent version is equal to or greater than '1.46.0'.
+ *
+ * Completed check runs are folded into an in-memory aggregate per check suite (runs by
+ * conclusion, slowest run and failed runs) instead of being posted one by one, so the suites of
+ * several apps on the same commit are rolled up apart. A single rollup card is posted when the
+ * first run of a suite fails, and another one when the suite completes. The aggregates are
+ * bounded in number and expire when their suite never completes.
+ */
+@Component
+public class GithubCheckMetadataParser extends GithubMetadataParser {
+
+  private static final String METADATA_FILE = "metadataGithubCheck.xml";
+
+  private static final String TEMPLATE_FILE = "templateGithubCheck.xml";
+
+  private static final int DEFAULT_ROLLUP_CAPACITY = 10000;
+
+  private static final long DEFAULT_ROLLUP_EXPIRY_IN_MINUTES = 60;
+
+  /**
+   * Paths read by the roll up, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList(ACTION_TAG,
+      "check_run.name", "check_run.head_sha", "check_run.conclusion", "check_run.started_at",
+      "check_run.completed_at", "check_run.check_suite.id", "check_run.check_suite.head_branch",
+      "check_suite.id", "check_suite.head_sha", "check_suite.head_branch",
+      "check_suite.conclusion");
+
+  private int rollupCapacity = DEFAULT_ROLLUP_CAPACITY;
+
+  private long rollupExpiry = DEFAULT_ROLLUP_EXPIRY_IN_MINUTES;
+
+  private Cache<Long, GithubCheckRollup> rollups;
+
+  @Autowired
+  public GithubCheckMetadataParser(UserService userService, GithubParserUtils utils,
+      IntegrationProperties integrationProperties) {
+    super(userService, utils, integrationProperties);
+  }
+
+  /**
+   * Update the maximum number of check suites whose check runs are aggregated at the same time.
+   * @param rollupCapacity Maximum number of aggregates
+   */
+  @Value("${github.checks.rollup.capacity:" + DEFAULT_ROLLUP_CAPACITY + "}")
+  public void setRollupCapacity(int rollupCapacity) {
+    this.rollupCapacity = rollupCapacity;
+  }
+
+  /**
+   * Update the time an aggregate is kept after its last check run.
+   * @param rollupExpiry Time in minutes
+   */
+  @Value("${github.checks.rollup.expiry-minutes:" + DEFAULT_ROLLUP_EXPIRY_IN_MINUTES + "}")
+  public void setRollupExpiry(long rollupExpiry) {
+    this.rollupExpiry = rollupExpiry;
+  }
+
+  @Override
+  public void init() {
+    super.init();
+
+    this.rollups = Caffeine.newBuilder()
+        .maximumSize(rollupCapacity)
+        .expireAfterAccess(rollupExpiry, TimeUnit.MINUTES)
+        .build();
+  }
+
+  @Override
+  protected String getTemplateFile() {
+    return TEMPLATE_FILE;
+  }
+
+  @Override
+  protected String getMetadataFile() {
+    return METADATA_FILE;
+  }
+
+  @Override
+  public List<String> getEvents() {
+    return Arrays.asList(GITHUB_EVENT_CHECK_RUN, GITHUB_EVENT_CHECK_SUITE);
+  }
+
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
+  /**
+   * Folds the check event into the aggregate of its check suite. The rollup card is only rendered
+   * when the first run of the suite fails or when the suite completes.
+   * @param parameters Request parameters
+   * @param node JSON input payload
+   * @return Rollup card or null if the event was only aggregated
+   * @throws GithubParserException Failure to render the rollup card
+   */
+  @Override
+  public Message parse(Map<String, String> parameters, JsonNode node)
+      throws GithubParserException {
+    ObjectNode rollup = rollUp(node);
+
+    if (rollup == null) {
+      return null;
+    }
+
+    ((ObjectNode) node).set(ROLLUP_TAG, rollup);
+    return super.parse(parameters, node);
+  }
+
+  @Override
+  protected void preProcessInputData(JsonNode input) {
+    proccessIconURL(input);
+    processURL(input.path(REPOSITORY_TAG), HTML_URL_TAG);
+  }
+
+  /**
+   * Updates the aggregate of the check suite with a completed check run, or takes it when the
+   * suite completes. The aggregates are keyed by suite id; the commit is only displayed.
+   * @param node JSON input payload
+   * @return Rollup node to be rendered or null if no card is due
+   */
+  private ObjectNode rollUp(JsonNode node) {
+    if (!GITHUB_ACTION_COMPLETED.equals(node.path(ACTION_TAG).asText())) {
+      return null;
+    }
+
+    JsonNode checkRun = node.path(CHECK_RUN_TAG);
+
+    if (!checkRun.isMissingNode()) {
+      JsonNode checkSuite = checkRun.path(CHECK_SUITE_TAG);
+      JsonNode suiteId = checkSuite.path(ID_TAG);
+
+      if (!suiteId.canConvertToLong()) {
+        return null;
+      }
+
+      String headSha = checkRun.path(HEAD_SHA_TAG).asText();
+      String headBranch = checkSuite.path(HEAD_BRANCH_TAG).asText();
+      String conclusion = checkRun.path(CONCLUSION_TAG).asText();
+
+      GithubCheckRollup rollup = getRollup(suiteId.asLong(), headSha, headBranch);
+      boolean firstFailure = rollup.addRun(checkRun.path(NAME_TAG).asText(), conclusion,
+          getDuration(checkRun));
+
+      return firstFailure ? rollup.toNode(conclusion) : null;
+    }
+
+    JsonNode checkSuite = node.path(CHECK_SUITE_TAG);
+
+    if (checkSuite.isMissingNode()) {
+      return null;
+    }
+
+    String headSha = checkSuite.path(HEAD_SHA_TAG).asText();
+    JsonNode suiteId = checkSuite.path(ID_TAG);
+    GithubCheckRollup rollup =
+        suiteId.canConvertToLong() ? rollups.asMap().remove(suiteId.asLong()) : null;
+
+    if (rollup == null) {
+      rollup = new GithubCheckRollup(headSha, checkSuite.path(HEAD_BRANCH_TAG).asText());
+    }
+
+    return rollup.toNode(checkSuite.path(CONCLUSION_TAG).asText());
+  }
+
+  private GithubCheckRollup getRollup(long suiteId, final String headSha,
+      final String headBranch) {
+    return rollups.get(suiteId, new Function<Long, GithubCheckRollup>() {
+      @Override
+      public GithubCheckRollup apply(Long key) {
+        return new GithubCheckRollup(headSha, headBranch);
+      }
+    });
+  }
+
+  /**
+   * Computes the duration of a check run.
+   * @param checkRun Check run node
+   * @return Duration in seconds or -1 if the run timestamps are missing or invalid
+   */
+  private long getDuration(JsonNode checkRun) {
+    try {
+      Instant startedAt = Instant.parse(checkRun.path(STARTED_AT_TAG).asText());
+      Instant completedAt = Instant.parse(checkRun.path(COMPLETED_AT_TAG).asText());
+
+      return Duration.between(startedAt, completedAt).getSeconds();
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+}
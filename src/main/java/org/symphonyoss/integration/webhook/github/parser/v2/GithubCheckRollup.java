@@ -0,0 +1,152 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Incremental aggregate of the check runs completed for a commit: number of runs by conclusion,
+ * slowest run and names of the failed runs. Only a bounded number of failed run names is kept.
+ */
+class GithubCheckRollup {
+
+  private static final int MAX_FAILED_RUNS = 10;
+
+  private static final Set<String> FAILED_CONCLUSIONS =
+      new HashSet<>(Arrays.asList("failure", "timed_out"));
+
+  private static final String SEPARATOR = ", ";
+
+  private final String headSha;
+
+  private final String headBranch;
+
+  private final Map<String, Integer> conclusions = new TreeMap<>();
+
+  private final List<String> failedRuns = new ArrayList<>();
+
+  private int failedRunsCount;
+
+  private int total;
+
+  private String slowestRun;
+
+  private long slowestDuration = -1;
+
+  private boolean failureReported;
+
+  GithubCheckRollup(String headSha, String headBranch) {
+    this.headSha = headSha;
+    this.headBranch = headBranch;
+  }
+
+  /**
+   * Adds a completed check run to the aggregate.
+   * @param name Check run name
+   * @param conclusion Check run conclusion (e.g. 'success', 'failure', 'skipped')
+   * @param duration Check run duration in seconds or a negative value if it's unknown
+   * @return true if this is the first failed run of the commit
+   */
+  synchronized boolean addRun(String name, String conclusion, long duration) {
+    total++;
+
+    Integer count = conclusions.get(conclusion);
+    conclusions.put(conclusion, count == null ? 1 : count + 1);
+
+    if (duration > slowestDuration) {
+      slowestDuration = duration;
+      slowestRun = name;
+    }
+
+    if (!FAILED_CONCLUSIONS.contains(conclusion)) {
+      return false;
+    }
+
+    failedRunsCount++;
+
+    if (failedRuns.size() < MAX_FAILED_RUNS) {
+      failedRuns.add(name);
+    }
+
+    boolean firstFailure = !failureReported;
+    failureReported = true;
+
+    return firstFailure;
+  }
+
+  /**
+   * Builds the JSON node rendered by the check rollup card.
+   * @param conclusion Conclusion of the check suite, or of the failed run
+   * @return Rollup node
+   */
+  synchronized ObjectNode toNode(String conclusion) {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("conclusion", conclusion);
+    node.put("headSha", headSha);
+    node.put("shortSha", StringUtils.left(headSha, 7));
+    node.put("headBranch", headBranch);
+    node.put("total", String.valueOf(total));
+    node.put("summary", getSummary());
+    node.put("failed", getFailedRuns());
+    node.put("slowest", getSlowestRun());
+
+    return node;
+  }
+
+  private String getSummary() {
+    List<String> counts = new ArrayList<>(conclusions.size());
+
+    for (Map.Entry<String, Integer> entry : conclusions.entrySet()) {
+      counts.add(entry.getValue() + " " + entry.getKey());
+    }
+
+    return StringUtils.join(counts, SEPARATOR);
+  }
+
+  private String getFailedRuns() {
+    String failed = StringUtils.join(failedRuns, SEPARATOR);
+
+    if (failedRunsCount > failedRuns.size()) {
+      failed += String.format(" and %d more", failedRunsCount - failedRuns.size());
+    }
+
+    return failed;
+  }
+
+  private String getSlowestRun() {
+    if (slowestRun == null) {
+      return StringUtils.EMPTY;
+    }
+
+    if (slowestDuration < 60) {
+      return String.format("%s (%ds)", slowestRun, slowestDuration);
+    }
+
+    return String.format("%s (%dm %02ds)", slowestRun, slowestDuration / 60, slowestDuration % 60);
+  }
+
+}
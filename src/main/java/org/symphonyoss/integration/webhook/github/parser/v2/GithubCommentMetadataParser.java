@@ -58,6 +58,13 @@ public class GithubCommentMetadataParser extends GithubMetadataParser {
   private static final String METADATA_FILE = "metadataGithubComment.xml";
 
   private static final String TEMPLATE_FILE = "templateGithubComment.xml";
+
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS =
+      Arrays.asList("comment.user", "issue.html_url");
+
   private static final String COMMIT_ENTITY = "commit";
   private static final String ISSUE_ENTITY = "issue";
 
@@ -82,6 +89,11 @@ public class GithubCommentMetadataParser extends GithubMetadataParser {
     return Arrays.asList(GITHUB_EVENT_COMMIT_COMMENT, GITHUB_EVENT_ISSUE_COMMENT);
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
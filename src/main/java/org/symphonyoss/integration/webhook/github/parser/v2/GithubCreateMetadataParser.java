@@ -25,6 +25,11 @@ public class GithubCreateMetadataParser extends GithubMetadataParser {
 
   private static final String TEMPLATE_FILE = "templateGithubCreate.xml";
 
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("sender");
+
   public GithubCreateMetadataParser(UserService userService, GithubParserUtils utils,
       IntegrationProperties integrationProperties) {
     super(userService, utils, integrationProperties);
@@ -45,6 +50,11 @@ public class GithubCreateMetadataParser extends GithubMetadataParser {
     return METADATA_FILE;
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
@@ -28,6 +28,11 @@ public class GithubDeploymentMetadataParser extends GithubMetadataParser {
 
   private static final String TEMPLATE_FILE = "templateGithubDeployment.xml";
 
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("deployment.creator");
+
   public GithubDeploymentMetadataParser(UserService userService, GithubParserUtils utils,
       IntegrationProperties integrationProperties) {
     super(userService, utils, integrationProperties);
@@ -48,6 +53,11 @@ public class GithubDeploymentMetadataParser extends GithubMetadataParser {
     return METADATA_FILE;
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
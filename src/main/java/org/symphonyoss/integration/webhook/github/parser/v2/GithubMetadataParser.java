@@ -28,28 +28,45 @@ import static org.symphonyoss.integration.webhook.github.GithubEventTags.URL_TAG
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.symphonyoss.integration.model.message.Message;
 import org.symphonyoss.integration.model.yaml.IntegrationProperties;
 import org.symphonyoss.integration.service.UserService;
 import org.symphonyoss.integration.webhook.github.parser.GithubParser;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+import org.symphonyoss.integration.webhook.github.parser.GithubPayloadFilter;
+import org.symphonyoss.integration.webhook.github.parser.GithubPayloadReducer;
 import org.symphonyoss.integration.webhook.parser.metadata.MetadataParser;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ws.rs.ProcessingException;
 
 /**
@@ -63,7 +80,17 @@ public abstract class GithubMetadataParser extends MetadataParser implements Git
 
   private static final String INTEGRATION_NAME = "github";
 
-  private static final int CACHE_EXPIRATION_IN_MINUTES = 60;
+  private static final long DEFAULT_USER_INFO_TIMEOUT_IN_MILLIS = 10;
+
+  private static final long DEFAULT_USER_INFO_CACHE_SIZE = 10000;
+
+  private static final int USER_INFO_MAX_THREADS = 10;
+
+  private static final int USER_INFO_QUEUE_SIZE = 500;
+
+  private static final int USER_INFO_KEEP_ALIVE_IN_SECONDS = 60;
+
+  private static final String USER_INFO_THREAD_NAME = "github-user-info-%d";
 
   private static final Logger LOG = LoggerFactory.getLogger(GithubMetadataParser.class);
 
@@ -75,7 +102,15 @@ public abstract class GithubMetadataParser extends MetadataParser implements Git
 
   private GithubParserUtils utils;
 
-  private LoadingCache<String, String> userServiceInfoCache;
+  private GithubUserNameCache userServiceInfoCache;
+
+  private ExecutorService userInfoExecutor;
+
+  private long userInfoTimeout = DEFAULT_USER_INFO_TIMEOUT_IN_MILLIS;
+
+  private GithubMetadataProjection projection;
+
+  private GithubPayloadFilter payloadFilter;
 
   @Autowired
   public GithubMetadataParser(UserService userService, GithubParserUtils utils,
@@ -83,14 +118,112 @@ public abstract class GithubMetadataParser extends MetadataParser implements Git
     this.userService = userService;
     this.utils = utils;
     this.integrationProperties = integrationProperties;
+    initializeExecutor();
     initializeCache();
   }
 
+  /**
+   * Reads the template and metadata files, compiles the metadata projection and builds the
+   * payload filter based on the paths required by the parser.
+   */
+  @Override
+  public void init() {
+    super.init();
+
+    this.projection = GithubMetadataProjection.compile(getMetadataFile());
+
+    List<String> requiredPaths = getRequiredPaths();
+    if (requiredPaths != null) {
+      Set<String> paths = new LinkedHashSet<>(projection.getPaths());
+      paths.addAll(requiredPaths);
+
+      this.payloadFilter = GithubPayloadFilter.fromPaths(paths, getReducers());
+    }
+  }
+
+  /**
+   * Stops the background lookups of user public names.
+   */
+  @PreDestroy
+  public void shutdown() {
+    userInfoExecutor.shutdownNow();
+  }
+
+  /**
+   * Update the maximum time the parser waits for the Github user API. When the user public name
+   * isn't available in time, the message is rendered with the user login and the lookup keeps
+   * running in the background to warm the cache up.
+   * @param userInfoTimeout Timeout in milliseconds
+   */
+  @Value("${github.user-info.timeout-millis:" + DEFAULT_USER_INFO_TIMEOUT_IN_MILLIS + "}")
+  public void setUserInfoTimeout(long userInfoTimeout) {
+    this.userInfoTimeout = userInfoTimeout;
+  }
+
+  /**
+   * Update the maximum number of user public names kept in memory.
+   * @param userInfoCacheSize Maximum number of cached users
+   */
+  @Value("${github.user-info.cache.max-size:" + DEFAULT_USER_INFO_CACHE_SIZE + "}")
+  public void setUserInfoCacheSize(long userInfoCacheSize) {
+    userServiceInfoCache.setMaximumSize(userInfoCacheSize);
+  }
+
+  /**
+   * Sets the optional disk-backed tier of the user public name cache.
+   * @param userNameStore User public name store
+   */
+  @Autowired(required = false)
+  public void setUserNameStore(GithubUserNameStore userNameStore) {
+    userServiceInfoCache.setStore(userNameStore);
+  }
+
+  /**
+   * Fills the user public name cache with the names loaded at startup.
+   * @param userNameWarmup User public names loaded at startup
+   */
+  @Autowired(required = false)
+  public void setUserNameWarmup(GithubUserNameWarmup userNameWarmup) {
+    userServiceInfoCache.warmUp(userNameWarmup.getNames());
+  }
+
   @Override
   public void setIntegrationUser(String integrationUser) {
     this.integrationUser = integrationUser;
   }
 
+  @Override
+  public GithubPayloadFilter getPayloadFilter() {
+    return payloadFilter;
+  }
+
+  /**
+   * Returns the metadata projection compiled from the metadata file.
+   * @return Metadata projection
+   */
+  public GithubMetadataProjection getProjection() {
+    return projection;
+  }
+
+  /**
+   * Returns the payload paths read by the pre-processing step, besides the ones already declared
+   * in the metadata file, using the dotted notation of the metadata files. Parsers that don't
+   * declare their paths receive the whole payload.
+   * @return Required paths or null if the parser requires the whole payload.
+   */
+  protected List<String> getRequiredPaths() {
+    return null;
+  }
+
+  /**
+   * Returns the reducers of the payload paths whose values are summarized while the payload is
+   * streamed, instead of being read. Only used along with the required paths.
+   * @return Reducers keyed by dotted paths
+   */
+  protected Map<String, GithubPayloadReducer> getReducers() {
+    return Collections.emptyMap();
+  }
+
   @Override
   public Message parse(Map<String, String> parameters, JsonNode node) throws GithubParserException {
     Message message = parse(node);
@@ -113,20 +246,20 @@ public abstract class GithubMetadataParser extends MetadataParser implements Git
    * Initializes the local cache for usernames and URLs.
    */
   private void initializeCache() {
-    userServiceInfoCache = CacheBuilder.newBuilder().expireAfterWrite(CACHE_EXPIRATION_IN_MINUTES,
-        TimeUnit.MINUTES).build(new CacheLoader<String, String>() {
+    userServiceInfoCache = new GithubUserNameCache(new CacheLoader<String, String>() {
       /**
        * This is called when a key (url) is not found in cache. It tries do call Github's API and
        * then put this information in cache.
        * @param url Key used to find user info in cache or call the remote API.
-       * @return Github User public name or "" if nothing was found.
+       * @return Github User public name, "" if the user has no public name or null if the API
+       * couldn't be reached.
        */
       @Override
       public String load(String url) {
         try {
           JsonNode publicUserInfo = utils.doGetJsonApi(url);
-          if (publicUserInfo != null && !publicUserInfo.path(NAME_TAG).isNull()) {
-            return publicUserInfo.path(NAME_TAG).textValue();
+          if (publicUserInfo != null) {
+            return publicUserInfo.path(NAME_TAG).asText(StringUtils.EMPTY);
           }
         } catch (IOException e) {
           LOG.warn("Couldn't reach GitHub API due to " + e.getMessage(), e);
@@ -134,34 +267,186 @@ public abstract class GithubMetadataParser extends MetadataParser implements Git
           Throwable cause = e.getCause();
           LOG.warn("Couldn't reach GitHub API due to " + cause.getMessage(), e);
         }
-        return StringUtils.EMPTY;
+        return null;
+      }
+    }, userInfoExecutor);
+  }
+
+  /**
+   * Initializes the thread pool used to query the Github user API off the request thread.
+   */
+  private void initializeExecutor() {
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat(USER_INFO_THREAD_NAME)
+        .setDaemon(true)
+        .build();
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(USER_INFO_MAX_THREADS,
+        USER_INFO_MAX_THREADS, USER_INFO_KEEP_ALIVE_IN_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(USER_INFO_QUEUE_SIZE), threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+
+    userInfoExecutor = executor;
+  }
+
+  /**
+   * Tries to hit GitHub's user API to retrieve the public names of the given users. It uses a
+   * local cache to avoid lags due to HTTP API calls, and all the cache misses are resolved at
+   * once.
+   * @param users User API URLs keyed by user login.
+   * @return the public user names keyed by user login, an empty string if Github has no public
+   * name for the user. Users whose info isn't available are omitted.
+   */
+  private Map<String, String> getGithubUserPublicNames(Map<String, String> users) {
+    Map<String, String> publicNames = new HashMap<>();
+    Map<String, String> missingUsers = new LinkedHashMap<>();
+
+    for (Map.Entry<String, String> user : users.entrySet()) {
+      String userPublicName = userServiceInfoCache.getIfPresent(user.getValue());
+
+      if (userPublicName != null) {
+        publicNames.put(user.getKey(), userPublicName);
+      } else if (!userServiceInfoCache.isLookupFailed(user.getValue())) {
+        missingUsers.put(user.getKey(), user.getValue());
+      }
+    }
+
+    if (!missingUsers.isEmpty()) {
+      publicNames.putAll(loadGithubUserPublicNames(missingUsers));
+    }
+
+    return publicNames;
+  }
+
+  /**
+   * Loads the user public names in the background, waiting for them up to the configured
+   * timeout. The timeout applies to the whole batch, not to each user.
+   *
+   * When the Github GraphQL endpoint is available and there is more than one user to resolve, a
+   * single request is sent for all of them. Users not resolved by the GraphQL request are looked
+   * up in parallel through the REST API. The lookups aren't cancelled when the timeout expires,
+   * so the cache is warmed up for the next events.
+   * @param users User API URLs keyed by user login.
+   * @return the public user names keyed by user login, an empty string if Github has no public
+   * name for the user. Users whose public name isn't available in time are omitted.
+   */
+  private Map<String, String> loadGithubUserPublicNames(final Map<String, String> users) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(userInfoTimeout);
+
+    Map<String, String> publicNames = new HashMap<>();
+    Map<String, String> pendingUsers = users;
+
+    if (users.size() > 1 && utils.isGraphqlEnabled()) {
+      Future<Map<String, String>> batch = submitLookup(new Callable<Map<String, String>>() {
+        @Override
+        public Map<String, String> call() {
+          return queryGithubUserPublicNames(users);
+        }
+      });
+
+      Map<String, String> batchResult = awaitLookup(batch, deadline, users.keySet());
+
+      if (batchResult == null) {
+        return publicNames;
       }
-    });
+
+      publicNames.putAll(batchResult);
+
+      pendingUsers = new LinkedHashMap<>(users);
+      pendingUsers.keySet().removeAll(batchResult.keySet());
+    }
+
+    Map<String, Future<String>> lookups = new LinkedHashMap<>();
+
+    for (final Map.Entry<String, String> user : pendingUsers.entrySet()) {
+      lookups.put(user.getKey(), submitLookup(new Callable<String>() {
+        @Override
+        public String call() {
+          return userServiceInfoCache.get(user.getValue());
+        }
+      }));
+    }
+
+    for (Map.Entry<String, Future<String>> lookup : lookups.entrySet()) {
+      String publicName = awaitLookup(lookup.getValue(), deadline, lookup.getKey());
+
+      if (publicName != null) {
+        publicNames.put(lookup.getKey(), publicName);
+      }
+    }
+
+    return publicNames;
   }
 
   /**
-   * Tries to hit GitHub's user API to retrieve a given public user name. It uses a local cache
-   * to avoid lags due to HTTP API calls.
-   * @param userNode {@link JsonNode} that contains the user info.
-   * @return the public user name or user login if no info was found.
+   * Resolves the user public names through a single request to the Github GraphQL endpoint and
+   * stores them in the local cache.
+   * @param users User API URLs keyed by user login.
+   * @return the public user names keyed by user login. Users not resolved are omitted.
    */
-  private String getGithubUserPublicName(JsonNode userNode) {
-    String userPublicName = null;
-    String login = userNode.path(LOGIN_TAG).asText();
+  private Map<String, String> queryGithubUserPublicNames(Map<String, String> users) {
+    Map<String, String> publicNames = new HashMap<>();
 
     try {
-      String url = userNode.path(URL_TAG).asText();
-      userPublicName = userServiceInfoCache.get(url);
-      if (StringUtils.isEmpty(userPublicName)) {
-        userServiceInfoCache.put(url, login);
+      Map<String, String> result = utils.doGetUserPublicNames(users.keySet());
+
+      for (Map.Entry<String, String> user : users.entrySet()) {
+        String publicName = result.get(user.getKey());
+
+        if (publicName != null) {
+          userServiceInfoCache.put(user.getValue(), publicName);
+          publicNames.put(user.getKey(), publicName);
+        }
       }
+    } catch (IOException e) {
+      LOG.warn("Couldn't reach GitHub GraphQL API due to " + e.getMessage(), e);
+    } catch (ProcessingException e) {
+      Throwable cause = e.getCause();
+      LOG.warn("Couldn't reach GitHub GraphQL API due to " + cause.getMessage(), e);
+    }
+
+    return publicNames;
+  }
+
+  /**
+   * Submits a user lookup to the background thread pool.
+   * @param lookup User lookup
+   * @return Pending result or null if there are too many pending lookups.
+   */
+  private <T> Future<T> submitLookup(Callable<T> lookup) {
+    try {
+      return userInfoExecutor.submit(lookup);
+    } catch (RejectedExecutionException e) {
+      LOG.debug("GitHub user info lookup rejected, too many pending lookups");
+      return null;
+    }
+  }
+
+  /**
+   * Waits for a user lookup until the deadline.
+   * @param future Pending result
+   * @param deadline Deadline, as given by {@link System#nanoTime()}
+   * @param users Users being looked up, used only for logging.
+   * @return Lookup result or null if the result isn't available in time.
+   */
+  private <T> T awaitLookup(Future<T> future, long deadline, Object users) {
+    if (future == null) {
+      return null;
+    }
 
+    try {
+      long remaining = Math.max(0, deadline - System.nanoTime());
+      return future.get(remaining, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      LOG.debug("GitHub user info not available in {} ms: {}", userInfoTimeout, users);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     } catch (ExecutionException e) {
       Throwable cause = e.getCause();
       LOG.warn("Couldn't reach GitHub API due to " + cause.getMessage(), e);
     }
 
-    return StringUtils.isEmpty(userPublicName) ? login : userPublicName;
+    return null;
   }
 
   /**
@@ -169,9 +454,36 @@ public abstract class GithubMetadataParser extends MetadataParser implements Git
    * @param userNode JSON input payload
    */
   protected void processUser(JsonNode userNode) {
-    if (!userNode.isMissingNode() && !userNode.isNull()) {
-      String publicName = getGithubUserPublicName(userNode);
-      ((ObjectNode) userNode).put(NAME_TAG, publicName);
+    processUsers(userNode);
+  }
+
+  /**
+   * Enhance the information of several users with their Github public names. Users are
+   * de-duplicated by login and resolved at once, so the event waits for a single round trip to
+   * the Github API at most.
+   * @param userNodes JSON nodes that contain the user info.
+   */
+  protected void processUsers(JsonNode... userNodes) {
+    Map<String, String> users = new LinkedHashMap<>();
+
+    for (JsonNode userNode : userNodes) {
+      if (!userNode.isMissingNode() && !userNode.isNull()) {
+        users.put(userNode.path(LOGIN_TAG).asText(), userNode.path(URL_TAG).asText());
+      }
+    }
+
+    if (users.isEmpty()) {
+      return;
+    }
+
+    Map<String, String> publicNames = getGithubUserPublicNames(users);
+
+    for (JsonNode userNode : userNodes) {
+      if (!userNode.isMissingNode() && !userNode.isNull()) {
+        String login = userNode.path(LOGIN_TAG).asText();
+        String publicName = publicNames.get(login);
+        ((ObjectNode) userNode).put(NAME_TAG, StringUtils.isEmpty(publicName) ? login : publicName);
+      }
     }
   }
 
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Precomputed projection of the input paths read by a metadata file.
+ *
+ * Each '&lt;field value="..."/&gt;' entry of the metadata file is a dotted path from the root of
+ * the payload, except inside a list object ('&lt;object list="true"&gt;'). A list is read from the
+ * payload key named after the object id and its field values are relative to each element, so the
+ * list contributes its own id as a path and its fields are skipped. Paths are de-duplicated and
+ * interned, so the same projection may be used to build the
+ * {@link org.symphonyoss.integration.webhook.github.parser.GithubPayloadFilter} of the parser.
+ */
+public class GithubMetadataProjection {
+
+  private static final String METADATA_DIR = "metadata/";
+
+  private static final String FIELD_ELEMENT = "field";
+
+  private static final String OBJECT_ELEMENT = "object";
+
+  private static final String VALUE_ATTRIBUTE = "value";
+
+  private static final String ID_ATTRIBUTE = "id";
+
+  private static final String LIST_ATTRIBUTE = "list";
+
+  private final List<String> paths;
+
+  private GithubMetadataProjection(Set<String> paths) {
+    this.paths = Collections.unmodifiableList(new ArrayList<>(paths));
+  }
+
+  /**
+   * Compiles the metadata file into a projection.
+   * @param metadataFile Metadata file name (e.g. 'metadataGithubPush.xml')
+   * @return Projection of the input paths read by the metadata file
+   * @throws GithubParserException Failure to read the metadata file
+   */
+  public static GithubMetadataProjection compile(String metadataFile) {
+    ClassLoader classLoader = GithubMetadataProjection.class.getClassLoader();
+    InputStream metadata = classLoader.getResourceAsStream(METADATA_DIR + metadataFile);
+
+    if (metadata == null) {
+      throw new GithubParserException("Metadata file not found: " + metadataFile);
+    }
+
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+
+      DocumentBuilder builder = factory.newDocumentBuilder();
+      Document document = builder.parse(metadata);
+
+      Set<String> paths = new LinkedHashSet<>();
+      collectPaths(document.getDocumentElement(), paths);
+
+      return new GithubMetadataProjection(paths);
+    } catch (Exception e) {
+      throw new GithubParserException("Fail to compile the metadata file " + metadataFile, e);
+    } finally {
+      try {
+        metadata.close();
+      } catch (IOException e) {
+        // Nothing to do
+      }
+    }
+  }
+
+  /**
+   * Collects the paths read by the children of the element, in declaration order.
+   * @param element Metadata element
+   * @param paths Dotted paths found so far
+   */
+  private static void collectPaths(Element element, Set<String> paths) {
+    NodeList children = element.getChildNodes();
+
+    for (int i = 0; i < children.getLength(); i++) {
+      Node node = children.item(i);
+
+      if (node.getNodeType() != Node.ELEMENT_NODE) {
+        continue;
+      }
+
+      Element child = (Element) node;
+
+      if (FIELD_ELEMENT.equals(child.getTagName())) {
+        addPath(child.getAttribute(VALUE_ATTRIBUTE), paths);
+      } else if (OBJECT_ELEMENT.equals(child.getTagName())) {
+        if (Boolean.parseBoolean(child.getAttribute(LIST_ATTRIBUTE))) {
+          addPath(child.getAttribute(ID_ATTRIBUTE), paths);
+        } else {
+          collectPaths(child, paths);
+        }
+      }
+    }
+  }
+
+  private static void addPath(String path, Set<String> paths) {
+    if (!path.isEmpty()) {
+      paths.add(path.intern());
+    }
+  }
+
+  /**
+   * Returns the input paths read by the metadata file, in declaration order.
+   * @return Dotted paths
+   */
+  public List<String> getPaths() {
+    return paths;
+  }
+
+}
@@ -66,6 +66,12 @@ public class GithubPullRequestMetadataParser extends GithubMetadataParser {
 
   private static final String TEMPLATE_FILE = "templateGithubPullRequest.xml";
 
+  /**
+   * Paths read by the pre-processing step. The head and base repositories are reduced to the
+   * fields declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("sender", "assignee");
+
   private Map<String, String> actionsAndLabels = new HashMap<>();
 
   @Autowired
@@ -93,12 +99,16 @@ public class GithubPullRequestMetadataParser extends GithubMetadataParser {
     return Arrays.asList(GITHUB_EVENT_PULL_REQUEST);
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
     processActionVerbs(input);
-    processUser(input.path(SENDER_TAG));
-    processUser(input.path(ASSIGNEE_TAG));
+    processUsers(input.path(SENDER_TAG), input.path(ASSIGNEE_TAG));
     processBody(input.path(PULL_REQUEST_TAG));
     processURL(input.path(PULL_REQUEST_TAG), HTML_URL_TAG);
     processURL(input.path(PULL_REQUEST_TAG).path(HEAD_TAG).path(REPO_TAG), HTML_URL_TAG);
@@ -49,6 +49,11 @@ public class GithubPullRequestReviewCommentMetadataParser extends GithubMetadata
 
   private static final String TEMPLATE_FILE = "templateGithubPullRequestReviewComment.xml";
 
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("comment.user");
+
   @Autowired
   public GithubPullRequestReviewCommentMetadataParser(UserService userService,
       GithubParserUtils utils, IntegrationProperties integrationProperties) {
@@ -70,6 +75,11 @@ public class GithubPullRequestReviewCommentMetadataParser extends GithubMetadata
     return Arrays.asList(GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT);
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.BODY_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMMENTS_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMMENTS_TOTAL_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.HTML_URL_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.MORE_COMMENTS_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.REPOSITORY_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.REVIEW_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.STATE_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.USER_TAG;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.parser.ParserUtils;
+import org.symphonyoss.integration.parser.SafeString;
+import org.symphonyoss.integration.service.UserService;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class is responsible to validate the event 'pull_request_review' sent by Github Webhook
+ * when the Agent version is equal to or greater than '1.46.0'.
+ *
+ * The review comments correlated with the review by
+ * {@link org.symphonyoss.integration.webhook.github.delivery.GithubReviewCorrelator} are rendered
+ * within the review card, followed by the number of comments left out of it.
+ */
+@Component
+public class GithubPullRequestReviewMetadataParser extends GithubMetadataParser {
+
+  private static final String METADATA_FILE = "metadataGithubPullRequestReview.xml";
+
+  private static final String TEMPLATE_FILE = "templateGithubPullRequestReview.xml";
+
+  private static final String MORE_COMMENTS_FORMAT = "and %d more comment%s";
+
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS =
+      Arrays.asList("review.user", COMMENTS_TOTAL_TAG);
+
+  @Autowired
+  public GithubPullRequestReviewMetadataParser(UserService userService, GithubParserUtils utils,
+      IntegrationProperties integrationProperties) {
+    super(userService, utils, integrationProperties);
+  }
+
+  @Override
+  protected String getTemplateFile() {
+    return TEMPLATE_FILE;
+  }
+
+  @Override
+  protected String getMetadataFile() {
+    return METADATA_FILE;
+  }
+
+  @Override
+  public List<String> getEvents() {
+    return Arrays.asList(GITHUB_EVENT_PULL_REQUEST_REVIEW);
+  }
+
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
+  @Override
+  protected void preProcessInputData(JsonNode input) {
+    JsonNode review = input.path(REVIEW_TAG);
+
+    proccessIconURL(input);
+
+    // A payload without review is left to fail the metadata validation
+    if (review.isObject()) {
+      processState((ObjectNode) review);
+      processUser(review.path(USER_TAG));
+      processURL(review, HTML_URL_TAG);
+    }
+
+    processURL(input.path(REPOSITORY_TAG), HTML_URL_TAG);
+    processComments(input);
+  }
+
+  /**
+   * Translate the review state (e.g. 'CHANGES_REQUESTED' to 'changes requested') and produce a
+   * safe review body, replacing a missing one by an empty one.
+   * @param review Review node
+   */
+  private void processState(ObjectNode review) {
+    String state = review.path(STATE_TAG).asText().toLowerCase(Locale.ENGLISH).replace('_', ' ');
+    review.put(STATE_TAG, state);
+
+    if (review.path(BODY_TAG).isNull()) {
+      review.put(BODY_TAG, StringUtils.EMPTY);
+    } else {
+      processBody(review);
+    }
+  }
+
+  /**
+   * Produces a safe string, with HTML line breaks instead of \n.
+   * @param node Node to add the modified string.
+   */
+  private void processBody(ObjectNode node) {
+    SafeString body = ParserUtils.escapeAndAddLineBreaks(node.path(BODY_TAG).asText());
+    node.put(BODY_TAG, body.toString());
+  }
+
+  /**
+   * Escape the URLs and the bodies of the folded comments and add the number of comments left out
+   * of the card.
+   * @param input JSON input payload
+   */
+  private void processComments(JsonNode input) {
+    JsonNode comments = input.path(COMMENTS_TAG);
+
+    if (!comments.isArray()) {
+      comments = ((ObjectNode) input).putArray(COMMENTS_TAG);
+    }
+
+    for (JsonNode comment : comments) {
+      processURL(comment, HTML_URL_TAG);
+
+      if (comment.isObject()) {
+        processBody((ObjectNode) comment);
+      }
+    }
+
+    int moreComments = input.path(COMMENTS_TOTAL_TAG).asInt() - comments.size();
+    String text = moreComments > 0
+        ? String.format(MORE_COMMENTS_FORMAT, moreComments, moreComments > 1 ? "s" : "")
+        : StringUtils.EMPTY;
+
+    ((ObjectNode) input).put(MORE_COMMENTS_TAG, text);
+  }
+}
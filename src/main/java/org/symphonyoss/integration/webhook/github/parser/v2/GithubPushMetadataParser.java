@@ -18,6 +18,7 @@ package org.symphonyoss.integration.webhook.github.parser.v2;
 
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
 import static org.symphonyoss.integration.webhook.github.GithubEventTags.BRANCH_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMMITS_TAG;
 import static org.symphonyoss.integration.webhook.github.GithubEventTags.COMPARE_TAG;
 import static org.symphonyoss.integration.webhook.github.GithubEventTags.HTML_URL_TAG;
 import static org.symphonyoss.integration.webhook.github.GithubEventTags.PATH_TAG;
@@ -27,21 +28,31 @@ import static org.symphonyoss.integration.webhook.github.GithubEventTags.REF_TYP
 import static org.symphonyoss.integration.webhook.github.GithubEventTags.REPOSITORY_TAG;
 import static org.symphonyoss.integration.webhook.github.GithubEventTags.SENDER_TAG;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.lang3.text.WordUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.model.yaml.IntegrationProperties;
 import org.symphonyoss.integration.service.UserService;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+import org.symphonyoss.integration.webhook.github.parser.GithubPayloadReducer;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is responsible to validate the event 'push' sent by Github Webhook when
  * the Agent version is equal to or greater than '1.46.0'.
+ *
+ * The 'commits' array is summarized (number of commits, distinct authors and first commit
+ * messages) while the payload is streamed, so pushes with thousands of commits are rendered at a
+ * bounded cost.
  * Created by campidelli on 02/05/17.
  */
 @Component
@@ -51,11 +62,49 @@ public class GithubPushMetadataParser extends GithubMetadataParser {
 
   private static final String TEMPLATE_FILE = "templateGithubPush.xml";
 
+  private static final int DEFAULT_MAX_AUTHORS = 10;
+
+  private static final int DEFAULT_MAX_MESSAGES = 5;
+
+  /**
+   * Paths read by the pre-processing step. The 'commits' array is never read, only reduced.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("sender");
+
+  private int maxAuthors = DEFAULT_MAX_AUTHORS;
+
+  private int maxMessages = DEFAULT_MAX_MESSAGES;
+
+  private final GithubPayloadReducer commitsReducer = new GithubPayloadReducer() {
+    @Override
+    public JsonNode reduce(JsonParser parser) throws IOException {
+      return GithubPushSummary.read(parser, maxAuthors, maxMessages).toNode();
+    }
+  };
+
   @Autowired
   public GithubPushMetadataParser(UserService userService, GithubParserUtils utils, IntegrationProperties integrationProperties) {
     super(userService, utils, integrationProperties);
   }
 
+  /**
+   * Update the maximum number of distinct commit authors shown in the push card.
+   * @param maxAuthors Maximum number of authors
+   */
+  @Value("${github.push.summary.max-authors:" + DEFAULT_MAX_AUTHORS + "}")
+  public void setMaxAuthors(int maxAuthors) {
+    this.maxAuthors = maxAuthors;
+  }
+
+  /**
+   * Update the maximum number of commit messages shown in the push card.
+   * @param maxMessages Maximum number of messages
+   */
+  @Value("${github.push.summary.max-messages:" + DEFAULT_MAX_MESSAGES + "}")
+  public void setMaxMessages(int maxMessages) {
+    this.maxMessages = maxMessages;
+  }
+
   @Override
   protected String getTemplateFile() {
     return TEMPLATE_FILE;
@@ -71,10 +120,21 @@ public class GithubPushMetadataParser extends GithubMetadataParser {
     return Arrays.asList(GITHUB_EVENT_PUSH);
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
+  @Override
+  protected Map<String, GithubPayloadReducer> getReducers() {
+    return Collections.singletonMap(COMMITS_TAG, commitsReducer);
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
     processRef(input);
+    processCommits(input);
     processUser(input.path(SENDER_TAG));
     processURL(input, COMPARE_TAG);
     processURL(input.path(REPOSITORY_TAG), HTML_URL_TAG);
@@ -95,4 +155,26 @@ public class GithubPushMetadataParser extends GithubMetadataParser {
     ((ObjectNode) input).put(REF_TAG, ref);
   }
 
+  /**
+   * Replaces the 'commits' array by its summary, unless it was already reduced while the payload
+   * was streamed, and moves the summarized messages to the 'messages' list.
+   * @param input JSON input payload
+   */
+  private void processCommits(JsonNode input) {
+    JsonNode commits = input.path(COMMITS_TAG);
+    ObjectNode summary;
+
+    if (commits.isObject()) {
+      summary = (ObjectNode) commits;
+    } else if (commits.isArray()) {
+      summary = GithubPushSummary.of(commits, maxAuthors, maxMessages).toNode();
+    } else {
+      summary = new GithubPushSummary(maxAuthors, maxMessages).toNode();
+    }
+
+    ((ObjectNode) input).set(GithubPushSummary.MESSAGES_TAG,
+        summary.remove(GithubPushSummary.MESSAGES_TAG));
+    ((ObjectNode) input).set(COMMITS_TAG, summary);
+  }
+
 }
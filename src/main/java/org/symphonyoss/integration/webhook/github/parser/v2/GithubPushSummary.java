@@ -0,0 +1,239 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.AUTHOR_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.MESSAGE_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.NAME_TAG;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.symphonyoss.integration.parser.ParserUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded summary of the commits of a push: number of commits, distinct authors with their number
+ * of commits and the first commit messages. Only a limited number of authors and messages is
+ * kept, so the summary has the same cost whatever the size of the push. The messages and the
+ * author names are escaped when the summary node is built.
+ */
+class GithubPushSummary {
+
+  static final String COUNT_TAG = "count";
+
+  static final String AUTHORS_TAG = "authors";
+
+  static final String MORE_MESSAGES_TAG = "more_messages";
+
+  static final String MESSAGES_TAG = "messages";
+
+  private static final int MAX_MESSAGE_LENGTH = 100;
+
+  private static final String SEPARATOR = ", ";
+
+  private static final String UNKNOWN_AUTHOR = "unknown";
+
+  private final int maxAuthors;
+
+  private final int maxMessages;
+
+  private final Map<String, Integer> authors = new LinkedHashMap<>();
+
+  private final List<String> messages = new ArrayList<>();
+
+  private int count;
+
+  private boolean otherAuthors;
+
+  GithubPushSummary(int maxAuthors, int maxMessages) {
+    this.maxAuthors = maxAuthors;
+    this.maxMessages = maxMessages;
+  }
+
+  /**
+   * Summarizes the 'commits' array of a push while it's streamed. Commit messages are only read
+   * while more messages are needed, and nothing else but the author names is read.
+   * @param parser JSON parser positioned at the first token of the array
+   * @param maxAuthors Maximum number of distinct authors kept
+   * @param maxMessages Maximum number of commit messages kept
+   * @return Commits summary
+   * @throws IOException Failure to read the payload
+   */
+  static GithubPushSummary read(JsonParser parser, int maxAuthors, int maxMessages)
+      throws IOException {
+    GithubPushSummary summary = new GithubPushSummary(maxAuthors, maxMessages);
+
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return summary;
+    }
+
+    JsonToken token;
+
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+      if (token == JsonToken.START_OBJECT) {
+        summary.readCommit(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return summary;
+  }
+
+  /**
+   * Summarizes the 'commits' array of a push already read.
+   * @param commits Commits node
+   * @param maxAuthors Maximum number of distinct authors kept
+   * @param maxMessages Maximum number of commit messages kept
+   * @return Commits summary
+   */
+  static GithubPushSummary of(JsonNode commits, int maxAuthors, int maxMessages) {
+    GithubPushSummary summary = new GithubPushSummary(maxAuthors, maxMessages);
+
+    for (JsonNode commit : commits) {
+      summary.addCommit(commit.path(AUTHOR_TAG).path(NAME_TAG).asText(null),
+          commit.path(MESSAGE_TAG).asText(null));
+    }
+
+    return summary;
+  }
+
+  private void readCommit(JsonParser parser) throws IOException {
+    String author = null;
+    String message = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (token == JsonToken.VALUE_STRING && MESSAGE_TAG.equals(fieldName)
+          && messages.size() < maxMessages) {
+        message = parser.getText();
+      } else if (token == JsonToken.START_OBJECT && AUTHOR_TAG.equals(fieldName)) {
+        author = readName(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    addCommit(author, message);
+  }
+
+  private static String readName(JsonParser parser) throws IOException {
+    String name = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (token == JsonToken.VALUE_STRING && NAME_TAG.equals(fieldName)) {
+        name = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return name;
+  }
+
+  /**
+   * Adds a commit to the summary.
+   * @param author Author name or null if it's unknown
+   * @param message Commit message or null if it's unknown
+   */
+  void addCommit(String author, String message) {
+    count++;
+
+    String name = StringUtils.isEmpty(author) ? UNKNOWN_AUTHOR : author;
+    Integer commits = authors.get(name);
+
+    if (commits != null) {
+      authors.put(name, commits + 1);
+    } else if (authors.size() < maxAuthors) {
+      authors.put(name, 1);
+    } else {
+      otherAuthors = true;
+    }
+
+    if (message != null && messages.size() < maxMessages) {
+      messages.add(StringUtils.abbreviate(firstLine(message), MAX_MESSAGE_LENGTH));
+    }
+  }
+
+  private static String firstLine(String message) {
+    int end = message.indexOf('\n');
+    return end < 0 ? message.trim() : message.substring(0, end).trim();
+  }
+
+  /**
+   * Builds the summary node rendered in the push card, with safe strings for the commit messages
+   * and the author names.
+   * @return Summary node
+   */
+  ObjectNode toNode() {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put(COUNT_TAG, String.valueOf(count));
+    node.put(AUTHORS_TAG, getAuthors());
+
+    int moreMessages = count - messages.size();
+    node.put(MORE_MESSAGES_TAG, moreMessages > 0 && !messages.isEmpty()
+        ? String.format("and %d more commit%s", moreMessages, moreMessages > 1 ? "s" : "")
+        : StringUtils.EMPTY);
+
+    ArrayNode messagesNode = node.putArray(MESSAGES_TAG);
+
+    for (String message : messages) {
+      messagesNode.addObject().put(MESSAGE_TAG, escape(message));
+    }
+
+    return node;
+  }
+
+  private String getAuthors() {
+    StringBuilder result = new StringBuilder();
+
+    for (Map.Entry<String, Integer> author : authors.entrySet()) {
+      if (result.length() > 0) {
+        result.append(SEPARATOR);
+      }
+
+      result.append(escape(author.getKey())).append(" (").append(author.getValue()).append(")");
+    }
+
+    if (otherAuthors) {
+      result.append(" and others");
+    }
+
+    return result.toString();
+  }
+
+  private static String escape(String text) {
+    return ParserUtils.escapeAndAddLineBreaks(text).toString();
+  }
+
+}
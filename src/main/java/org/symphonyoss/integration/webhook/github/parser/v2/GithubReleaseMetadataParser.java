@@ -45,6 +45,11 @@ public class GithubReleaseMetadataParser extends GithubMetadataParser {
 
   private static final String TEMPLATE_FILE = "templateGithubRelease.xml";
 
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("release.author", "sender");
+
   @Autowired
   public GithubReleaseMetadataParser(UserService userService, GithubParserUtils utils, IntegrationProperties integrationProperties) {
     super(userService, utils, integrationProperties);
@@ -65,11 +70,15 @@ public class GithubReleaseMetadataParser extends GithubMetadataParser {
     return Arrays.asList(GITHUB_EVENT_RELEASE);
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
-    processUser(input.path(RELEASE_TAG).path(AUTHOR_TAG));
-    processUser(input.path(SENDER_TAG));
+    processUsers(input.path(RELEASE_TAG).path(AUTHOR_TAG), input.path(SENDER_TAG));
     processURL(input.path(RELEASE_TAG), HTML_URL_TAG);
     processURL(input.path(REPOSITORY_TAG), HTML_URL_TAG);
   }
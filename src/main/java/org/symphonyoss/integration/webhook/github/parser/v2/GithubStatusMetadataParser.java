@@ -44,6 +44,11 @@ public class GithubStatusMetadataParser extends GithubMetadataParser {
 
   private static final String TEMPLATE_FILE = "templateGithubStatus.xml";
 
+  /**
+   * Paths read by the pre-processing step, besides the ones declared in the metadata file.
+   */
+  private static final List<String> REQUIRED_PATHS = Arrays.asList("sender");
+
   @Autowired
   public GithubStatusMetadataParser(UserService userService, GithubParserUtils utils, IntegrationProperties integrationProperties) {
     super(userService, utils, integrationProperties);
@@ -64,6 +69,11 @@ public class GithubStatusMetadataParser extends GithubMetadataParser {
     return Arrays.asList(GITHUB_EVENT_STATUS);
   }
 
+  @Override
+  protected List<String> getRequiredPaths() {
+    return REQUIRED_PATHS;
+  }
+
   @Override
   protected void preProcessInputData(JsonNode input) {
     proccessIconURL(input);
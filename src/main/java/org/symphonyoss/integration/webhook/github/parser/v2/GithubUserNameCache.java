@@ -0,0 +1,357 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local cache of Github user public names keyed by the user API URL.
+ *
+ * Entries are refreshed in the background once they get older than the refresh interval, minus
+ * a random jitter, so the entries written together (e.g. after a restart) are not reloaded
+ * together. Stale names keep being served while they're refreshed, or while the refresh fails.
+ * Each entry is refreshed by a single lookup at a time, however many reads find it due, as
+ * Caffeine 2.x doesn't de-duplicate concurrent refreshes.
+ * Entries expire a fixed time after they were last written, whether they're read or not. As a
+ * read triggers the refresh of a due entry, which writes it again, only the entries that aren't
+ * read within that time actually expire.
+ *
+ * Failed lookups are kept in a separate cache with a shorter expiration time, so they are never
+ * served as public names. The cache size is bounded and the eviction policy takes into account
+ * how often each user is seen, so frequent users survive a burst of one-off users.
+ *
+ * When a {@link GithubUserNameStore} is available, the names fetched from Github are also written
+ * to it and the users missing from memory are looked up in the store first, so a restarted node
+ * serves the names it has already seen without querying the Github API.
+ */
+public class GithubUserNameCache {
+
+  private static final long REFRESH_IN_MINUTES = 60;
+
+  private static final int REFRESH_JITTER_PERCENT = 10;
+
+  private static final long EXPIRATION_IN_HOURS = 24;
+
+  private static final long FAILURE_EXPIRATION_IN_MINUTES = 5;
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+  private final CacheLoader<String, String> loader;
+
+  private final Ticker ticker;
+
+  private final long refreshNanos;
+
+  private final LoadingCache<String, CachedName> publicNames;
+
+  private final Cache<String, Boolean> failedLookups;
+
+  private volatile GithubUserNameStore store;
+
+  /**
+   * Creates the user public name cache.
+   * @param loader Loads the public name of a user. Must return an empty string if the user has no
+   * public name or null if the lookup failed.
+   * @param executor Executor used to refresh the entries in the background
+   */
+  public GithubUserNameCache(CacheLoader<String, String> loader, Executor executor) {
+    this(loader, executor, Ticker.systemTicker(), DEFAULT_MAXIMUM_SIZE);
+  }
+
+  GithubUserNameCache(CacheLoader<String, String> loader, Executor executor, Ticker ticker,
+      long maximumSize) {
+    this.loader = loader;
+    this.ticker = ticker;
+    this.refreshNanos = TimeUnit.MINUTES.toNanos(REFRESH_IN_MINUTES);
+
+    this.publicNames = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(EXPIRATION_IN_HOURS, TimeUnit.HOURS)
+        .executor(executor)
+        .ticker(ticker)
+        .build(new PublicNameLoader());
+
+    this.failedLookups = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(FAILURE_EXPIRATION_IN_MINUTES, TimeUnit.MINUTES)
+        .executor(executor)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Update the maximum number of cached public names and of cached failed lookups. Entries beyond
+   * it are evicted.
+   * @param maximumSize Maximum number of entries
+   */
+  public void setMaximumSize(long maximumSize) {
+    publicNames.policy().eviction().get().setMaximum(maximumSize);
+    failedLookups.policy().eviction().get().setMaximum(maximumSize);
+  }
+
+  /**
+   * Sets the disk-backed tier of the cache.
+   * @param store User public name store
+   */
+  public void setStore(GithubUserNameStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Returns the cached public name without querying the Github API. Triggers a background
+   * refresh if the entry is due to be refreshed.
+   * @param url User API URL
+   * @return the public user name, an empty string if Github has no public name for the user or
+   * null if the user isn't cached.
+   */
+  public String getIfPresent(String url) {
+    CachedName cachedName = publicNames.getIfPresent(url);
+
+    if (cachedName == null) {
+      cachedName = loadFromStore(url);
+    }
+
+    if (cachedName == null) {
+      return null;
+    }
+
+    if (cachedName.tryStartRefresh(ticker.read())) {
+      publicNames.refresh(url);
+    }
+
+    return cachedName.name;
+  }
+
+  /**
+   * Returns the public name, querying the Github API if the user isn't cached. Concurrent calls
+   * for the same user share a single lookup.
+   * @param url User API URL
+   * @return the public user name, an empty string if Github has no public name for the user or
+   * null if the lookup failed.
+   */
+  public String get(String url) {
+    String name = getIfPresent(url);
+
+    if (name != null || isLookupFailed(url)) {
+      return name;
+    }
+
+    CachedName cachedName = publicNames.get(url);
+    return cachedName == null ? null : cachedName.name;
+  }
+
+  /**
+   * Stores a public name resolved elsewhere (e.g. by a batched lookup).
+   * @param url User API URL
+   * @param name Public name or an empty string if Github has no public name for the user.
+   */
+  public void put(String url, String name) {
+    publicNames.put(url, newCachedName(name));
+    failedLookups.invalidate(url);
+    writeToStore(url, name);
+  }
+
+  /**
+   * Fills the cache in bulk, e.g. at startup. Names already cached are kept and the new ones
+   * aren't written to the store, as they may be older than the ones the store already has.
+   * @param names Public names keyed by user API URL.
+   */
+  public void warmUp(Map<String, String> names) {
+    ConcurrentMap<String, CachedName> cachedNames = publicNames.asMap();
+
+    for (Map.Entry<String, String> entry : names.entrySet()) {
+      cachedNames.putIfAbsent(entry.getKey(), newCachedName(entry.getValue()));
+    }
+  }
+
+  /**
+   * Checks if the last lookup for the user failed recently. Such users shouldn't be queried again
+   * until the failure expires.
+   * @param url User API URL
+   * @return true if the last lookup failed recently
+   */
+  public boolean isLookupFailed(String url) {
+    return failedLookups.getIfPresent(url) != null;
+  }
+
+  /**
+   * Returns the approximate number of cached public names.
+   * @return Number of cached public names
+   */
+  public long size() {
+    return publicNames.estimatedSize();
+  }
+
+  /**
+   * Removes the expired and evicted entries right away. Useful for tests.
+   */
+  void cleanUp() {
+    publicNames.cleanUp();
+    failedLookups.cleanUp();
+  }
+
+  private CachedName newCachedName(String name) {
+    return newCachedName(name, 0);
+  }
+
+  /**
+   * Creates a cache entry for a name fetched some time ago.
+   * @param name Public name
+   * @param ageNanos How long ago the name was fetched
+   * @return Cache entry due to be refreshed after the refresh interval, minus a random jitter.
+   */
+  private CachedName newCachedName(String name, long ageNanos) {
+    long jitter = ThreadLocalRandom.current().nextLong(refreshNanos * REFRESH_JITTER_PERCENT / 100);
+    return new CachedName(name, ticker.read() - ageNanos + refreshNanos - jitter);
+  }
+
+  /**
+   * Moves a user from the disk-backed tier to memory. Names older than the refresh interval are
+   * served as well and refreshed in the background.
+   * @param url User API URL
+   * @return Cache entry or null if the user isn't stored.
+   */
+  private CachedName loadFromStore(String url) {
+    GithubUserNameStore currentStore = store;
+
+    if (currentStore == null) {
+      return null;
+    }
+
+    GithubUserNameStore.StoredName storedName = currentStore.get(url);
+
+    if (storedName == null) {
+      return null;
+    }
+
+    long ageMillis = Math.max(0, System.currentTimeMillis() - storedName.getFetchedAt());
+    CachedName cachedName =
+        newCachedName(storedName.getName(), TimeUnit.MILLISECONDS.toNanos(ageMillis));
+
+    publicNames.put(url, cachedName);
+    return cachedName;
+  }
+
+  private void writeToStore(String url, String name) {
+    GithubUserNameStore currentStore = store;
+
+    if (currentStore != null) {
+      currentStore.put(url, name, System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Loads the public names through the given loader, keeping failures apart.
+   */
+  private final class PublicNameLoader implements CacheLoader<String, CachedName> {
+
+    @Override
+    public CachedName load(String url) throws Exception {
+      String name = loader.load(url);
+
+      if (name == null) {
+        failedLookups.put(url, Boolean.TRUE);
+        return null;
+      }
+
+      failedLookups.invalidate(url);
+      writeToStore(url, name);
+
+      return newCachedName(name);
+    }
+
+    /**
+     * A failed refresh keeps the stale name, which is retried once the failure expires.
+     */
+    @Override
+    public CachedName reload(String url, CachedName oldValue) throws Exception {
+      CachedName cachedName;
+
+      try {
+        cachedName = load(url);
+      } catch (Exception e) {
+        cachedName = null;
+      }
+
+      if (cachedName == null) {
+        long retryAt = ticker.read() + TimeUnit.MINUTES.toNanos(FAILURE_EXPIRATION_IN_MINUTES);
+        return new CachedName(oldValue.name, retryAt);
+      }
+
+      return cachedName;
+    }
+
+  }
+
+  /**
+   * Cached public name, the time it's due to be refreshed and the time its refresh started.
+   */
+  private static final class CachedName {
+
+    private static final long NOT_REFRESHING = Long.MIN_VALUE;
+
+    /**
+     * Time after which a refresh that never wrote the entry back (e.g. rejected by the executor)
+     * is considered lost, and the entry may be refreshed again.
+     */
+    private static final long REFRESH_TIMEOUT_IN_NANOS =
+        TimeUnit.MINUTES.toNanos(FAILURE_EXPIRATION_IN_MINUTES);
+
+    private final String name;
+
+    private final long refreshAt;
+
+    private final AtomicLong refreshStartedAt = new AtomicLong(NOT_REFRESHING);
+
+    private CachedName(String name, long refreshAt) {
+      this.name = name;
+      this.refreshAt = refreshAt;
+    }
+
+    /**
+     * Claims the refresh of the entry if it's due and no other refresh is in flight.
+     * @param now Current ticker time in nanoseconds
+     * @return true if the caller must refresh the entry
+     */
+    private boolean tryStartRefresh(long now) {
+      if (now - refreshAt < 0) {
+        return false;
+      }
+
+      long startedAt = refreshStartedAt.get();
+
+      if (startedAt != NOT_REFRESHING && now - startedAt < REFRESH_TIMEOUT_IN_NANOS) {
+        return false;
+      }
+
+      return refreshStartedAt.compareAndSet(startedAt, now);
+    }
+
+  }
+
+}
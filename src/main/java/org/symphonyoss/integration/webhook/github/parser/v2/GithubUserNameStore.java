@@ -0,0 +1,591 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Optional disk-backed tier of the Github user public names, so a restarted node doesn't need to
+ * query the Github API for the users it has already seen.
+ *
+ * The names are appended to a memory-mapped file, one record per lookup:
+ * [record length][checksum][fetched at][URL length][URL][name length][name]. The record length is
+ * written last and the checksum covers the rest of the record, so a record cut by a crash is
+ * ignored on the next start, as is any record that doesn't check out. An in-memory index, pointing
+ * each URL to its latest record, is rebuilt by scanning the file once at startup. Superseded and
+ * expired records are dropped by a periodic compaction that rewrites the file in the background
+ * and swaps it under a short lock.
+ *
+ * The store is disabled unless 'github.user-info.store.path' is set.
+ */
+@Component
+public class GithubUserNameStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubUserNameStore.class);
+
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+  private static final int MAGIC = 0x4748554E;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 8;
+
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final int INITIAL_SIZE = 1024 * 1024;
+
+  private static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+  private static final long MAX_AGE_IN_DAYS = 7;
+
+  private static final long COMPACTION_INTERVAL_IN_MINUTES = 60;
+
+  private static final String COMPACTION_SUFFIX = ".compact";
+
+  private static final String COMPACTION_THREAD_NAME = "github-user-store-%d";
+
+  private final Map<String, Integer> index = new HashMap<>();
+
+  /**
+   * Serializes the compactions, which run without holding the store lock.
+   */
+  private final Object compactionLock = new Object();
+
+  private File file;
+
+  private FileChannel channel;
+
+  private MappedByteBuffer buffer;
+
+  private int position;
+
+  private int records;
+
+  private ScheduledExecutorService compactionExecutor;
+
+  /**
+   * Update the file where the user public names are stored. The store is disabled when no file is
+   * configured.
+   * @param path File path
+   */
+  @Value("${github.user-info.store.path:}")
+  public void setPath(String path) {
+    this.file = StringUtils.isEmpty(path) ? null : new File(path);
+  }
+
+  /**
+   * Opens the store file, if configured, and schedules the periodic compaction.
+   */
+  @PostConstruct
+  public void init() {
+    if (file == null) {
+      return;
+    }
+
+    try {
+      open();
+    } catch (IOException e) {
+      LOG.error("Couldn't open the GitHub user store " + file + ", the store is disabled", e);
+      close();
+      return;
+    }
+
+    compactionExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat(COMPACTION_THREAD_NAME).setDaemon(true).build());
+
+    compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          compact();
+        } catch (IOException e) {
+          LOG.warn("Couldn't compact the GitHub user store " + file, e);
+        }
+      }
+    }, COMPACTION_INTERVAL_IN_MINUTES, COMPACTION_INTERVAL_IN_MINUTES, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Flushes the store file and stops the compaction.
+   */
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (compactionExecutor != null) {
+      compactionExecutor.shutdownNow();
+    }
+
+    close();
+  }
+
+  /**
+   * Checks if the store is available.
+   * @return true if the store file has been opened
+   */
+  public synchronized boolean isEnabled() {
+    return buffer != null;
+  }
+
+  /**
+   * Returns the number of users in the store.
+   * @return Number of users
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /**
+   * Returns the latest public name stored for the user.
+   * @param url User API URL
+   * @return Stored name or null if the user isn't stored or the store is disabled.
+   */
+  public synchronized StoredName get(String url) {
+    if (buffer == null) {
+      return null;
+    }
+
+    Integer offset = index.get(url);
+    return offset == null ? null : readRecord(buffer, offset).name;
+  }
+
+  /**
+   * Appends the public name of a user to the store. Nothing happens if the store is disabled.
+   * @param url User API URL
+   * @param name Public name or an empty string if Github has no public name for the user.
+   * @param fetchedAt When the name was fetched, in milliseconds since the epoch.
+   */
+  public synchronized void put(String url, String name, long fetchedAt) {
+    if (buffer == null) {
+      return;
+    }
+
+    byte[] urlBytes = url.getBytes(CHARSET);
+    byte[] nameBytes = name.getBytes(CHARSET);
+
+    if (urlBytes.length > MAX_FIELD_LENGTH || nameBytes.length > MAX_FIELD_LENGTH) {
+      return;
+    }
+
+    try {
+      int offset = appendRecord(urlBytes, nameBytes, fetchedAt);
+      index.put(url, offset);
+    } catch (IOException e) {
+      LOG.warn("Couldn't write the GitHub user store " + file, e);
+    }
+  }
+
+  /**
+   * Rewrites the store file keeping only the latest record of each user that isn't expired. The
+   * file is rewritten only if most of its records are superseded or expired.
+   *
+   * The compacted file is written from a snapshot of the index, without holding the store lock,
+   * so lookups and writes aren't blocked meanwhile. The lock is only held to copy the records
+   * appended since the snapshot and to swap the files.
+   * @throws IOException Failure to rewrite the store file
+   */
+  public void compact() throws IOException {
+    synchronized (compactionLock) {
+      Map<String, Integer> snapshotIndex;
+      ByteBuffer snapshot;
+      int snapshotPosition;
+      int snapshotRecords;
+
+      synchronized (this) {
+        if (buffer == null) {
+          return;
+        }
+
+        snapshotIndex = new HashMap<>(index);
+        snapshot = buffer.duplicate();
+        snapshotPosition = position;
+        snapshotRecords = records;
+      }
+
+      long minFetchedAt = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_AGE_IN_DAYS);
+      List<Record> liveRecords = new ArrayList<>();
+
+      for (Integer offset : snapshotIndex.values()) {
+        Record record = readRecord(snapshot, offset);
+
+        if (record.name.getFetchedAt() >= minFetchedAt) {
+          liveRecords.add(record);
+        }
+      }
+
+      if (liveRecords.size() * 2 > snapshotRecords) {
+        return;
+      }
+
+      File compacted = new File(file.getPath() + COMPACTION_SUFFIX);
+      Map<String, Integer> compactedIndex = new HashMap<>();
+
+      try (FileChannel output = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        write(output, header);
+
+        for (Record record : liveRecords) {
+          compactedIndex.put(record.url, (int) output.position());
+          write(output, encodeRecord(record.url.getBytes(CHARSET),
+              record.name.getName().getBytes(CHARSET), record.name.getFetchedAt()));
+        }
+
+        output.force(true);
+
+        if (!swap(output, compacted, snapshotPosition, compactedIndex, liveRecords.size())) {
+          return;
+        }
+      } finally {
+        Files.deleteIfExists(compacted.toPath());
+      }
+
+      LOG.info("GitHub user store compacted: {} users", compactedIndex.size());
+    }
+  }
+
+  /**
+   * Appends the records written since the compaction snapshot to the compacted file and replaces
+   * the store file by it.
+   * @param output Compacted file channel
+   * @param compacted Compacted file
+   * @param snapshotPosition End of the records included in the snapshot
+   * @param compactedIndex Index of the compacted file, updated with the appended records
+   * @param compactedRecords Number of records in the compacted file
+   * @return false if the store was closed meanwhile
+   * @throws IOException Failure to write the compacted file or to swap the files
+   */
+  private synchronized boolean swap(FileChannel output, File compacted, int snapshotPosition,
+      Map<String, Integer> compactedIndex, int compactedRecords) throws IOException {
+    if (buffer == null) {
+      return false;
+    }
+
+    int shift = (int) output.position() - snapshotPosition;
+    int offset = snapshotPosition;
+    int appended = 0;
+
+    while (offset < position) {
+      compactedIndex.put(readRecord(buffer, offset).url, offset + shift);
+      offset += RECORD_HEADER_SIZE + buffer.getInt(offset);
+      appended++;
+    }
+
+    ByteBuffer tail = buffer.duplicate();
+    tail.limit(position);
+    tail.position(snapshotPosition);
+    write(output, tail);
+    output.force(true);
+
+    int compactedPosition = (int) output.position();
+    output.close();
+
+    close();
+
+    try {
+      Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      open();
+      throw e;
+    }
+
+    map();
+
+    index.putAll(compactedIndex);
+    position = compactedPosition;
+    records = compactedRecords + appended;
+
+    return true;
+  }
+
+  private static void write(FileChannel output, ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      output.write(source);
+    }
+  }
+
+  /**
+   * Maps the store file and rebuilds the index scanning all the records.
+   * @throws IOException Failure to open the store file
+   */
+  private void open() throws IOException {
+    map();
+
+    if (buffer.getInt(0) != MAGIC) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      position = HEADER_SIZE;
+      return;
+    }
+
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported GitHub user store version " + buffer.getInt(4));
+    }
+
+    position = HEADER_SIZE;
+
+    try {
+      while (position + RECORD_HEADER_SIZE <= buffer.limit()) {
+        int length = buffer.getInt(position);
+
+        if (!isValidRecord(position, length)) {
+          break;
+        }
+
+        index.put(readRecord(buffer, position).url, position);
+        records++;
+
+        position += RECORD_HEADER_SIZE + length;
+      }
+    } catch (RuntimeException e) {
+      // A corrupted record ends the valid records, like a record cut by a crash
+      LOG.warn("Corrupted GitHub user store record at " + position + " in " + file, e);
+    }
+  }
+
+  /**
+   * Maps the store file, without reading it.
+   * @throws IOException Failure to open the store file
+   */
+  private void map() throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      Files.createDirectories(parent.toPath());
+    }
+
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+
+    long size = Math.max(channel.size(), INITIAL_SIZE);
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+    index.clear();
+    records = 0;
+  }
+
+  /**
+   * Checks the record length, without overflowing on a corrupted length, the checksum and the
+   * length of the record fields.
+   * @param offset Record offset
+   * @param length Record length read from the file
+   * @return true if the record is valid
+   */
+  private boolean isValidRecord(int offset, int length) {
+    if (length <= 0 || length > buffer.limit() - offset - RECORD_HEADER_SIZE
+        || buffer.getInt(offset + 4) != checksum(buffer, offset, length)) {
+      return false;
+    }
+
+    int urlOffset = offset + RECORD_HEADER_SIZE + 8;
+    int urlLength = buffer.getShort(urlOffset) & MAX_FIELD_LENGTH;
+    int nameLength = buffer.getShort(urlOffset + 2 + urlLength) & MAX_FIELD_LENGTH;
+
+    return length == 8 + 2 + urlLength + 2 + nameLength;
+  }
+
+  private void close() {
+    if (buffer != null) {
+      buffer.force();
+      buffer = null;
+    }
+
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Couldn't close the GitHub user store " + file, e);
+      }
+      channel = null;
+    }
+
+    index.clear();
+  }
+
+  private int appendRecord(byte[] urlBytes, byte[] nameBytes, long fetchedAt) throws IOException {
+    ByteBuffer record = encodeRecord(urlBytes, nameBytes, fetchedAt);
+    int length = record.getInt(0);
+    ensureCapacity(RECORD_HEADER_SIZE + length);
+
+    int offset = position;
+
+    record.position(RECORD_HEADER_SIZE);
+    buffer.position(offset + RECORD_HEADER_SIZE);
+    buffer.put(record);
+
+    // The length commits the record
+    buffer.putInt(offset + 4, record.getInt(4));
+    buffer.putInt(offset, length);
+
+    position += RECORD_HEADER_SIZE + length;
+    records++;
+
+    return offset;
+  }
+
+  /**
+   * Encodes a record, with its length and checksum.
+   * @param urlBytes User API URL
+   * @param nameBytes Public name
+   * @param fetchedAt When the name was fetched, in milliseconds since the epoch.
+   * @return Record ready to be written
+   */
+  private static ByteBuffer encodeRecord(byte[] urlBytes, byte[] nameBytes, long fetchedAt) {
+    int length = 8 + 2 + urlBytes.length + 2 + nameBytes.length;
+
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+    record.position(RECORD_HEADER_SIZE);
+    record.putLong(fetchedAt);
+    record.putShort((short) urlBytes.length);
+    record.put(urlBytes);
+    record.putShort((short) nameBytes.length);
+    record.put(nameBytes);
+
+    record.putInt(0, length);
+    record.putInt(4, checksum(record, 0, length));
+    record.rewind();
+
+    return record;
+  }
+
+  /**
+   * Grows the mapped region, doubling it, when the next record doesn't fit.
+   * @param recordSize Size of the next record
+   * @throws IOException Failure to grow the store file
+   */
+  private void ensureCapacity(int recordSize) throws IOException {
+    if (position + recordSize <= buffer.limit()) {
+      return;
+    }
+
+    long size = buffer.limit();
+    while (size < position + recordSize) {
+      size *= 2;
+    }
+
+    buffer.force();
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  private static int checksum(ByteBuffer source, int offset, int length) {
+    ByteBuffer body = source.duplicate();
+    body.limit(offset + RECORD_HEADER_SIZE + length);
+    body.position(offset + RECORD_HEADER_SIZE);
+
+    CRC32 crc = new CRC32();
+    crc.update(body);
+
+    return (int) crc.getValue();
+  }
+
+  private static Record readRecord(ByteBuffer source, int offset) {
+    int current = offset + RECORD_HEADER_SIZE;
+
+    long fetchedAt = source.getLong(current);
+    current += 8;
+
+    int urlLength = source.getShort(current) & MAX_FIELD_LENGTH;
+    String url = readString(source, current + 2, urlLength);
+    current += 2 + urlLength;
+
+    int nameLength = source.getShort(current) & MAX_FIELD_LENGTH;
+    String name = readString(source, current + 2, nameLength);
+
+    return new Record(url, new StoredName(name, fetchedAt));
+  }
+
+  private static String readString(ByteBuffer source, int offset, int length) {
+    byte[] bytes = new byte[length];
+
+    ByteBuffer view = source.duplicate();
+    view.position(offset);
+    view.get(bytes);
+
+    return new String(bytes, CHARSET);
+  }
+
+  /**
+   * User public name read from the store.
+   */
+  public static final class StoredName {
+
+    private final String name;
+
+    private final long fetchedAt;
+
+    public StoredName(String name, long fetchedAt) {
+      this.name = name;
+      this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * @return Public name or an empty string if Github has no public name for the user.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return When the name was fetched, in milliseconds since the epoch.
+     */
+    public long getFetchedAt() {
+      return fetchedAt;
+    }
+
+  }
+
+  private static final class Record {
+
+    private final String url;
+
+    private final StoredName name;
+
+    private Record(String url, StoredName name) {
+      this.url = url;
+      this.name = name;
+    }
+
+  }
+
+}
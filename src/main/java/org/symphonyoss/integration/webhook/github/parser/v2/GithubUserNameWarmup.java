@@ -0,0 +1,392 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.json.JsonUtils;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Loads Github user public names in bulk at startup, so the first events don't need one user API
+ * call per user.
+ *
+ * The names come from a snapshot file (a JSON object mapping logins to public names) and/or from
+ * the members of an organization. The member listing is paginated: pages are requested in
+ * parallel, one wave at a time, until a page comes back incomplete. The public names of the
+ * members are then resolved through batched GraphQL queries, when enabled, or in parallel
+ * through the REST user API. Every request goes through the rate-limited client, and the number
+ * of REST user lookups is capped, so the warm-up doesn't use up the budget the lookups of the
+ * incoming events need.
+ *
+ * The warm-up runs before the parsers are created and never takes longer than its time budget.
+ * Whatever was loaded by then is used and the rest is looked up on demand. The loaded names are
+ * released once every parser has copied them into its cache. The warm-up is disabled unless
+ * 'github.user-info.warmup.org' or 'github.user-info.warmup.snapshot-path' is set.
+ */
+@Component
+public class GithubUserNameWarmup implements SmartInitializingSingleton {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GithubUserNameWarmup.class);
+
+  private static final String DEFAULT_API_URL = "https://api.github.com";
+
+  private static final long DEFAULT_TIMEOUT_IN_MILLIS = 5000;
+
+  private static final int DEFAULT_PARALLELISM = 4;
+
+  private static final int DEFAULT_MAX_USER_LOOKUPS = 100;
+
+  private static final String MEMBERS_URL_FORMAT = "%s/orgs/%s/members?per_page=%d&page=%d";
+
+  private static final String USER_URL_FORMAT = "%s/users/%s";
+
+  private static final int PAGE_SIZE = 100;
+
+  private static final int GRAPHQL_BATCH_SIZE = 100;
+
+  private static final String LOGIN_FIELD = "login";
+
+  private static final String URL_FIELD = "url";
+
+  private static final String NAME_FIELD = "name";
+
+  private static final String WARMUP_THREAD_NAME = "github-user-warmup-%d";
+
+  private final GithubParserUtils utils;
+
+  private String org;
+
+  private String snapshotPath;
+
+  private String apiUrl = DEFAULT_API_URL;
+
+  private long timeout = DEFAULT_TIMEOUT_IN_MILLIS;
+
+  private int parallelism = DEFAULT_PARALLELISM;
+
+  private int maxUserLookups = DEFAULT_MAX_USER_LOOKUPS;
+
+  private volatile Map<String, String> names = Collections.emptyMap();
+
+  @Autowired
+  public GithubUserNameWarmup(GithubParserUtils utils) {
+    this.utils = utils;
+  }
+
+  /**
+   * Update the organization whose members are loaded at startup.
+   * @param org Organization login
+   */
+  @Value("${github.user-info.warmup.org:}")
+  public void setOrg(String org) {
+    this.org = org;
+  }
+
+  /**
+   * Update the snapshot file loaded at startup.
+   * @param snapshotPath Path of a JSON file mapping user logins to public names
+   */
+  @Value("${github.user-info.warmup.snapshot-path:}")
+  public void setSnapshotPath(String snapshotPath) {
+    this.snapshotPath = snapshotPath;
+  }
+
+  /**
+   * Update the Github API URL used to list the organization members.
+   * @param apiUrl Github API URL
+   */
+  @Value("${github.user-info.warmup.api-url:" + DEFAULT_API_URL + "}")
+  public void setApiUrl(String apiUrl) {
+    this.apiUrl = apiUrl;
+  }
+
+  /**
+   * Update the time budget of the warm-up.
+   * @param timeout Timeout in milliseconds
+   */
+  @Value("${github.user-info.warmup.timeout-millis:" + DEFAULT_TIMEOUT_IN_MILLIS + "}")
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Update the number of parallel requests sent during the warm-up.
+   * @param parallelism Number of parallel requests
+   */
+  @Value("${github.user-info.warmup.parallelism:" + DEFAULT_PARALLELISM + "}")
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * Update the maximum number of members whose public name is looked up through the REST user
+   * API, when GraphQL isn't enabled.
+   * @param maxUserLookups Maximum number of user API calls
+   */
+  @Value("${github.user-info.warmup.max-user-lookups:" + DEFAULT_MAX_USER_LOOKUPS + "}")
+  public void setMaxUserLookups(int maxUserLookups) {
+    this.maxUserLookups = maxUserLookups;
+  }
+
+  /**
+   * Returns the public names loaded by the warm-up, until they're released.
+   * @return Public names keyed by user API URL. Users without a public name are mapped to an
+   * empty string.
+   */
+  public Map<String, String> getNames() {
+    return names;
+  }
+
+  /**
+   * Releases the loaded names once every parser has been created and has copied them into its
+   * cache.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    this.names = Collections.emptyMap();
+  }
+
+  /**
+   * Loads the snapshot file and the organization members within the time budget.
+   */
+  @PostConstruct
+  public void warmUp() {
+    if (StringUtils.isBlank(org) && StringUtils.isBlank(snapshotPath)) {
+      return;
+    }
+
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+    Map<String, String> loadedNames = new ConcurrentHashMap<>();
+
+    if (StringUtils.isNotBlank(snapshotPath)) {
+      loadSnapshot(loadedNames);
+    }
+
+    if (StringUtils.isNotBlank(org)) {
+      ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+          new ThreadFactoryBuilder().setNameFormat(WARMUP_THREAD_NAME).setDaemon(true).build());
+
+      try {
+        Map<String, String> members = listMembers(executor, deadline);
+        Iterator<Map.Entry<String, String>> iterator = members.entrySet().iterator();
+        while (iterator.hasNext()) {
+          if (loadedNames.containsKey(iterator.next().getValue())) {
+            iterator.remove();
+          }
+        }
+
+        resolveNames(executor, members, loadedNames, deadline);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    this.names = Collections.unmodifiableMap(new HashMap<>(loadedNames));
+
+    LOG.info("{} GitHub user public names loaded in {} ms", names.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Reads the snapshot file.
+   * @param loadedNames Public names keyed by user API URL
+   */
+  private void loadSnapshot(Map<String, String> loadedNames) {
+    try (InputStream snapshot = Files.newInputStream(Paths.get(snapshotPath))) {
+      JsonNode node = JsonUtils.readTree(snapshot);
+      Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        String url = String.format(USER_URL_FORMAT, apiUrl, field.getKey());
+
+        loadedNames.put(url, field.getValue().asText(StringUtils.EMPTY));
+      }
+    } catch (IOException e) {
+      LOG.warn("Couldn't read the GitHub user snapshot " + snapshotPath, e);
+    }
+  }
+
+  /**
+   * Lists the organization members. Pages are requested in waves of parallel requests until a
+   * page comes back incomplete or the time budget is over.
+   * @param executor Executor used to request the pages
+   * @param deadline Deadline of the warm-up, in nanoseconds
+   * @return User API URLs keyed by user login
+   */
+  private Map<String, String> listMembers(ExecutorService executor, long deadline) {
+    Map<String, String> members = new LinkedHashMap<>();
+    int page = 1;
+    boolean lastPage = false;
+
+    while (!lastPage) {
+      List<Future<JsonNode>> wave = new ArrayList<>(parallelism);
+
+      for (int i = 0; i < parallelism; i++) {
+        String url = String.format(MEMBERS_URL_FORMAT, apiUrl, org, PAGE_SIZE, page++);
+        wave.add(submit(executor, url));
+      }
+
+      for (Future<JsonNode> future : wave) {
+        JsonNode pageMembers = await(future, deadline);
+
+        if (pageMembers == null || !pageMembers.isArray()) {
+          lastPage = true;
+          continue;
+        }
+
+        for (JsonNode member : pageMembers) {
+          String login = member.path(LOGIN_FIELD).asText();
+          String url = member.path(URL_FIELD).asText(String.format(USER_URL_FORMAT, apiUrl, login));
+          members.put(login, url);
+        }
+
+        if (pageMembers.size() < PAGE_SIZE) {
+          lastPage = true;
+        }
+      }
+    }
+
+    return members;
+  }
+
+  /**
+   * Resolves the public names of the members, through batched GraphQL queries when enabled or
+   * one REST call per member otherwise, up to the maximum number of user lookups.
+   * @param executor Executor used to query the Github API
+   * @param members User API URLs keyed by user login
+   * @param loadedNames Public names keyed by user API URL
+   * @param deadline Deadline of the warm-up, in nanoseconds
+   */
+  private void resolveNames(ExecutorService executor, Map<String, String> members,
+      Map<String, String> loadedNames, long deadline) {
+    if (utils.isGraphqlEnabled()) {
+      List<Future<Map<String, String>>> batches = new ArrayList<>();
+      List<String> logins = new ArrayList<>(members.keySet());
+
+      for (int i = 0; i < logins.size(); i += GRAPHQL_BATCH_SIZE) {
+        int end = Math.min(logins.size(), i + GRAPHQL_BATCH_SIZE);
+        final List<String> batch = logins.subList(i, end);
+
+        batches.add(executor.submit(new Callable<Map<String, String>>() {
+          @Override
+          public Map<String, String> call() throws IOException {
+            return utils.doGetUserPublicNames(batch);
+          }
+        }));
+      }
+
+      for (Future<Map<String, String>> future : batches) {
+        Map<String, String> batchNames = await(future, deadline);
+
+        if (batchNames != null) {
+          for (Map.Entry<String, String> entry : batchNames.entrySet()) {
+            String url = members.get(entry.getKey());
+
+            if (url != null) {
+              loadedNames.put(url, entry.getValue());
+            }
+          }
+        }
+      }
+    } else {
+      Map<String, Future<JsonNode>> users = new LinkedHashMap<>();
+
+      for (String url : members.values()) {
+        if (users.size() >= maxUserLookups) {
+          LOG.info("GitHub user lookups capped to {}, the other members are looked up on demand",
+              maxUserLookups);
+          break;
+        }
+
+        users.put(url, submit(executor, url));
+      }
+
+      for (Map.Entry<String, Future<JsonNode>> user : users.entrySet()) {
+        JsonNode userInfo = await(user.getValue(), deadline);
+
+        if (userInfo != null) {
+          loadedNames.put(user.getKey(), userInfo.path(NAME_FIELD).asText(StringUtils.EMPTY));
+        }
+      }
+    }
+  }
+
+  private Future<JsonNode> submit(ExecutorService executor, final String url) {
+    return executor.submit(new Callable<JsonNode>() {
+      @Override
+      public JsonNode call() throws IOException {
+        return utils.doGetJsonApi(url);
+      }
+    });
+  }
+
+  /**
+   * Waits for a request until the deadline.
+   * @param future Pending request
+   * @param deadline Deadline of the warm-up, in nanoseconds
+   * @return the response or null if it's not available in time or the request failed
+   */
+  private <T> T await(Future<T> future, long deadline) {
+    try {
+      return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      LOG.warn("Couldn't reach GitHub API due to " + cause.getMessage(), cause);
+      return null;
+    }
+  }
+
+}
@@ -18,11 +18,15 @@ package org.symphonyoss.integration.webhook.github;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_CREATE;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants
@@ -32,8 +36,12 @@ import static org.symphonyoss.integration.webhook.github.GithubEventConstants
     .GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_DELIVERY;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants
     .GITHUB_HEADER_EVENT_NAME;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_SIGNATURE;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
@@ -50,6 +58,12 @@ import org.symphonyoss.integration.model.yaml.IntegrationProperties;
 import org.symphonyoss.integration.service.UserService;
 import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.exception.WebHookParseException;
+import org.symphonyoss.integration.webhook.github.delivery.GithubDeliveryFilter;
+import org.symphonyoss.integration.webhook.github.delivery.GithubIngestionQueue;
+import org.symphonyoss.integration.webhook.github.delivery.GithubIngestionRejectedException;
+import org.symphonyoss.integration.webhook.github.delivery.GithubSignatureVerifier;
+import org.symphonyoss.integration.webhook.github.delivery.GithubReviewCorrelator;
+import org.symphonyoss.integration.webhook.github.delivery.GithubStatusCoalescer;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserFactory;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserResolver;
@@ -93,6 +107,21 @@ public class GithubWebHookIntegrationTest extends CommonGithubTest {
   @Spy
   private GithubParserUtils githubParserUtils;
 
+  @Spy
+  private GithubDeliveryFilter deliveryFilter = new GithubDeliveryFilter();
+
+  @Spy
+  private GithubSignatureVerifier signatureVerifier = new GithubSignatureVerifier();
+
+  @Spy
+  private GithubIngestionQueue ingestionQueue = new GithubIngestionQueue();
+
+  @Spy
+  private GithubStatusCoalescer statusCoalescer = new GithubStatusCoalescer();
+
+  @Spy
+  private GithubReviewCorrelator reviewCorrelator = new GithubReviewCorrelator();
+
   @InjectMocks
   private GithubWebHookIntegration githubWHI = new GithubWebHookIntegration();
 
@@ -136,8 +165,10 @@ public class GithubWebHookIntegrationTest extends CommonGithubTest {
         "ppires@symphony.com");
 
     factories.add(factory);
+    deliveryFilter.init();
 
     doReturn(factory).when(parserResolver).getFactory();
+    doReturn(true).when(parserResolver).isEventAccepted(anyString());
     doReturn(StringUtils.EMPTY).when(integrationProperties).getApplicationUrl(anyString());
 
     prReviewCommentGithubParser.init();
@@ -191,6 +222,266 @@ public class GithubWebHookIntegrationTest extends CommonGithubTest {
     githubWHI.parse(payload);
   }
 
+  @Test
+  public void testRedeliveryDropped() throws WebHookParseException, IOException {
+    String body = readFile("parser/push/payload_xgithubevent_push.json");
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PUSH);
+    headers.put(GITHUB_HEADER_DELIVERY, "72d3162e-cc78-11e3-81ab-4c9367dc0958");
+
+    WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, body);
+
+    GithubWebHookParserAdapter parser = new GithubWebHookParserAdapter(pushGithubParser);
+    doReturn(parser).when(factory).getParser(payload);
+
+    Message result = githubWHI.parse(payload);
+
+    assertEquals(readFile(
+        "parser/push/payload_xgithubevent_push_expected_message_without_user_info.xml"),
+        result.getMessage());
+    assertNull(githubWHI.parse(payload));
+    assertEquals(1, deliveryFilter.getDuplicates());
+    verify(factory, times(1)).getParser(payload);
+  }
+
+  @Test
+  public void testFailedDeliveryNotDropped() throws WebHookParseException {
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_DELIVERY, "72d3162e-cc78-11e3-81ab-4c9367dc0958");
+
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(),
+        headers, StringUtils.EMPTY);
+
+    GithubWebHookParserAdapter parser = new GithubWebHookParserAdapter(defaultGithubParser);
+    doReturn(parser).when(factory).getParser(payload);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        githubWHI.parse(payload);
+      } catch (GithubParserException e) {
+        // Expected
+      }
+    }
+
+    assertEquals(0, deliveryFilter.getDuplicates());
+    verify(factory, times(2)).getParser(payload);
+  }
+
+  @Test(expected = GithubParserException.class)
+  public void testInvalidSignature() throws WebHookParseException {
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PUSH);
+    headers.put(GITHUB_HEADER_SIGNATURE,
+        "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17");
+
+    WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, "{}");
+
+    signatureVerifier.setSecret("secret");
+
+    try {
+      githubWHI.parse(payload);
+    } finally {
+      verify(factory, times(0)).getParser(payload);
+    }
+  }
+
+  @Test
+  public void testValidSignature() throws WebHookParseException {
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_SIGNATURE,
+        "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17");
+
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(),
+        headers, "Hello, World!");
+
+    GithubWebHookParserAdapter parser = new GithubWebHookParserAdapter(defaultGithubParser);
+    doReturn(parser).when(factory).getParser(payload);
+    signatureVerifier.setSecret("It's a Secret to Everybody");
+
+    try {
+      githubWHI.parse(payload);
+    } catch (GithubParserException e) {
+      // The body isn't JSON, but it got to the parser
+    }
+
+    verify(factory, times(1)).getParser(payload);
+  }
+
+  @Test(expected = GithubParserException.class)
+  public void testQueuedPayloadInvalidSignature() throws WebHookParseException {
+    doReturn(true).when(ingestionQueue).isEnabled();
+    signatureVerifier.setSecret("It's a Secret to Everybody");
+
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(),
+        Collections.<String, String>emptyMap(), "Hello, World!");
+
+    try {
+      githubWHI.handle("1234", "githubWebHookIntegration", payload);
+    } finally {
+      verify(ingestionQueue, times(0)).submit(anyString(), anyString(), any(Runnable.class));
+    }
+  }
+
+  @Test
+  public void testInstanceSecret() throws WebHookParseException {
+    doReturn(true).when(ingestionQueue).isEnabled();
+    doNothing().when(ingestionQueue).submit(anyString(), anyString(), any(Runnable.class));
+    signatureVerifier.setSecret("secret");
+    signatureVerifier.setInstanceSecrets("1234:It's a Secret to Everybody");
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PUSH);
+    headers.put(GITHUB_HEADER_SIGNATURE,
+        "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17");
+
+    WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, "Hello, World!");
+
+    githubWHI.handle("1234", "githubWebHookIntegration", payload);
+
+    try {
+      githubWHI.handle("5678", "githubWebHookIntegration", payload);
+    } catch (GithubParserException e) {
+      // The other instances verify with the default secret
+    }
+
+    verify(ingestionQueue, times(1)).submit(anyString(), anyString(), any(Runnable.class));
+  }
+
+  @Test(expected = GithubIngestionRejectedException.class)
+  public void testQueueFull() throws WebHookParseException {
+    doReturn(true).when(ingestionQueue).isEnabled();
+    doThrow(new GithubIngestionRejectedException("GitHub ingestion queue is full", 30))
+        .when(ingestionQueue).submit(eq(GITHUB_EVENT_PUSH), anyString(), any(Runnable.class));
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PUSH);
+
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(), headers,
+        "{ \"repository\": { \"full_name\": \"symphonyoss/App-Integrations-Github\" } }");
+
+    try {
+      githubWHI.handle("1234", "githubWebHookIntegration", payload);
+    } finally {
+      verifyZeroInteractions(factory);
+    }
+  }
+
+  @Test
+  public void testRejectedEventNotQueued() throws WebHookParseException {
+    doReturn(true).when(ingestionQueue).isEnabled();
+    doReturn(true).when(reviewCorrelator).isEnabled();
+    doReturn(false).when(parserResolver).isEventAccepted("watch");
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, "watch");
+    headers.put(GITHUB_HEADER_DELIVERY, "72d3162e-cc78-11e3-81ab-4c9367dc0958");
+
+    WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, "invalid");
+
+    githubWHI.handle("1234", "githubWebHookIntegration", payload);
+
+    verify(reviewCorrelator, times(0)).hold(anyString(), anyString(), anyString(),
+        any(GithubReviewCorrelator.Release.class));
+    verify(ingestionQueue, times(0)).submit(anyString(), anyString(), any(Runnable.class));
+    verify(deliveryFilter, times(0)).isDuplicate(anyString());
+    verifyZeroInteractions(factory);
+  }
+
+  @Test
+  public void testQueuedRedeliveryDropped() throws WebHookParseException {
+    doReturn(true).when(ingestionQueue).isEnabled();
+    doReturn(true).when(statusCoalescer).isEnabled();
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_STATUS);
+    headers.put(GITHUB_HEADER_DELIVERY, "72d3162e-cc78-11e3-81ab-4c9367dc0958");
+
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(), headers,
+        "{ \"state\": \"pending\" }");
+
+    doReturn(true).when(statusCoalescer).hold(eq("1234"), anyString(), any(Runnable.class));
+
+    githubWHI.handle("1234", "githubWebHookIntegration", payload);
+    githubWHI.handle("1234", "githubWebHookIntegration", payload);
+
+    verify(statusCoalescer, times(1)).hold(eq("1234"), anyString(), any(Runnable.class));
+    assertEquals(1, deliveryFilter.getDuplicates());
+  }
+
+  @Test
+  public void testRejectedDeliveryForgotten() throws WebHookParseException {
+    doReturn(true).when(ingestionQueue).isEnabled();
+    doThrow(new GithubIngestionRejectedException("GitHub ingestion queue is full", 30))
+        .when(ingestionQueue).submit(eq(GITHUB_EVENT_PUSH), anyString(), any(Runnable.class));
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PUSH);
+    headers.put(GITHUB_HEADER_DELIVERY, "72d3162e-cc78-11e3-81ab-4c9367dc0958");
+
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(), headers,
+        "{ \"repository\": { \"full_name\": \"symphonyoss/App-Integrations-Github\" } }");
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        githubWHI.handle("1234", "githubWebHookIntegration", payload);
+      } catch (GithubIngestionRejectedException e) {
+        // Expected
+      }
+    }
+
+    verify(ingestionQueue, times(2)).submit(eq(GITHUB_EVENT_PUSH), anyString(),
+        any(Runnable.class));
+    assertEquals(0, deliveryFilter.getDuplicates());
+  }
+
+  @Test
+  public void testPendingStatusHeld() throws IOException, WebHookParseException {
+    doReturn(true).when(statusCoalescer).isEnabled();
+    doReturn(true).when(statusCoalescer).hold(eq("1234"), anyString(), any(Runnable.class));
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_STATUS);
+
+    String body = readFile("parser/status/payload_xgithubevent_status_without_description.json")
+        .replace("\"success\"", "\"pending\"");
+    WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, body);
+
+    githubWHI.handle("1234", "githubWebHookIntegration", payload);
+
+    verify(statusCoalescer, times(1)).hold(eq("1234"), eq(body), any(Runnable.class));
+    verify(ingestionQueue, times(0)).submit(anyString(), anyString(), any(Runnable.class));
+    verifyZeroInteractions(factory);
+  }
+
+  @Test
+  public void testReviewCommentHeld() throws IOException, WebHookParseException {
+    doReturn(true).when(reviewCorrelator).isEnabled();
+    doReturn(true).when(reviewCorrelator).hold(eq("1234"),
+        eq(GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT), anyString(),
+        any(GithubReviewCorrelator.Release.class));
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT);
+
+    String body = readFile(
+        "parser/pullRequestReviewComment/payload_xgithubevent_pullRequestReviewComment.json");
+    WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, body);
+
+    githubWHI.handle("1234", "githubWebHookIntegration", payload);
+
+    verify(reviewCorrelator, times(1)).hold(eq("1234"),
+        eq(GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT), eq(body),
+        any(GithubReviewCorrelator.Release.class));
+    verify(ingestionQueue, times(0)).submit(anyString(), anyString(), any(Runnable.class));
+    verifyZeroInteractions(factory);
+  }
+
   @Test
   public void testPushEventPayload() throws WebHookParseException, IOException {
     String body = readFile("parser/push/payload_xgithubevent_push.json");
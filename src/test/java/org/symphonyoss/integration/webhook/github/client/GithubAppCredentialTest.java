@@ -0,0 +1,217 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.symphonyoss.integration.json.JsonUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Unit tests for {@link GithubAppCredential}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GithubAppCredentialTest {
+
+  private static final String APP_ID = "1234";
+
+  private static final String API_URL = "https://api.github.com";
+
+  private static final String TOKEN_URL = API_URL + "/app/installations/5678/access_tokens";
+
+  private static final String TOKEN_RESPONSE = "{ \"token\": \"v1.abc\", \"expires_at\": \"%s\" }";
+
+  /**
+   * Length of the PKCS#8 prefix that wraps a 2048-bit PKCS#1 RSA private key.
+   */
+  private static final int PKCS8_PREFIX_LENGTH = 26;
+
+  private static KeyPair keyPair;
+
+  @Mock
+  private Client client;
+
+  @Mock
+  private WebTarget webTarget;
+
+  @Mock
+  private Invocation.Builder builder;
+
+  @Mock
+  private Response response;
+
+  private GithubAppCredential credential;
+
+  @Before
+  public void init() throws GeneralSecurityException {
+    if (keyPair == null) {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(2048);
+      keyPair = generator.generateKeyPair();
+    }
+
+    doReturn(webTarget).when(client).target(anyString());
+    doReturn(builder).when(webTarget).request();
+    doReturn(builder).when(builder).header(anyString(), any());
+    doReturn(builder).when(builder).accept(anyString(), anyString());
+    doReturn(response).when(builder).post(any(Entity.class));
+
+    credential =
+        new GithubAppCredential(APP_ID, keyPair.getPrivate(), API_URL, "5678", client);
+  }
+
+  @After
+  public void shutdown() {
+    credential.shutdown();
+  }
+
+  @Test
+  public void testCreateJwt() throws GeneralSecurityException, IOException {
+    long now = System.currentTimeMillis();
+    String[] parts = credential.createJwt(now).split("\\.");
+
+    assertEquals(3, parts.length);
+
+    Base64.Decoder decoder = Base64.getUrlDecoder();
+    JsonNode header = JsonUtils.readTree(new String(decoder.decode(parts[0]),
+        StandardCharsets.UTF_8));
+    JsonNode claims = JsonUtils.readTree(new String(decoder.decode(parts[1]),
+        StandardCharsets.UTF_8));
+
+    assertEquals("RS256", header.path("alg").asText());
+    assertEquals(APP_ID, claims.path("iss").asText());
+    assertTrue(claims.path("iat").asLong() <= TimeUnit.MILLISECONDS.toSeconds(now));
+    assertTrue(claims.path("exp").asLong() - claims.path("iat").asLong() <= 600);
+
+    Signature signature = Signature.getInstance("SHA256withRSA");
+    signature.initVerify(keyPair.getPublic());
+    signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.UTF_8));
+    assertTrue(signature.verify(decoder.decode(parts[2])));
+  }
+
+  @Test
+  public void testRefresh() {
+    mockTokenResponse(Response.Status.CREATED, Instant.now().plusSeconds(3600));
+
+    assertFalse(credential.isAvailable());
+    assertNull(credential.getAuthorization());
+
+    credential.refresh();
+
+    assertTrue(credential.isAvailable());
+    assertEquals("token v1.abc", credential.getAuthorization());
+    assertEquals("app-" + APP_ID, credential.getId());
+
+    verify(client).target(TOKEN_URL);
+    verify(builder).header(eq(HttpHeaders.AUTHORIZATION), startsWith("Bearer "));
+  }
+
+  @Test
+  public void testTokenAboutToExpire() {
+    mockTokenResponse(Response.Status.CREATED, Instant.now().plusSeconds(30));
+
+    credential.refresh();
+
+    assertFalse(credential.isAvailable());
+  }
+
+  @Test
+  public void testRefreshFailure() {
+    mockTokenResponse(Response.Status.UNAUTHORIZED, Instant.now().plusSeconds(3600));
+
+    credential.refresh();
+
+    assertFalse(credential.isAvailable());
+  }
+
+  @Test
+  public void testReadPkcs8PrivateKey() throws GeneralSecurityException {
+    byte[] pkcs8 = keyPair.getPrivate().getEncoded();
+    String pem = toPem("PRIVATE KEY", pkcs8);
+
+    PrivateKey privateKey = GithubAppCredential.readPrivateKey(pem);
+
+    assertEquals(keyPair.getPrivate(), privateKey);
+  }
+
+  @Test
+  public void testReadPkcs1PrivateKey() throws GeneralSecurityException {
+    byte[] pkcs8 = keyPair.getPrivate().getEncoded();
+    byte[] pkcs1 = Arrays.copyOfRange(pkcs8, PKCS8_PREFIX_LENGTH, pkcs8.length);
+    String pem = toPem("RSA PRIVATE KEY", pkcs1);
+
+    PrivateKey privateKey = GithubAppCredential.readPrivateKey(pem);
+
+    assertEquals(keyPair.getPrivate(), privateKey);
+  }
+
+  @Test(expected = GeneralSecurityException.class)
+  public void testReadInvalidPrivateKey() throws GeneralSecurityException {
+    GithubAppCredential.readPrivateKey(toPem("PRIVATE KEY", new byte[] { 0x30, 0x00 }));
+  }
+
+  private void mockTokenResponse(Response.Status status, Instant expiresAt) {
+    String body = String.format(TOKEN_RESPONSE, expiresAt);
+
+    doReturn(status.getStatusCode()).when(response).getStatus();
+    doReturn(status).when(response).getStatusInfo();
+    doReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).when(response)
+        .getEntity();
+  }
+
+  private String toPem(String type, byte[] der) {
+    return "-----BEGIN " + type + "-----\n"
+        + Base64.getMimeEncoder().encodeToString(der)
+        + "\n-----END " + type + "-----\n";
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GithubCircuitBreaker}
+ */
+public class GithubCircuitBreakerTest {
+
+  private static final long NOW = 1476792000000L;
+
+  private static final long OPEN_IN_MILLIS = 30000;
+
+  private static final long MAX_OPEN_IN_MILLIS = 100000;
+
+  private GithubCircuitBreaker circuitBreaker =
+      new GithubCircuitBreaker(3, OPEN_IN_MILLIS, MAX_OPEN_IN_MILLIS);
+
+  private void fail(int times) {
+    for (int i = 0; i < times; i++) {
+      assertTrue(circuitBreaker.tryAcquire(NOW));
+      circuitBreaker.onFailure(NOW);
+    }
+  }
+
+  @Test
+  public void testOpen() {
+    fail(2);
+    assertEquals(GithubCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+    fail(1);
+    assertEquals(GithubCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS - 1));
+  }
+
+  @Test
+  public void testReleaseTrial() {
+    fail(3);
+    assertTrue(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+    assertFalse(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+
+    // Trial call not sent: the next call is the trial
+    circuitBreaker.releaseTrial();
+    assertEquals(GithubCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    assertTrue(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+    assertFalse(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+
+    circuitBreaker.onSuccess();
+    assertEquals(GithubCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+    // Nothing to give back once closed
+    circuitBreaker.releaseTrial();
+    fail(3);
+    assertFalse(circuitBreaker.tryAcquire(NOW));
+  }
+
+  @Test
+  public void testSuccessResetsFailures() {
+    fail(2);
+    circuitBreaker.onSuccess();
+    fail(2);
+
+    assertEquals(GithubCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testTrialSucceeds() {
+    fail(3);
+
+    assertTrue(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+    assertEquals(GithubCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+    // A single trial call at a time
+    assertFalse(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+
+    circuitBreaker.onSuccess();
+    assertEquals(GithubCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testTrialFails() {
+    fail(3);
+
+    assertTrue(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS));
+    circuitBreaker.onFailure(NOW + OPEN_IN_MILLIS);
+
+    assertEquals(GithubCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire(NOW + OPEN_IN_MILLIS + 1));
+    assertTrue(circuitBreaker.tryAcquire(NOW + 3 * OPEN_IN_MILLIS));
+  }
+
+  @Test
+  public void testBackoff() {
+    fail(3);
+    long now = NOW;
+
+    for (long expected : new long[] {60000, 100000, 100000}) {
+      now += circuitBreaker.getOpenMillis();
+      assertTrue(circuitBreaker.tryAcquire(now));
+      circuitBreaker.onFailure(now);
+      assertEquals(expected, circuitBreaker.getOpenMillis());
+    }
+
+    now += circuitBreaker.getOpenMillis();
+    assertTrue(circuitBreaker.tryAcquire(now));
+    circuitBreaker.onSuccess();
+
+    assertEquals(OPEN_IN_MILLIS, circuitBreaker.getOpenMillis());
+  }
+
+  @Test
+  public void testForceOpen() {
+    circuitBreaker.open(NOW);
+
+    assertEquals(GithubCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire(NOW + 1));
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link GithubConnectionPool}
+ */
+public class GithubConnectionPoolTest {
+
+  private static final HttpRoute ROUTE =
+      new HttpRoute(new HttpHost("api.github.com", 443, "https"));
+
+  private GithubConnectionPool connectionPool = new GithubConnectionPool();
+
+  @After
+  public void tearDown() {
+    connectionPool.shutdown();
+  }
+
+  private HttpClientConnection lease() throws Exception {
+    return connectionPool.getConnectionManager().requestConnection(ROUTE, null)
+        .get(100, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void testLimits() {
+    connectionPool.setMaxConnections(10);
+    connectionPool.setMaxConnectionsPerRoute(5);
+
+    PoolingHttpClientConnectionManager connectionManager = connectionPool.getConnectionManager();
+
+    assertEquals(10, connectionManager.getMaxTotal());
+    assertEquals(5, connectionManager.getDefaultMaxPerRoute());
+  }
+
+  @Test
+  public void testAcquisitionMetrics() throws Exception {
+    HttpClientConnection connection = lease();
+    connectionPool.getConnectionManager().releaseConnection(connection, null, 1, TimeUnit.MINUTES);
+
+    assertEquals(1, connectionPool.getAcquisitions());
+    assertEquals(0, connectionPool.getStats().getLeased());
+    assertTrue(connectionPool.getMaxAcquisitionMicros()
+        >= connectionPool.getAverageAcquisitionMicros());
+  }
+
+  @Test(expected = ConnectionPoolTimeoutException.class)
+  public void testPoolExhausted() throws Exception {
+    connectionPool.setMaxConnectionsPerRoute(1);
+    lease();
+
+    try {
+      lease();
+    } finally {
+      assertEquals(2, connectionPool.getAcquisitions());
+      assertTrue(connectionPool.getMaxAcquisitionMicros() >= 100000);
+    }
+  }
+
+}
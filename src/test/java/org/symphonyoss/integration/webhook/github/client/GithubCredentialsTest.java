@@ -0,0 +1,58 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link GithubCredentials}
+ */
+public class GithubCredentialsTest {
+
+  private static final String API_URL = "https://api.github.com";
+
+  @Test
+  public void testAnonymous() {
+    GithubCredentials credentials =
+        new GithubCredentials(Collections.<GithubCredential>emptyList());
+
+    assertEquals(1, credentials.size());
+    assertSame(GithubTokenCredential.ANONYMOUS, credentials.next());
+    assertNull(credentials.next().getAuthorization());
+  }
+
+  @Test
+  public void testRoundRobin() {
+    GithubTokenCredential first = new GithubTokenCredential("token-0", "first", API_URL);
+    GithubTokenCredential second = new GithubTokenCredential("token-1", "second", API_URL);
+    GithubCredentials credentials = new GithubCredentials(Arrays.asList(first, second));
+
+    assertEquals(2, credentials.size());
+    assertSame(first, credentials.next());
+    assertSame(second, credentials.next());
+    assertSame(first, credentials.next());
+    assertEquals("token second", second.getAuthorization());
+  }
+
+}
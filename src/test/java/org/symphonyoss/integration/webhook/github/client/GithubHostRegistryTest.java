@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link GithubHostRegistry}
+ */
+public class GithubHostRegistryTest {
+
+  private static final String USER_URL = "https://api.github.com/users/baxterthehacker";
+
+  private static final String ENTERPRISE_URL = "http://github.example.com:8080/api/v3/users/test";
+
+  private final AtomicInteger probes = new AtomicInteger();
+
+  private volatile boolean reachable;
+
+  private GithubHostRegistry registry = new GithubHostRegistry() {
+    @Override
+    protected void probe(GithubHostHealth health) throws IOException {
+      probes.incrementAndGet();
+
+      if (!reachable) {
+        throw new UnknownHostException(health.getHost());
+      }
+    }
+  };
+
+  @Before
+  public void init() {
+    registry.track("https://api.github.com");
+  }
+
+  @After
+  public void tearDown() {
+    registry.shutdown();
+  }
+
+  @Test
+  public void testRegisterHosts() {
+    GithubHostHealth health = registry.getHost(USER_URL);
+
+    assertEquals("api.github.com", health.getHost());
+    assertEquals(443, health.getPort());
+    assertSame(health, registry.getHost("https://api.github.com/users/octocat"));
+
+    registry.track("http://github.example.com:8080/api/v3");
+
+    GithubHostHealth enterprise = registry.getHost(ENTERPRISE_URL);
+    assertEquals("github.example.com", enterprise.getHost());
+    assertEquals(8080, enterprise.getPort());
+    assertSame(enterprise, registry.getHost(ENTERPRISE_URL));
+
+    assertEquals(2, registry.getHosts().size());
+  }
+
+  @Test
+  public void testUntrackedHosts() throws InterruptedException {
+    GithubHostHealth health = registry.getHost(ENTERPRISE_URL);
+    health.onFailure(new UnknownHostException(), System.currentTimeMillis());
+
+    assertFalse(registry.isTracked(health));
+    assertTrue(registry.isTracked(registry.getHost(USER_URL)));
+
+    // Same host on another port
+    assertFalse(registry.isTracked(registry.getHost("https://api.github.com:8443/users")));
+
+    // Untracked hosts are neither kept nor probed
+    assertEquals(GithubCircuitBreaker.State.CLOSED, registry.getHost(ENTERPRISE_URL).getState());
+    assertEquals(1, registry.getHosts().size());
+
+    Thread.sleep(health.getBackoffMillis());
+    registry.probe();
+    assertEquals(0, probes.get());
+  }
+
+  @Test
+  public void testUnknownHost() {
+    GithubHostHealth health = registry.getHost(USER_URL);
+    long now = System.currentTimeMillis();
+
+    assertTrue(health.tryAcquire(now));
+    health.onFailure(new UnknownHostException(), now);
+
+    assertEquals(GithubCircuitBreaker.State.OPEN, health.getState());
+    assertFalse(health.tryAcquire(now));
+    assertEquals(1, health.getSkippedCalls());
+    assertEquals(1, health.getUnknownHostFailures());
+    assertEquals(1.0, health.getErrorRate(), 0.0);
+  }
+
+  @Test
+  public void testTimeouts() {
+    GithubHostHealth health = registry.getHost(USER_URL);
+    long now = System.currentTimeMillis();
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(health.tryAcquire(now));
+      health.onFailure(new SocketTimeoutException(), now);
+    }
+
+    assertEquals(5, health.getTimeouts());
+    assertEquals(GithubCircuitBreaker.State.OPEN, health.getState());
+  }
+
+  @Test
+  public void testProbe() throws InterruptedException {
+    GithubHostHealth health = registry.getHost(USER_URL);
+    health.onFailure(new UnknownHostException(), System.currentTimeMillis());
+
+    // Backoff not elapsed yet
+    registry.probe();
+    assertEquals(0, probes.get());
+
+    Thread.sleep(health.getBackoffMillis());
+    registry.probe();
+
+    assertEquals(1, probes.get());
+    assertEquals(GithubCircuitBreaker.State.OPEN, health.getState());
+    assertEquals(2000, health.getBackoffMillis());
+
+    reachable = true;
+    Thread.sleep(health.getBackoffMillis());
+    registry.probe();
+
+    // Reachable host: only a successful call closes the circuit
+    assertEquals(2, probes.get());
+    assertEquals(GithubCircuitBreaker.State.HALF_OPEN, health.getState());
+    assertEquals(2000, health.getBackoffMillis());
+
+    long now = System.currentTimeMillis();
+    assertTrue(health.tryAcquire(now));
+    assertFalse(health.tryAcquire(now));
+
+    health.onSuccess();
+    assertEquals(GithubCircuitBreaker.State.CLOSED, health.getState());
+    assertEquals(1000, health.getBackoffMillis());
+  }
+
+  @Test
+  public void testProbeDoesNotCloseFailingApi() throws InterruptedException {
+    GithubHostHealth health = registry.getHost(USER_URL);
+    reachable = true;
+
+    for (int i = 0; i < 5; i++) {
+      health.onServerError(System.currentTimeMillis());
+    }
+
+    assertEquals(GithubCircuitBreaker.State.OPEN, health.getState());
+
+    Thread.sleep(health.getBackoffMillis());
+    registry.probe();
+
+    assertEquals(GithubCircuitBreaker.State.HALF_OPEN, health.getState());
+
+    // The trial call still fails, so the backoff keeps growing
+    assertTrue(health.tryAcquire(System.currentTimeMillis()));
+    health.onServerError(System.currentTimeMillis());
+
+    assertEquals(GithubCircuitBreaker.State.OPEN, health.getState());
+    assertEquals(2000, health.getBackoffMillis());
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GithubRateLimit}
+ */
+public class GithubRateLimitTest {
+
+  private static final long NOW = 1476792000000L;
+
+  private static final String RESET = String.valueOf((NOW + 600000) / 1000);
+
+  private GithubRateLimit rateLimit = new GithubRateLimit();
+
+  @Test
+  public void testUnknownBudget() {
+    assertTrue(rateLimit.tryAcquire(NOW));
+    assertEquals(-1, rateLimit.getRemaining());
+  }
+
+  @Test
+  public void testLargeBudget() {
+    rateLimit.update("5000", "4000", RESET);
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(rateLimit.tryAcquire(NOW));
+    }
+  }
+
+  @Test
+  public void testExhaustedBudget() {
+    rateLimit.update("60", "0", RESET);
+
+    assertFalse(rateLimit.tryAcquire(NOW));
+    assertFalse(rateLimit.tryAcquire(NOW + 599999));
+
+    // Resumes at the reset time
+    assertTrue(rateLimit.tryAcquire(NOW + 600000));
+  }
+
+  @Test
+  public void testThrottledBudget() {
+    // 5 requests left for 10 minutes: one request every 2 minutes
+    rateLimit.update("60", "5", RESET);
+
+    assertTrue(rateLimit.tryAcquire(NOW));
+    assertFalse(rateLimit.tryAcquire(NOW + 1000));
+    assertFalse(rateLimit.tryAcquire(NOW + 119999));
+    assertTrue(rateLimit.tryAcquire(NOW + 120000));
+  }
+
+  @Test
+  public void testBudgetTakenOnAcquire() {
+    rateLimit.update("60", "10", RESET);
+
+    // Responses still pending: the budget is taken locally
+    for (int i = 0; i < 4; i++) {
+      assertTrue(rateLimit.tryAcquire(NOW));
+    }
+
+    assertEquals(6, rateLimit.getRemaining());
+
+    // Below the throttle threshold, requests are paced
+    assertTrue(rateLimit.tryAcquire(NOW));
+    assertFalse(rateLimit.tryAcquire(NOW));
+    assertEquals(5, rateLimit.getRemaining());
+
+    // Github reports the actual budget
+    rateLimit.update("60", "8", RESET);
+    assertEquals(8, rateLimit.getRemaining());
+  }
+
+  @Test
+  public void testInvalidHeaders() {
+    rateLimit.update("60", "0", RESET);
+    rateLimit.update("60", "invalid", RESET);
+    rateLimit.update(null, "10", RESET);
+
+    assertEquals(60, rateLimit.getLimit());
+    assertEquals(0, rateLimit.getRemaining());
+  }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link GithubDeliveryFilter}
+ */
+public class GithubDeliveryFilterTest {
+
+  private static final String DELIVERY_ID = "72d3162e-cc78-11e3-81ab-4c9367dc0958";
+
+  private static final long NOW = 1476792000000L;
+
+  private GithubDeliveryFilter filter = new GithubDeliveryFilter();
+
+  @Before
+  public void init() {
+    filter.setWindow(3);
+    filter.setCapacity(300);
+    filter.init();
+  }
+
+  @Test
+  public void testDuplicate() {
+    assertFalse(filter.isDuplicate(DELIVERY_ID, NOW));
+    assertTrue(filter.isDuplicate(DELIVERY_ID, NOW + 1000));
+    assertFalse(filter.isDuplicate(UUID.randomUUID().toString(), NOW + 1000));
+    assertEquals(1, filter.getDuplicates());
+  }
+
+  @Test
+  public void testMissingDeliveryId() {
+    assertFalse(filter.isDuplicate(null, NOW));
+    assertFalse(filter.isDuplicate(null, NOW));
+    assertFalse(filter.isDuplicate("", NOW));
+  }
+
+  @Test
+  public void testWindow() {
+    assertFalse(filter.isDuplicate(DELIVERY_ID, NOW));
+
+    // Remembered for the whole window, in older generations
+    assertTrue(filter.isDuplicate(DELIVERY_ID, NOW + TimeUnit.MINUTES.toMillis(3)));
+
+    // Forgotten once its generation is reused
+    assertFalse(filter.isDuplicate(DELIVERY_ID, NOW + TimeUnit.MINUTES.toMillis(5)));
+    assertTrue(filter.isDuplicate(DELIVERY_ID, NOW + TimeUnit.MINUTES.toMillis(5)));
+  }
+
+  @Test
+  public void testForget() {
+    assertFalse(filter.isDuplicate(DELIVERY_ID, NOW));
+
+    filter.forget(DELIVERY_ID);
+
+    assertFalse(filter.isDuplicate(DELIVERY_ID, NOW));
+    assertTrue(filter.isDuplicate(DELIVERY_ID, NOW));
+  }
+
+  @Test
+  public void testCapacity() {
+    String[] deliveries = new String[1000];
+
+    for (int i = 0; i < deliveries.length; i++) {
+      deliveries[i] = UUID.randomUUID().toString();
+      assertFalse(filter.isDuplicate(deliveries[i], NOW));
+    }
+
+    // Deliveries beyond the capacity are never taken for redeliveries
+    assertEquals(0, filter.getDuplicates());
+    assertTrue(filter.isDuplicate(deliveries[0], NOW));
+  }
+
+}
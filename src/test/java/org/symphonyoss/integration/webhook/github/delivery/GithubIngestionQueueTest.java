@@ -0,0 +1,361 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_DEPLOYMENT_STATUS;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_RELEASE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link GithubIngestionQueue}
+ */
+public class GithubIngestionQueueTest {
+
+  private static final String REPOSITORY = "baxterthehacker/public-repo";
+
+  private static final String OTHER_REPOSITORY = "symphonyoss/App-Integrations-Github";
+
+  private static final String PUSH_PAYLOAD = "{ \"ref\": \"refs/heads/main\", "
+      + "\"commits\": [ { \"repository\": \"x\" } ], \"repository\": { \"id\": 1, "
+      + "\"owner\": { \"full_name\": \"x\" }, \"full_name\": \"" + REPOSITORY + "\" } }";
+
+  private static final String PENDING_STATUS_PAYLOAD = "{ \"sha\": \"9049f126\", "
+      + "\"state\": \"pending\", \"repository\": { \"full_name\": \"" + REPOSITORY + "\" } }";
+
+  private static final String SUCCESS_STATUS_PAYLOAD = "{ \"sha\": \"9049f126\", "
+      + "\"state\": \"success\", \"repository\": { \"full_name\": \"" + REPOSITORY + "\" } }";
+
+  private static final String RELEASE_PAYLOAD = "{ \"action\": \"published\", "
+      + "\"repository\": { \"full_name\": \"" + REPOSITORY + "\" } }";
+
+  private GithubIngestionQueue queue = new GithubIngestionQueue();
+
+  private CountDownLatch blocked = new CountDownLatch(1);
+
+  private List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+
+  @Before
+  public void init() {
+    queue.setEnabled(true);
+    queue.setWorkers(1);
+    queue.setQueueSize(2);
+    queue.setRetryAfter(15);
+    queue.init();
+  }
+
+  @After
+  public void cleanUp() {
+    blocked.countDown();
+    queue.shutdown();
+  }
+
+  @Test
+  public void testDisabled() {
+    GithubIngestionQueue disabledQueue = new GithubIngestionQueue();
+    disabledQueue.init();
+
+    assertFalse(disabledQueue.isEnabled());
+    assertEquals(0, disabledQueue.getQueueDepth());
+  }
+
+  @Test
+  public void testQueueFull() throws InterruptedException {
+    assertTrue(queue.isEnabled());
+
+    blockLane(queue);
+    queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    assertEquals(2, queue.getQueueDepth());
+    assertArrayEquals(new int[] {2}, queue.getLaneDepths());
+
+    try {
+      queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+      fail();
+    } catch (GithubIngestionRejectedException e) {
+      assertEquals(15, e.getRetryAfterSeconds());
+    }
+
+    assertEquals(1, queue.getRejectedPayloads());
+  }
+
+  @Test
+  public void testDrainOnShutdown() throws InterruptedException {
+    blockLane(queue);
+    queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+
+    blocked.countDown();
+    queue.shutdown();
+
+    assertEquals(3, processed.size());
+
+    try {
+      queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+      fail();
+    } catch (GithubIngestionRejectedException e) {
+      assertEquals(1, queue.getRejectedPayloads());
+    }
+  }
+
+  @Test
+  public void testRepositoryOrder() throws InterruptedException {
+    GithubIngestionQueue lanesQueue = new GithubIngestionQueue();
+    lanesQueue.setEnabled(true);
+    lanesQueue.setWorkers(4);
+    lanesQueue.init();
+
+    final List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+    String otherPayload = PUSH_PAYLOAD.replace(REPOSITORY, OTHER_REPOSITORY);
+
+    for (int i = 0; i < 100; i++) {
+      final int event = i;
+      lanesQueue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, new Runnable() {
+        @Override
+        public void run() {
+          events.add(event);
+        }
+      });
+      lanesQueue.submit(GITHUB_EVENT_PUSH, otherPayload, task("other"));
+    }
+
+    lanesQueue.shutdown();
+
+    assertEquals(100, events.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Integer.valueOf(i), events.get(i));
+    }
+    assertEquals(100, processed.size());
+  }
+
+  @Test
+  public void testLaneOf() {
+    GithubIngestionQueue lanesQueue = new GithubIngestionQueue();
+    lanesQueue.setEnabled(true);
+    lanesQueue.setWorkers(8);
+    lanesQueue.init();
+
+    try {
+      assertEquals(lanesQueue.laneOf(REPOSITORY), lanesQueue.laneOf(REPOSITORY));
+      assertEquals(8, lanesQueue.getLaneDepths().length);
+
+      // Payloads without repository are spread across the lanes
+      assertFalse(lanesQueue.laneOf(null) == lanesQueue.laneOf(null));
+    } finally {
+      lanesQueue.shutdown();
+    }
+  }
+
+  @Test
+  public void testPriorityOf() {
+    assertEquals(GithubEventPriority.HIGH, queue.priorityOf(GITHUB_EVENT_RELEASE, "published"));
+    assertEquals(GithubEventPriority.HIGH, queue.priorityOf(GITHUB_EVENT_DEPLOYMENT_STATUS, null));
+    assertEquals(GithubEventPriority.LOW, queue.priorityOf(GITHUB_EVENT_STATUS, "pending"));
+    assertEquals(GithubEventPriority.NORMAL, queue.priorityOf(GITHUB_EVENT_STATUS, "success"));
+    assertEquals(GithubEventPriority.NORMAL, queue.priorityOf(GITHUB_EVENT_PUSH, null));
+    assertEquals(GithubEventPriority.NORMAL, queue.priorityOf(null, null));
+
+    queue.setPriorities("push=low, status=high, status/pending=normal, invalid, issues=urgent");
+
+    assertEquals(GithubEventPriority.LOW, queue.priorityOf(GITHUB_EVENT_PUSH, null));
+    assertEquals(GithubEventPriority.NORMAL, queue.priorityOf(GITHUB_EVENT_STATUS, "pending"));
+    assertEquals(GithubEventPriority.HIGH, queue.priorityOf(GITHUB_EVENT_STATUS, "failure"));
+    assertEquals(GithubEventPriority.NORMAL, queue.priorityOf(GITHUB_EVENT_RELEASE, null));
+    assertEquals(GithubEventPriority.NORMAL, queue.priorityOf("issues", null));
+  }
+
+  @Test
+  public void testWeightedLanes() throws InterruptedException {
+    GithubIngestionQueue weightedQueue = new GithubIngestionQueue();
+    weightedQueue.setEnabled(true);
+    weightedQueue.setWorkers(1);
+    weightedQueue.init();
+
+    blockLane(weightedQueue);
+
+    for (int i = 0; i < 10; i++) {
+      weightedQueue.submit(GITHUB_EVENT_STATUS, SUCCESS_STATUS_PAYLOAD, task("status"));
+    }
+    weightedQueue.submit(GITHUB_EVENT_RELEASE, RELEASE_PAYLOAD.replace(REPOSITORY,
+        OTHER_REPOSITORY), task("release"));
+
+    blocked.countDown();
+    weightedQueue.shutdown();
+
+    // The release of the other repository is served before the status burst
+    assertEquals(12, processed.size());
+    assertEquals("release", processed.get(1));
+  }
+
+  @Test
+  public void testPriorityKeepsRepositoryOrder() throws InterruptedException {
+    GithubIngestionQueue weightedQueue = new GithubIngestionQueue();
+    weightedQueue.setEnabled(true);
+    weightedQueue.setWorkers(1);
+    weightedQueue.init();
+
+    blockLane(weightedQueue);
+
+    weightedQueue.submit(GITHUB_EVENT_STATUS, PENDING_STATUS_PAYLOAD, task("pending"));
+    weightedQueue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    weightedQueue.submit(GITHUB_EVENT_STATUS, SUCCESS_STATUS_PAYLOAD, task("success"));
+    weightedQueue.submit(GITHUB_EVENT_RELEASE, RELEASE_PAYLOAD, task("release"));
+
+    blocked.countDown();
+    weightedQueue.shutdown();
+
+    // Events of the same repository are served in arrival order, whatever their class
+    assertEquals(Arrays.asList("blocking", "pending", "push", "success", "release"), processed);
+  }
+
+  @Test
+  public void testShedByDepth() throws InterruptedException {
+    GithubIngestionQueue sheddingQueue = new GithubIngestionQueue();
+    sheddingQueue.setEnabled(true);
+    sheddingQueue.setWorkers(1);
+    sheddingQueue.setShedDepth(2);
+    sheddingQueue.init();
+
+    blockLane(sheddingQueue);
+
+    sheddingQueue.submit(GITHUB_EVENT_STATUS, PENDING_STATUS_PAYLOAD, task("pending"));
+    sheddingQueue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    sheddingQueue.submit(GITHUB_EVENT_STATUS, PENDING_STATUS_PAYLOAD, task("pending"));
+    sheddingQueue.submit(GITHUB_EVENT_STATUS, SUCCESS_STATUS_PAYLOAD, task("success"));
+
+    assertEquals(3, sheddingQueue.getQueueDepth());
+    assertEquals(Long.valueOf(1), sheddingQueue.getShedEvents().get(GITHUB_EVENT_STATUS));
+
+    blocked.countDown();
+    sheddingQueue.shutdown();
+
+    assertEquals(4, processed.size());
+    assertEquals(1, Collections.frequency(processed, "pending"));
+  }
+
+  @Test
+  public void testShedByLatency() throws InterruptedException {
+    GithubIngestionQueue sheddingQueue = new GithubIngestionQueue();
+    sheddingQueue.setEnabled(true);
+    sheddingQueue.setWorkers(1);
+    sheddingQueue.setShedLatency(50);
+    sheddingQueue.init();
+
+    blockLane(sheddingQueue);
+
+    sheddingQueue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    Thread.sleep(100);
+    sheddingQueue.submit(GITHUB_EVENT_STATUS, PENDING_STATUS_PAYLOAD, task("pending"));
+
+    assertEquals(1, sheddingQueue.getQueueDepth());
+    assertEquals(Long.valueOf(1), sheddingQueue.getShedEvents().get(GITHUB_EVENT_STATUS));
+
+    blocked.countDown();
+    sheddingQueue.shutdown();
+  }
+
+  @Test
+  public void testShedToMakeRoom() throws InterruptedException {
+    blockLane(queue);
+
+    queue.submit(GITHUB_EVENT_STATUS, PENDING_STATUS_PAYLOAD, task("pending"));
+    queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, task("push"));
+    queue.submit(GITHUB_EVENT_RELEASE, RELEASE_PAYLOAD, task("release"));
+
+    assertEquals(2, queue.getQueueDepth());
+    assertEquals(Long.valueOf(1), queue.getShedEvents().get(GITHUB_EVENT_STATUS));
+    assertEquals(0, queue.getRejectedPayloads());
+
+    blocked.countDown();
+    queue.shutdown();
+
+    assertFalse(processed.contains("pending"));
+    assertEquals(Arrays.asList("blocking", "push", "release"), processed);
+  }
+
+  @Test
+  public void testReadEnvelope() {
+    GithubIngestionQueue.Envelope envelope = GithubIngestionQueue.readEnvelope(PUSH_PAYLOAD, false);
+    assertEquals(REPOSITORY, envelope.getRepository());
+    assertNull(envelope.getQualifier());
+
+    envelope = GithubIngestionQueue.readEnvelope(PENDING_STATUS_PAYLOAD, true);
+    assertEquals(REPOSITORY, envelope.getRepository());
+    assertEquals("pending", envelope.getQualifier());
+
+    envelope = GithubIngestionQueue.readEnvelope(RELEASE_PAYLOAD, true);
+    assertEquals("published", envelope.getQualifier());
+
+    String organizationPayload = "{ \"organization\": { \"login\": \"x\" } }";
+    assertNull(GithubIngestionQueue.readEnvelope(organizationPayload, true).getRepository());
+
+    assertNull(GithubIngestionQueue.readEnvelope("[]", true).getRepository());
+    assertNull(GithubIngestionQueue.readEnvelope("{ \"repository\": ", true).getRepository());
+  }
+
+  /**
+   * Blocks the first lane of the queue until the test releases it.
+   */
+  private void blockLane(GithubIngestionQueue queue) throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+
+    queue.submit(GITHUB_EVENT_PUSH, PUSH_PAYLOAD, new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+
+        try {
+          blocked.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+
+        processed.add("blocking");
+      }
+    });
+
+    started.await(5, TimeUnit.SECONDS);
+  }
+
+  private Runnable task(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        processed.add(name);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link GithubReviewCorrelator}
+ */
+public class GithubReviewCorrelatorTest {
+
+  private static final String INSTANCE_ID = "5810d144e4b0f884b709cc90";
+
+  private static final String REVIEW_PAYLOAD = "{ \"action\": \"%s\", \"review\": { "
+      + "\"id\": %d, \"state\": \"%s\", \"body\": null }, "
+      + "\"pull_request\": { \"title\": \"Update the README\" } }";
+
+  private static final String COMMENT_PAYLOAD = "{ \"action\": \"created\", \"comment\": { "
+      + "\"id\": %d, \"pull_request_review_id\": %d, \"path\": \"README.md\", "
+      + "\"body\": \"%s\", \"html_url\": \"https://github.com/baxterthehacker/public-repo/pull/1\""
+      + ", \"diff_hunk\": \"@@ -1 +1 @@\" }, \"pull_request\": { \"title\": \"Update\" } }";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private GithubReviewCorrelator correlator = new GithubReviewCorrelator();
+
+  private List<String> released = new ArrayList<>();
+
+  private long commentId = 29724692;
+
+  @Before
+  public void init() {
+    correlator.setWindow(60);
+    correlator.setMaxComments(2);
+    correlator.setCommentLength(10);
+    correlator.init();
+  }
+
+  @After
+  public void cleanUp() {
+    correlator.shutdown();
+  }
+
+  @Test
+  public void testDisabled() {
+    GithubReviewCorrelator disabledCorrelator = new GithubReviewCorrelator();
+    disabledCorrelator.init();
+
+    assertFalse(disabledCorrelator.isEnabled());
+    assertFalse(disabledCorrelator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 1), release()));
+  }
+
+  @Test
+  public void testIgnoredEvents() {
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PUSH, review("submitted", 1),
+        release()));
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("dismissed", 1), release()));
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        "{ \"action\": \"created\", \"comment\": { \"id\": 29724692 } }", release()));
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW, "Hello, World!",
+        release()));
+
+    assertEquals(0, correlator.getHeldPayloads());
+  }
+
+  @Test
+  public void testFoldComments() throws IOException {
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Use more emoji"), release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 1), release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Typo"), release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Line breaks"), release()));
+
+    assertEquals(1, correlator.getHeldPayloads());
+
+    correlator.shutdown();
+
+    assertEquals(1, released.size());
+    assertEquals(3, correlator.getFoldedComments());
+
+    JsonNode review = MAPPER.readTree(released.get(0));
+    assertEquals(1, review.path("review").path("id").asLong());
+    assertEquals(3, review.path("comments_total").asInt());
+    assertEquals(2, review.path("comments").size());
+    assertEquals("Use mor...", review.path("comments").get(0).path("body").asText());
+    assertEquals("README.md", review.path("comments").get(0).path("path").asText());
+    assertEquals("Typo", review.path("comments").get(1).path("body").asText());
+    assertFalse(review.path("comments").get(1).has("diff_hunk"));
+  }
+
+  @Test
+  public void testDuplicateComment() throws IOException {
+    String typo = comment(1, 1, "Typo");
+
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, typo,
+        release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, typo,
+        release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 1), release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, typo,
+        release()));
+
+    assertEquals(1, correlator.getHeldPayloads());
+
+    correlator.shutdown();
+
+    assertEquals(1, released.size());
+    assertEquals(1, correlator.getFoldedComments());
+
+    JsonNode review = MAPPER.readTree(released.get(0));
+    assertEquals(1, review.path("comments_total").asInt());
+    assertEquals(1, review.path("comments").size());
+  }
+
+  @Test
+  public void testReviewWithoutComments() {
+    String body = review("submitted", 1);
+
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW, body, release()));
+
+    correlator.shutdown();
+
+    assertEquals(1, released.size());
+    assertEquals(body, released.get(0));
+  }
+
+  @Test
+  public void testReviewNotReceived() {
+    String typo = comment(1, "Typo");
+    String emoji = comment(1, "Use more emoji");
+
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, typo,
+        release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, emoji,
+        release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 2), release()));
+
+    assertEquals(3, correlator.getHeldPayloads());
+
+    correlator.shutdown();
+
+    assertEquals(3, released.size());
+    assertTrue(released.contains(typo));
+    assertTrue(released.contains(emoji));
+    assertEquals(0, correlator.getFoldedComments());
+  }
+
+  @Test
+  public void testImplicitReview() {
+    String typo = comment(1, "Typo");
+    String emoji = comment(1, "Use more emoji");
+
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, typo,
+        release()));
+
+    // A commented review without body releases its held comment and isn't held
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 1, "commented"), release()));
+    assertEquals(1, released.size());
+    assertEquals(typo, released.get(0));
+    assertEquals(0, correlator.getHeldPayloads());
+
+    // Its later comments aren't held either
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT, emoji,
+        release()));
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 2, "commented"), release()));
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(2, "Line breaks"), release()));
+
+    correlator.shutdown();
+
+    assertEquals(1, released.size());
+    assertEquals(0, correlator.getFoldedComments());
+  }
+
+  @Test
+  public void testCapacity() {
+    correlator.setCapacity(2);
+
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Typo"), release()));
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Use more emoji"), release()));
+    assertFalse(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Line breaks"), release()));
+
+    // The review replaces its held comments
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW,
+        review("submitted", 1), release()));
+    assertEquals(1, correlator.getHeldPayloads());
+
+    assertTrue(correlator.hold(INSTANCE_ID, GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        comment(1, "Line breaks"), release()));
+    assertEquals(1, correlator.getHeldPayloads());
+  }
+
+  private String review(String action, long reviewId) {
+    return review(action, reviewId, "approved");
+  }
+
+  private String review(String action, long reviewId, String state) {
+    return String.format(REVIEW_PAYLOAD, action, reviewId, state);
+  }
+
+  private String comment(long reviewId, String body) {
+    return comment(commentId++, reviewId, body);
+  }
+
+  private String comment(long id, long reviewId, String body) {
+    return String.format(COMMENT_PAYLOAD, id, reviewId, body);
+  }
+
+  private GithubReviewCorrelator.Release release() {
+    return new GithubReviewCorrelator.Release() {
+      @Override
+      public void run(String body) {
+        released.add(body);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Unit tests for {@link GithubSignatureVerifier}
+ */
+public class GithubSignatureVerifierTest {
+
+  private static final String SECRET = "It's a Secret to Everybody";
+
+  private static final String BODY = "Hello, World!";
+
+  private static final String SIGNATURE =
+      "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17";
+
+  private GithubSignatureVerifier verifier = new GithubSignatureVerifier();
+
+  @Before
+  public void init() {
+    verifier.setSecret(SECRET);
+  }
+
+  @Test
+  public void testDisabled() {
+    verifier.setSecret("");
+
+    assertTrue(verifier.isValid(null, BODY));
+    assertTrue(verifier.isValid("sha256=invalid", BODY));
+  }
+
+  @Test
+  public void testValidSignature() {
+    assertTrue(verifier.isValid(SIGNATURE, BODY));
+
+    // Pooled MACs are reset between payloads
+    assertTrue(verifier.isValid(SIGNATURE, BODY));
+    assertTrue(verifier.isValid(SIGNATURE.toUpperCase().replace("SHA256=", "sha256="), BODY));
+    assertEquals(0, verifier.getRejectedPayloads());
+  }
+
+  @Test
+  public void testInvalidSignature() {
+    assertFalse(verifier.isValid(SIGNATURE, BODY + " "));
+    assertFalse(verifier.isValid(SIGNATURE.replace("757107", "757108"), BODY));
+    assertEquals(2, verifier.getRejectedPayloads());
+  }
+
+  @Test
+  public void testMissingOrMalformedSignature() {
+    assertFalse(verifier.isValid(null, BODY));
+    assertFalse(verifier.isValid("", BODY));
+    assertFalse(verifier.isValid(SIGNATURE.replace("sha256=", "sha1="), BODY));
+    assertFalse(verifier.isValid(SIGNATURE.substring(0, SIGNATURE.length() - 2), BODY));
+    assertFalse(verifier.isValid(SIGNATURE.replace("757107", "75710z"), BODY));
+    assertFalse(verifier.isValid(SIGNATURE, null));
+    assertEquals(6, verifier.getRejectedPayloads());
+  }
+
+  @Test
+  public void testLargePayload() throws GeneralSecurityException {
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      body.append("{ \"name\": \"Ação é中😀\" }");
+    }
+
+    String signature = sign(body.toString());
+
+    assertTrue(verifier.isValid(signature, body.toString()));
+    assertFalse(verifier.isValid(signature, body.substring(1)));
+  }
+
+  @Test
+  public void testMalformedPayload() throws GeneralSecurityException {
+    String body = BODY + "\uD800";
+
+    assertFalse(verifier.isValid(sign(body), body));
+    assertEquals(1, verifier.getRejectedPayloads());
+
+    // Pooled encoder is reset after the failure
+    assertTrue(verifier.isValid(SIGNATURE, BODY));
+  }
+
+  @Test
+  public void testInstanceSecret() throws GeneralSecurityException {
+    verifier.setInstanceSecrets(
+        "5810d144e4b0f884b709cc90:Instance secret, 5810d144e4b0f884b709cc91:");
+
+    String signature = sign("Instance secret", BODY);
+
+    assertTrue(verifier.isValid("5810d144e4b0f884b709cc90", signature, BODY));
+    assertFalse(verifier.isValid("5810d144e4b0f884b709cc90", SIGNATURE, BODY));
+
+    // Instances without their own secret use the webhook secret
+    assertTrue(verifier.isValid("5810d144e4b0f884b709cc91", SIGNATURE, BODY));
+    assertFalse(verifier.isValid("5810d144e4b0f884b709cc91", signature, BODY));
+    assertTrue(verifier.isValid(SIGNATURE, BODY));
+
+    verifier.setSecret("");
+
+    assertTrue(verifier.isValid("5810d144e4b0f884b709cc91", signature, BODY));
+    assertFalse(verifier.isValid("5810d144e4b0f884b709cc90", SIGNATURE, BODY));
+  }
+
+  private String sign(String body) throws GeneralSecurityException {
+    return sign(SECRET, body);
+  }
+
+  private String sign(String secret, String body) throws GeneralSecurityException {
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+
+    StringBuilder signature = new StringBuilder("sha256=");
+    for (byte b : mac.doFinal(body.getBytes(StandardCharsets.UTF_8))) {
+      signature.append(String.format("%02x", b));
+    }
+
+    return signature.toString();
+  }
+
+}
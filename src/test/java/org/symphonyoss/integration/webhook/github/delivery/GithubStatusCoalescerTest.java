@@ -0,0 +1,221 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.delivery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for {@link GithubStatusCoalescer}
+ */
+public class GithubStatusCoalescerTest {
+
+  private static final String INSTANCE_ID = "5810d144e4b0f884b709cc90";
+
+  private static final String STATUS_PAYLOAD = "{ \"id\": 214015194, \"sha\": \"9049f126\", "
+      + "\"name\": \"baxterthehacker/public-repo\", \"target_url\": null, "
+      + "\"context\": \"%s\", \"state\": \"%s\", \"branches\": [ { \"name\": \"main\" } ], "
+      + "\"repository\": { \"id\": 35129377, \"full_name\": \"baxterthehacker/public-repo\", "
+      + "\"owner\": { \"login\": \"baxterthehacker\" } } }";
+
+  private GithubStatusCoalescer coalescer = new GithubStatusCoalescer();
+
+  private List<String> released = new ArrayList<>();
+
+  @Before
+  public void init() {
+    coalescer.setWindow(3);
+    coalescer.createWheel();
+  }
+
+  @After
+  public void cleanUp() {
+    coalescer.shutdown();
+  }
+
+  @Test
+  public void testDisabled() {
+    GithubStatusCoalescer disabledCoalescer = new GithubStatusCoalescer();
+    disabledCoalescer.init();
+
+    assertFalse(disabledCoalescer.isEnabled());
+    assertFalse(disabledCoalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build")));
+  }
+
+  @Test
+  public void testReplacePending() {
+    assertTrue(coalescer.isEnabled());
+    assertTrue(coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build-1")));
+    assertTrue(coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build-2")));
+    assertTrue(coalescer.hold(INSTANCE_ID, status("ci/test", "pending"), task("test")));
+
+    assertEquals(2, coalescer.getHeldStatuses());
+    assertEquals(1, coalescer.getCoalescedStatuses());
+  }
+
+  @Test
+  public void testTerminalStatus() {
+    coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build"));
+
+    assertFalse(coalescer.hold(INSTANCE_ID, status("ci/build", "success"), task("success")));
+    assertFalse(coalescer.hold(INSTANCE_ID, status("ci/test", "failure"), task("failure")));
+
+    assertEquals(0, coalescer.getHeldStatuses());
+    assertEquals(1, coalescer.getCoalescedStatuses());
+
+    for (int i = 0; i < 4; i++) {
+      release(coalescer.advance());
+    }
+
+    assertTrue(released.isEmpty());
+  }
+
+  @Test
+  public void testExpiry() {
+    coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build-1"));
+    release(coalescer.advance());
+    coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build-2"));
+    coalescer.hold(INSTANCE_ID, status("ci/test", "pending"), task("test"));
+
+    release(coalescer.advance());
+    assertTrue(released.isEmpty());
+
+    // The replaced status keeps the deadline of the first one
+    release(coalescer.advance());
+    assertEquals(1, released.size());
+    assertEquals("build-2", released.get(0));
+
+    release(coalescer.advance());
+    assertEquals(2, released.size());
+    assertEquals("test", released.get(1));
+    assertEquals(0, coalescer.getHeldStatuses());
+  }
+
+  @Test
+  public void testInstancesNotCoalesced() {
+    coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build-1"));
+    coalescer.hold("other", status("ci/build", "pending"), task("build-2"));
+
+    assertEquals(2, coalescer.getHeldStatuses());
+    assertEquals(0, coalescer.getCoalescedStatuses());
+  }
+
+  @Test
+  public void testCapacity() {
+    coalescer.setCapacity(1);
+
+    assertTrue(coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build")));
+    assertFalse(coalescer.hold(INSTANCE_ID, status("ci/test", "pending"), task("test")));
+    assertTrue(coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build")));
+
+    assertEquals(1, coalescer.getHeldStatuses());
+  }
+
+  @Test
+  public void testShutdownReleasesHeldStatuses() {
+    coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build"));
+    coalescer.hold(INSTANCE_ID, status("ci/test", "pending"), task("test"));
+
+    coalescer.shutdown();
+
+    assertEquals(2, released.size());
+    assertFalse(coalescer.isEnabled());
+    assertFalse(coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), task("build")));
+  }
+
+  @Test
+  public void testDroppedStatuses() {
+    coalescer.hold(INSTANCE_ID, status("ci/build", "pending"), new Runnable() {
+      @Override
+      public void run() {
+        throw new GithubIngestionRejectedException("GitHub ingestion queue is full", 1);
+      }
+    });
+    coalescer.hold(INSTANCE_ID, status("ci/test", "pending"), task("test"));
+
+    coalescer.shutdown();
+
+    assertEquals(1, coalescer.getDroppedStatuses());
+    assertEquals(1, released.size());
+    assertEquals("test", released.get(0));
+  }
+
+  @Test
+  public void testReleasedOffTicker() throws InterruptedException {
+    GithubStatusCoalescer tickingCoalescer = new GithubStatusCoalescer();
+    tickingCoalescer.setWindow(1);
+    tickingCoalescer.init();
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<String> releaseThread = new AtomicReference<>();
+
+    try {
+      tickingCoalescer.hold(INSTANCE_ID, status("ci/build", "pending"), new Runnable() {
+        @Override
+        public void run() {
+          releaseThread.set(Thread.currentThread().getName());
+          latch.countDown();
+        }
+      });
+
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertTrue(releaseThread.get().startsWith("github-status-release"));
+    } finally {
+      tickingCoalescer.shutdown();
+    }
+  }
+
+  @Test
+  public void testIncompleteStatus() {
+    assertFalse(coalescer.hold(INSTANCE_ID, "{ \"state\": \"pending\" }", task("build")));
+    assertFalse(coalescer.hold(INSTANCE_ID, "", task("build")));
+    assertNull(GithubStatusCoalescer.readStatus("{ \"sha\": \"9049f126\", \"state\": "));
+    assertEquals(0, coalescer.getHeldStatuses());
+  }
+
+  private String status(String context, String state) {
+    return String.format(STATUS_PAYLOAD, context, state);
+  }
+
+  private void release(List<Runnable> statuses) {
+    for (Runnable status : statuses) {
+      status.run();
+    }
+  }
+
+  private Runnable task(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        released.add(name);
+      }
+    };
+  }
+
+}
@@ -49,6 +49,12 @@ public abstract class GithubParserTest<T extends GithubMetadataParser> {
   private static final String INTEGRATION_NAME = "github";
   private static final String MOCK_INTEGRATION_USER = "mockUser";
 
+  /**
+   * The Github user API is mocked, so the tests wait long enough to never fall back to the login
+   * unless they change this timeout.
+   */
+  private static final long USER_INFO_TIMEOUT_IN_MILLIS = 5000;
+
 
   @Mock
   protected GithubParserUtils utils;
@@ -59,13 +65,14 @@ public abstract class GithubParserTest<T extends GithubMetadataParser> {
   @Mock
   protected IntegrationProperties integrationProperties;
 
-  private GithubMetadataParser parser;
+  protected GithubMetadataParser parser;
 
   @Before
   public void init() throws IOException {
     parser = getParser();
     parser.init();
     parser.setIntegrationUser(MOCK_INTEGRATION_USER);
+    parser.setUserInfoTimeout(USER_INFO_TIMEOUT_IN_MILLIS);
 
     try {
       doReturn(null).when(utils).doGetJsonApi(anyString());
@@ -92,6 +99,19 @@ public abstract class GithubParserTest<T extends GithubMetadataParser> {
   protected void testParser(Map<String, String> headerMap, String payloadFile, String expectedFile)
       throws IOException {
     JsonNode node = SimpleFileUtils.readJsonFromFile(payloadFile);
+    assertParser(headerMap, node, expectedFile);
+  }
+
+  protected void testFilteredParser(String payloadFile, String expectedFile) throws IOException {
+    GithubPayloadFilter filter = parser.getPayloadFilter();
+    assertNotNull(filter);
+
+    JsonNode node = filter.read(SimpleFileUtils.readFile(payloadFile));
+    assertParser(Collections.<String, String>emptyMap(), node, expectedFile);
+  }
+
+  private void assertParser(Map<String, String> headerMap, JsonNode node, String expectedFile)
+      throws IOException {
     Message result = parser.parse(headerMap, Collections.<String, String>emptyMap(), node);
 
     assertNotNull(result);
@@ -2,10 +2,17 @@ package org.symphonyoss.integration.webhook.github.parser;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.lang3.StringUtils;
@@ -17,17 +24,25 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.symphonyoss.integration.json.JsonUtils;
+import org.symphonyoss.integration.webhook.github.client.GithubCircuitBreaker;
+import org.symphonyoss.integration.webhook.github.client.GithubHostHealth;
+import org.symphonyoss.integration.webhook.github.client.GithubRateLimit;
+import org.symphonyoss.integration.webhook.github.client.GithubTokenCredential;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -36,6 +51,14 @@ public class GithubParserUtilsTest {
 
   private static final String TEST_STRING = "{ \"test\": \"success\" }";
   private static final String MALFORMATED_URI = "hsop##://9922";
+  private static final String USER_URL = "https://api.github.com/users/baxterthehacker";
+  private static final String ETAG = "\"644b5b0155e6404a9cc4bd9d8b1ae730\"";
+  private static final String LAST_MODIFIED = "Tue, 18 Oct 2016 12:00:00 GMT";
+  private static final String GRAPHQL_URL = "http://localhost:8080/graphql";
+  private static final String GRAPHQL_RESPONSE = "{ \"data\": { "
+      + "\"u0\": { \"login\": \"baxterthehacker\", \"name\": \"Baxter\" }, "
+      + "\"u1\": { \"login\": \"octocat\", \"name\": null }, "
+      + "\"u2\": null } }";
 
   private InputStream inputStream;
 
@@ -110,4 +133,207 @@ public class GithubParserUtilsTest {
     doReturn(null).when(response).getEntity();
     githubParserUtils.doGetJsonApi(StringUtils.EMPTY);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetUserPublicNames() throws IOException {
+    InputStream graphqlStream =
+        new ByteArrayInputStream(GRAPHQL_RESPONSE.getBytes(Charset.defaultCharset()));
+    doReturn(graphqlStream).when(response).getEntity();
+    doReturn(response).when(builder).post(any(Entity.class));
+
+    githubParserUtils.setGraphqlUrl(GRAPHQL_URL);
+    assertTrue(githubParserUtils.isGraphqlEnabled());
+
+    Map<String, String> names = githubParserUtils.doGetUserPublicNames(
+        Arrays.asList("baxterthehacker", "octocat", "ghost"));
+
+    assertEquals(2, names.size());
+    assertEquals("Baxter", names.get("baxterthehacker"));
+    assertEquals(StringUtils.EMPTY, names.get("octocat"));
+  }
+
+  @Test
+  public void testGetUserPublicNamesInvalidLogin() throws IOException {
+    githubParserUtils.setGraphqlUrl(GRAPHQL_URL);
+
+    Map<String, String> names =
+        githubParserUtils.doGetUserPublicNames(Arrays.asList("dependabot[bot]"));
+
+    assertTrue(names.isEmpty());
+    verify(builder, never()).post(any(Entity.class));
+  }
+
+  @Test
+  public void testConditionalRequest() throws IOException {
+    doReturn(ETAG).when(response).getHeaderString(HttpHeaders.ETAG);
+    doReturn(LAST_MODIFIED).when(response).getHeaderString(HttpHeaders.LAST_MODIFIED);
+    doReturn(builder).when(builder).header(anyString(), any());
+
+    JsonNode jsonNode = githubParserUtils.doGetJsonApi(USER_URL);
+    verify(builder, never()).header(anyString(), any());
+
+    doReturn(Response.Status.NOT_MODIFIED.getStatusCode()).when(response).getStatus();
+
+    assertSame(jsonNode, githubParserUtils.doGetJsonApi(USER_URL));
+    verify(builder, times(1)).header(HttpHeaders.IF_NONE_MATCH, ETAG);
+    verify(builder, times(1)).header(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED);
+  }
+
+  @Test
+  public void testNotModifiedWithoutCachedResponse() throws IOException {
+    doReturn(Response.Status.NOT_MODIFIED.getStatusCode()).when(response).getStatus();
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+  }
+
+  @Test
+  public void testResponseWithoutValidators() throws IOException {
+    githubParserUtils.doGetJsonApi(USER_URL);
+    githubParserUtils.doGetJsonApi(USER_URL);
+
+    verify(builder, never()).header(anyString(), any());
+  }
+
+  @Test
+  public void testServerErrorsOpenCircuit() throws IOException {
+    doReturn(Response.Status.SERVICE_UNAVAILABLE.getStatusCode()).when(response).getStatus();
+
+    for (int i = 0; i < 5; i++) {
+      assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+    }
+
+    assertEquals(GithubCircuitBreaker.State.OPEN,
+        githubParserUtils.getHostRegistry().getHost(USER_URL).getState());
+
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+    verify(builder, times(5)).get();
+  }
+
+  @Test
+  public void testTrialReleasedWhenRequestFails() throws IOException {
+    GithubHostHealth health = githubParserUtils.getHostRegistry().getHost(USER_URL);
+    health.onFailure(new UnknownHostException(), System.currentTimeMillis() - 60000);
+
+    doThrow(IllegalArgumentException.class).when(baseClientTargetBuilder).target(USER_URL);
+
+    try {
+      githubParserUtils.doGetJsonApi(USER_URL);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(GithubCircuitBreaker.State.HALF_OPEN, health.getState());
+    }
+
+    // The next call is the trial and closes the circuit
+    doReturn(webTarget).when(baseClientTargetBuilder).target(USER_URL);
+    githubParserUtils.doGetJsonApi(USER_URL);
+
+    assertEquals(GithubCircuitBreaker.State.CLOSED, health.getState());
+  }
+
+  @Test
+  public void testOpenCircuitKeepsRateLimit() throws IOException {
+    long reset = System.currentTimeMillis() / 1000 + 3600;
+
+    GithubHostHealth health = githubParserUtils.getHostRegistry().getHost(USER_URL);
+    health.onFailure(new UnknownHostException(), System.currentTimeMillis());
+
+    GithubRateLimit rateLimit =
+        githubParserUtils.getRateLimit(health, GithubTokenCredential.ANONYMOUS);
+    rateLimit.update("60", "30", String.valueOf(reset));
+
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+
+    // No budget is taken for a request skipped by the circuit breaker
+    assertEquals(30, rateLimit.getRemaining());
+    verify(builder, never()).get();
+  }
+
+  @Test
+  public void testRateLimitExhausted() throws IOException {
+    long reset = System.currentTimeMillis() / 1000 + 3600;
+
+    doReturn(Response.Status.FORBIDDEN.getStatusCode()).when(response).getStatus();
+    doReturn("60").when(response).getHeaderString(GithubRateLimit.LIMIT_HEADER);
+    doReturn("0").when(response).getHeaderString(GithubRateLimit.REMAINING_HEADER);
+    doReturn(String.valueOf(reset)).when(response).getHeaderString(GithubRateLimit.RESET_HEADER);
+
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+
+    verify(builder, times(1)).get();
+  }
+
+  @Test
+  public void testRotateTokens() throws IOException {
+    long reset = System.currentTimeMillis() / 1000 + 3600;
+
+    doReturn(builder).when(builder).header(anyString(), any());
+    doReturn(Response.Status.FORBIDDEN.getStatusCode()).when(response).getStatus();
+    doReturn("5000").when(response).getHeaderString(GithubRateLimit.LIMIT_HEADER);
+    doReturn("0").when(response).getHeaderString(GithubRateLimit.REMAINING_HEADER);
+    doReturn(String.valueOf(reset)).when(response).getHeaderString(GithubRateLimit.RESET_HEADER);
+
+    githubParserUtils.setTokens("first, second");
+    githubParserUtils.initCredentials();
+
+    // Each token is used until its budget is exhausted, then the calls are skipped
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+
+    verify(builder, times(1)).header(HttpHeaders.AUTHORIZATION, "token first");
+    verify(builder, times(1)).header(HttpHeaders.AUTHORIZATION, "token second");
+    verify(builder, times(2)).get();
+  }
+
+  @Test
+  public void testTokensBoundToApiHost() throws IOException {
+    doReturn(builder).when(builder).header(anyString(), any());
+    doReturn(Response.Status.NOT_FOUND.getStatusCode()).when(response).getStatus();
+
+    githubParserUtils.setTokens("first");
+    githubParserUtils.initCredentials();
+
+    // URLs read from the payload may point to other hosts or downgrade the scheme
+    githubParserUtils.doGetJsonApi("https://attacker.example.com/users/baxterthehacker");
+    githubParserUtils.doGetJsonApi("http://api.github.com/users/baxterthehacker");
+    githubParserUtils.doGetJsonApi("https://api.github.com:8443/users/baxterthehacker");
+
+    verify(builder, never()).header(eq(HttpHeaders.AUTHORIZATION), any());
+    verify(builder, times(3)).get();
+
+    githubParserUtils.doGetJsonApi(USER_URL);
+
+    verify(builder, times(1)).header(HttpHeaders.AUTHORIZATION, "token first");
+  }
+
+  @Test
+  public void testPayloadHostsNotTracked() throws IOException {
+    doReturn(Response.Status.SERVICE_UNAVAILABLE.getStatusCode()).when(response).getStatus();
+
+    String otherUrl = "https://attacker.example.com/users/baxterthehacker";
+
+    for (int i = 0; i < 5; i++) {
+      assertNull(githubParserUtils.doGetJsonApi(otherUrl));
+    }
+
+    // Hosts read from the payloads are neither registered, probed nor skipped
+    assertEquals(1, githubParserUtils.getHostRegistry().getHosts().size());
+    assertNull(githubParserUtils.doGetJsonApi(otherUrl));
+    verify(builder, times(6)).get();
+  }
+
+  @Test
+  public void testUnknownHostSkipsCalls() throws IOException {
+    ProcessingException processingException =
+        new ProcessingException(new UnknownHostException(USER_URL));
+    doThrow(processingException).when(builder).get();
+
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+    assertNull(githubParserUtils.doGetJsonApi(USER_URL));
+
+    GithubHostHealth health = githubParserUtils.getHostRegistry().getHost(USER_URL);
+    assertEquals(1, health.getUnknownHostFailures());
+    assertEquals(1, health.getSkippedCalls());
+    verify(builder, times(1)).get();
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import org.junit.Test;
+import org.symphonyoss.integration.json.JsonUtils;
+import org.symphonyoss.integration.utils.SimpleFileUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link GithubPayloadFilter}
+ */
+public class GithubPayloadFilterTest {
+
+  private static final String PAYLOAD_FILE_PUSH = "parser/push/payload_xgithubevent_push.json";
+
+  private static final String PAYLOAD_FILE_PR =
+      "parser/pullRequest/payload_xgithubevent_pull_request_opened.json";
+
+  @Test
+  public void testSkipUndeclaredPaths() throws IOException {
+    GithubPayloadFilter filter = GithubPayloadFilter.fromPaths(
+        Arrays.asList("ref", "repository.full_name", "pusher"));
+
+    String body = SimpleFileUtils.readFile(PAYLOAD_FILE_PUSH);
+    JsonNode fullNode = JsonUtils.readTree(body);
+    JsonNode node = filter.read(body);
+
+    assertEquals(3, node.size());
+    assertFalse(node.has("commits"));
+    assertFalse(node.has("head_commit"));
+    assertEquals(fullNode.path("ref"), node.path("ref"));
+    assertEquals(fullNode.path("pusher"), node.path("pusher"));
+
+    assertEquals(1, node.path("repository").size());
+    assertEquals(fullNode.path("repository").path("full_name"),
+        node.path("repository").path("full_name"));
+  }
+
+  @Test
+  public void testNestedPaths() throws IOException {
+    GithubPayloadFilter filter = GithubPayloadFilter.fromPaths(
+        Arrays.asList("pull_request.head.ref", "pull_request.head.repo.html_url", "sender"));
+
+    String body = SimpleFileUtils.readFile(PAYLOAD_FILE_PR);
+    JsonNode fullNode = JsonUtils.readTree(body);
+    JsonNode node = filter.read(body);
+
+    JsonNode head = node.path("pull_request").path("head");
+    assertEquals(2, head.size());
+    assertEquals(1, head.path("repo").size());
+    assertEquals(fullNode.path("pull_request").path("head").path("repo").path("html_url"),
+        head.path("repo").path("html_url"));
+    assertFalse(node.path("pull_request").has("_links"));
+    assertFalse(node.path("pull_request").has("base"));
+
+    assertTrue(node.has("sender"));
+    assertEquals(fullNode.path("sender"), node.path("sender"));
+  }
+
+  @Test
+  public void testNullValues() throws IOException {
+    GithubPayloadFilter filter = GithubPayloadFilter.fromPaths(Arrays.asList("assignee.login"));
+
+    JsonNode node = filter.read("{ \"assignee\": null, \"sender\": { \"login\": \"test\" } }");
+
+    assertTrue(node.path("assignee").isNull());
+    assertFalse(node.has("sender"));
+  }
+
+  @Test
+  public void testReducedPaths() throws IOException {
+    GithubPayloadReducer counter = new GithubPayloadReducer() {
+      @Override
+      public JsonNode reduce(JsonParser parser) throws IOException {
+        int count = 0;
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          parser.skipChildren();
+          count++;
+        }
+
+        return IntNode.valueOf(count);
+      }
+    };
+
+    GithubPayloadFilter filter = GithubPayloadFilter.fromPaths(Arrays.asList("ref", "pusher"),
+        Collections.singletonMap("commits", counter));
+
+    String body = SimpleFileUtils.readFile(PAYLOAD_FILE_PUSH);
+    JsonNode fullNode = JsonUtils.readTree(body);
+    JsonNode node = filter.read(body);
+
+    assertEquals(3, node.size());
+    assertEquals(fullNode.path("commits").size(), node.path("commits").asInt());
+    assertEquals(fullNode.path("pusher"), node.path("pusher"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testEmptyBody() throws IOException {
+    GithubPayloadFilter filter = GithubPayloadFilter.fromPaths(Arrays.asList("ref"));
+    filter.read("");
+  }
+
+}
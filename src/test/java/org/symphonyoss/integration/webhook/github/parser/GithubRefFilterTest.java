@@ -0,0 +1,170 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_CREATE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_EVENT_NAME;
+
+import org.junit.Test;
+import org.symphonyoss.integration.utils.SimpleFileUtils;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link GithubRefFilter}
+ */
+public class GithubRefFilterTest {
+
+  private static final String PAYLOAD_FILE_PUSH = "parser/push/payload_xgithubevent_push.json";
+
+  private static final String PAYLOAD_FILE_PUSH_TAG =
+      "parser/push/payload_xgithubevent_push_tag.json";
+
+  private static final String PAYLOAD_FILE_BRANCH_CREATED =
+      "parser/created/payload_xgithubevent_branch_created.json";
+
+  private static final String PAYLOAD_FILE_TAG_CREATED =
+      "parser/created/payload_xgithubevent_tag_created.json";
+
+  private static final String PAYLOAD_FILE_STATUS =
+      "parser/status/payload_xgithubevent_status.json";
+
+  private GithubRefFilter filter = new GithubRefFilter();
+
+  @Test
+  public void testDisabled() throws IOException {
+    filter.setPatterns("");
+
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, SimpleFileUtils.readFile(PAYLOAD_FILE_PUSH)));
+  }
+
+  @Test
+  public void testPush() throws IOException {
+    String body = SimpleFileUtils.readFile(PAYLOAD_FILE_PUSH);
+
+    filter.setPatterns("master, release/**");
+    assertFalse(filter.accept(GITHUB_EVENT_PUSH, body));
+
+    // Short branch name
+    filter.setPatterns("master, chan*");
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, body));
+
+    // Full ref
+    filter.setPatterns("refs/heads/changes");
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, body));
+
+    assertEquals(1, filter.getFilteredEvents());
+  }
+
+  @Test
+  public void testPushTag() throws IOException {
+    String body = SimpleFileUtils.readFile(PAYLOAD_FILE_PUSH_TAG);
+
+    filter.setPatterns("refs/heads/**");
+    assertFalse(filter.accept(GITHUB_EVENT_PUSH, body));
+
+    filter.setPatterns("refs/heads/**, refs/tags/*");
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, body));
+  }
+
+  @Test
+  public void testGlob() {
+    filter.setPatterns("release/*");
+
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, "{ \"ref\": \"refs/heads/release/1.0\" }"));
+    assertFalse(filter.accept(GITHUB_EVENT_PUSH, "{ \"ref\": \"refs/heads/release/1.0/fix\" }"));
+    assertFalse(filter.accept(GITHUB_EVENT_PUSH, "{ \"ref\": \"refs/heads/release-1.0\" }"));
+
+    filter.setPatterns("release/**");
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, "{ \"ref\": \"refs/heads/release/1.0/fix\" }"));
+  }
+
+  @Test
+  public void testRegex() {
+    filter.setPatterns("master, regex:hotfix-[0-9]+");
+
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, "{ \"ref\": \"refs/heads/hotfix-12\" }"));
+    assertFalse(filter.accept(GITHUB_EVENT_PUSH, "{ \"ref\": \"refs/heads/hotfix-x\" }"));
+  }
+
+  @Test
+  public void testCreate() throws IOException {
+    filter.setPatterns("dev");
+
+    assertTrue(filter.accept(GITHUB_EVENT_CREATE,
+        SimpleFileUtils.readFile(PAYLOAD_FILE_BRANCH_CREATED)));
+    assertFalse(filter.accept(GITHUB_EVENT_CREATE,
+        SimpleFileUtils.readFile(PAYLOAD_FILE_TAG_CREATED)));
+
+    filter.setPatterns("refs/tags/0.*");
+    assertTrue(filter.accept(GITHUB_EVENT_CREATE,
+        SimpleFileUtils.readFile(PAYLOAD_FILE_TAG_CREATED)));
+  }
+
+  @Test
+  public void testStatus() throws IOException {
+    String body = SimpleFileUtils.readFile(PAYLOAD_FILE_STATUS);
+
+    filter.setPatterns("master");
+    assertTrue(filter.accept(GITHUB_EVENT_STATUS, body));
+
+    filter.setPatterns("dev");
+    assertFalse(filter.accept(GITHUB_EVENT_STATUS, body));
+  }
+
+  @Test
+  public void testOtherEvents() {
+    filter.setPatterns("master");
+
+    assertTrue(filter.accept("release", "{ \"ref\": \"refs/heads/dev\" }"));
+  }
+
+  @Test
+  public void testInvalidPayload() {
+    filter.setPatterns("master");
+
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, ""));
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, "[]"));
+    assertTrue(filter.accept(GITHUB_EVENT_PUSH, "{ \"before\": \"abc\" }"));
+  }
+
+  @Test
+  public void testParserNotCalled() {
+    filter.setPatterns("master");
+
+    GithubParser parser = mock(GithubParser.class);
+    GithubWebHookParserAdapter adapter = new GithubWebHookParserAdapter(parser, filter);
+    WebHookPayload payload = new WebHookPayload(Collections.<String, String>emptyMap(),
+        Collections.singletonMap(GITHUB_HEADER_EVENT_NAME, GITHUB_EVENT_PUSH),
+        "{ \"ref\": \"refs/heads/feature\", \"commits\": [] }");
+
+    assertNull(adapter.parse(payload));
+    verifyZeroInteractions(parser);
+  }
+
+}
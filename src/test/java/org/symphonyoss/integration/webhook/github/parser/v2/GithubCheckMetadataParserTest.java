@@ -0,0 +1,141 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_CHECK_RUN;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_CHECK_SUITE;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.symphonyoss.integration.model.message.Message;
+import org.symphonyoss.integration.utils.SimpleFileUtils;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserTest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit test class for {@link GithubCheckMetadataParser}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GithubCheckMetadataParserTest extends GithubParserTest<GithubCheckMetadataParser> {
+
+  private static final String PAYLOAD_FILE_CHECK_RUN =
+      "parser/checkRun/payload_xgithubevent_check_run_completed.json";
+
+  private static final String PAYLOAD_FILE_CHECK_RUN_FAILED =
+      "parser/checkRun/payload_xgithubevent_check_run_failed.json";
+
+  private static final String PAYLOAD_FILE_CHECK_SUITE =
+      "parser/checkSuite/payload_xgithubevent_check_suite_completed.json";
+
+  private static final String EXPECTED_FILE_CHECK_RUN_FAILED =
+      "parser/checkRun/v2/expected_xgithub_event_check_run_failed.json";
+
+  private static final String EXPECTED_FILE_CHECK_SUITE =
+      "parser/checkSuite/v2/expected_xgithub_event_check_suite_completed.json";
+
+  @Override
+  protected String getExpectedTemplate() throws IOException {
+    return SimpleFileUtils.readFile("templates/templateGithubCheck.xml");
+  }
+
+  @Override
+  protected GithubCheckMetadataParser getParser() {
+    return new GithubCheckMetadataParser(userService, utils, integrationProperties);
+  }
+
+  @Test
+  public void testSupportedEvents() {
+    List<String> events = getParser().getEvents();
+    assertNotNull(events);
+    assertEquals(2, events.size());
+    assertEquals(GITHUB_EVENT_CHECK_RUN, events.get(0));
+    assertEquals(GITHUB_EVENT_CHECK_SUITE, events.get(1));
+  }
+
+  @Test
+  public void testRollUpUntilSuiteCompletes() throws IOException {
+    assertNull(parseRun("build", "success", "2019-05-15T15:22:17Z"));
+    assertNull(parseRun("lint", "success", "2019-05-15T15:21:42Z"));
+
+    // The first failed run is posted at once
+    assertNotNull(parseRun("test", "failure", "2019-05-15T15:24:32Z"));
+
+    testParser(PAYLOAD_FILE_CHECK_SUITE, EXPECTED_FILE_CHECK_SUITE);
+  }
+
+  @Test
+  public void testRollUpPerSuite() throws IOException {
+    assertNull(parseRun("build", "success", "2019-05-15T15:22:17Z"));
+    assertNull(parseRun("lint", "success", "2019-05-15T15:21:42Z"));
+
+    // The runs of another app's suite on the same commit aren't rolled up with this suite
+    assertNotNull(parseRun(118578148, "codeql", "failure", "2019-05-15T15:30:00Z"));
+    assertNull(parseRun(118578148, "codeql", "failure", "2019-05-15T15:31:00Z"));
+
+    assertNotNull(parseRun("test", "failure", "2019-05-15T15:24:32Z"));
+
+    testParser(PAYLOAD_FILE_CHECK_SUITE, EXPECTED_FILE_CHECK_SUITE);
+  }
+
+  @Test
+  public void testFirstFailedRun() throws IOException {
+    testParser(PAYLOAD_FILE_CHECK_RUN_FAILED, EXPECTED_FILE_CHECK_RUN_FAILED);
+
+    assertNull(parseRun("test", "failure", "2019-05-15T15:24:32Z"));
+  }
+
+  @Test
+  public void testIgnoredActions() throws IOException {
+    JsonNode node = SimpleFileUtils.readJsonFromFile(PAYLOAD_FILE_CHECK_SUITE);
+    ((ObjectNode) node).put("action", "requested");
+
+    assertNull(parser.parse(Collections.<String, String>emptyMap(), node));
+
+    node = SimpleFileUtils.readJsonFromFile(PAYLOAD_FILE_CHECK_RUN_FAILED);
+    ((ObjectNode) node).put("action", "created");
+
+    assertNull(parser.parse(Collections.<String, String>emptyMap(), node));
+  }
+
+  private Message parseRun(String name, String conclusion, String completedAt)
+      throws IOException {
+    return parseRun(118578147, name, conclusion, completedAt);
+  }
+
+  private Message parseRun(long suiteId, String name, String conclusion, String completedAt)
+      throws IOException {
+    JsonNode node = SimpleFileUtils.readJsonFromFile(PAYLOAD_FILE_CHECK_RUN);
+    ObjectNode checkRun = (ObjectNode) node.path("check_run");
+    ((ObjectNode) checkRun.path("check_suite")).put("id", suiteId);
+    checkRun.put("name", name);
+    checkRun.put("conclusion", conclusion);
+    checkRun.put("completed_at", completedAt);
+
+    return parser.parse(Collections.<String, String>emptyMap(), node);
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link GithubMetadataProjection}
+ */
+public class GithubMetadataProjectionTest {
+
+  @Test
+  public void testCompile() {
+    GithubMetadataProjection projection =
+        GithubMetadataProjection.compile("metadataGithubPush.xml");
+
+    assertEquals(Arrays.asList("iconURL", "compare", "ref", "ref_type", "repository.full_name",
+        "repository.html_url", "pusher.name", "commits.count", "commits.authors",
+        "commits.more_messages", "messages"), projection.getPaths());
+  }
+
+  @Test
+  public void testNestedObjects() {
+    GithubMetadataProjection projection =
+        GithubMetadataProjection.compile("metadataGithubPullRequest.xml");
+
+    assertEquals(18, projection.getPaths().size());
+    assertTrue(projection.getPaths().contains("pull_request.head.repo.full_name"));
+    assertTrue(projection.getPaths().contains("assignee.name"));
+  }
+
+  @Test
+  public void testListObjects() {
+    GithubMetadataProjection projection =
+        GithubMetadataProjection.compile("metadataGithubStatus.xml");
+
+    // Field values inside a list are relative to each element
+    assertTrue(projection.getPaths().contains("branches"));
+    assertFalse(projection.getPaths().contains("name"));
+
+    projection = GithubMetadataProjection.compile("metadataGithubPullRequestReview.xml");
+
+    assertTrue(projection.getPaths().contains("comments"));
+    assertFalse(projection.getPaths().contains("path"));
+    assertFalse(projection.getPaths().contains("body"));
+  }
+
+  @Test(expected = GithubParserException.class)
+  public void testMetadataNotFound() {
+    GithubMetadataProjection.compile("metadataGithubUnknown.xml");
+  }
+
+}
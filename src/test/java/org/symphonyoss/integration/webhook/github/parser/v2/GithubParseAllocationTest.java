@@ -0,0 +1,533 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_COMMIT_COMMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_CREATE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_DEPLOYMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUBLIC;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_RELEASE;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_STATUS;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_EVENT_NAME;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.HTML_URL_TAG;
+import static org.symphonyoss.integration.webhook.github.GithubEventTags.REPOSITORY_TAG;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.parser.ParserUtils;
+import org.symphonyoss.integration.utils.SimpleFileUtils;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+import org.symphonyoss.integration.webhook.github.GithubWebHookIntegration;
+import org.symphonyoss.integration.webhook.github.delivery.GithubDeliveryFilter;
+import org.symphonyoss.integration.webhook.github.delivery.GithubIngestionQueue;
+import org.symphonyoss.integration.webhook.github.delivery.GithubReviewCorrelator;
+import org.symphonyoss.integration.webhook.github.delivery.GithubSignatureVerifier;
+import org.symphonyoss.integration.webhook.github.delivery.GithubStatusCoalescer;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserFactory;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserResolver;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+import org.symphonyoss.integration.webhook.parser.metadata.MetadataParser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Allocation measurement of the webhook parse hot path.
+ *
+ * Each sample payload goes through {@link GithubWebHookIntegration#parse(WebHookPayload)} and the
+ * bytes allocated per event are measured with {@link com.sun.management.ThreadMXBean}. A per-stage
+ * breakdown is logged for each event.
+ *
+ * The measurement only runs on demand, so it isn't a regression gate of the regular build:
+ * '-Dgithub.allocation.record=true' writes the measured budgets, along with the JDK and the
+ * machine they were measured on, to 'target/allocation-budgets.properties'. Once they're copied
+ * to 'allocation/allocation-budgets.properties', '-Dgithub.allocation.check=true' fails when an
+ * event allocates more than its budget plus the tolerance, or when an event has no budget.
+ */
+public class GithubParseAllocationTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GithubParseAllocationTest.class);
+
+  private static final String BUDGETS_FILE = "allocation/allocation-budgets.properties";
+
+  private static final String RECORDED_BUDGETS_FILE = "target/allocation-budgets.properties";
+
+  private static final String TOLERANCE_KEY = "tolerance.percent";
+
+  private static final String RECORD_PROPERTY = "github.allocation.record";
+
+  private static final String CHECK_PROPERTY = "github.allocation.check";
+
+  private static final String JDK_KEY = "recorded.jdk";
+
+  private static final String MACHINE_KEY = "recorded.machine";
+
+  private static final String INTEGRATION_USER = "githubWebHookIntegration";
+
+  private static final String APPLICATION_URL = "symphony.com";
+
+  private static final int WARMUP_ITERATIONS = 500;
+
+  private static final int MEASURED_ITERATIONS = 51;
+
+  private static final Properties BUDGETS = new Properties();
+
+  private static final Properties RECORDED = new Properties();
+
+  private static com.sun.management.ThreadMXBean threadMXBean;
+
+  @BeforeClass
+  public static void setupClass() throws IOException {
+    assumeTrue("Allocation measured with -D" + RECORD_PROPERTY + "=true or -D" + CHECK_PROPERTY
+        + "=true", Boolean.getBoolean(RECORD_PROPERTY) || Boolean.getBoolean(CHECK_PROPERTY));
+
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+    threadMXBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+    InputStream budgets =
+        GithubParseAllocationTest.class.getClassLoader().getResourceAsStream(BUDGETS_FILE);
+    try {
+      BUDGETS.load(budgets);
+    } finally {
+      budgets.close();
+    }
+
+    if (Boolean.getBoolean(CHECK_PROPERTY) && !getJdk().equals(BUDGETS.getProperty(JDK_KEY))) {
+      LOGGER.warn("Allocation budgets recorded with {} on {}, checked with {} on {}",
+          BUDGETS.getProperty(JDK_KEY), BUDGETS.getProperty(MACHINE_KEY), getJdk(), getMachine());
+    }
+  }
+
+  private static String getJdk() {
+    return System.getProperty("java.vm.name") + " " + System.getProperty("java.version");
+  }
+
+  private static String getMachine() {
+    return System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", "
+        + Runtime.getRuntime().availableProcessors() + " CPUs";
+  }
+
+  @AfterClass
+  public static void recordBudgets() throws IOException {
+    if (!Boolean.getBoolean(RECORD_PROPERTY) || RECORDED.isEmpty()) {
+      return;
+    }
+
+    RECORDED.setProperty(JDK_KEY, getJdk());
+    RECORDED.setProperty(MACHINE_KEY, getMachine());
+
+    OutputStream output = new FileOutputStream(new File(RECORDED_BUDGETS_FILE));
+    try {
+      RECORDED.store(output, "Bytes allocated per event by GithubWebHookIntegration.parse");
+    } finally {
+      output.close();
+    }
+  }
+
+  @Test
+  public void testPushAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.PUSH);
+  }
+
+  @Test
+  public void testPullRequestAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.PULL_REQUEST);
+  }
+
+  @Test
+  public void testCommentAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.COMMENT);
+  }
+
+  @Test
+  public void testPullRequestReviewCommentAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.PULL_REQUEST_REVIEW_COMMENT);
+  }
+
+  @Test
+  public void testStatusAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.STATUS);
+  }
+
+  @Test
+  public void testReleaseAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.RELEASE);
+  }
+
+  @Test
+  public void testDeploymentAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.DEPLOYMENT);
+  }
+
+  @Test
+  public void testCreateAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.CREATE);
+  }
+
+  @Test
+  public void testPublicAllocation() throws Exception {
+    assertAllocationBudget(AllocationEvent.PUBLIC);
+  }
+
+  /**
+   * Measures the bytes allocated per event and compares them to the event budget.
+   * @param event Event to be measured
+   */
+  private void assertAllocationBudget(final AllocationEvent event) throws Exception {
+    final String body = SimpleFileUtils.readFile(event.payloadFile);
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(GITHUB_HEADER_EVENT_NAME, event.eventName);
+
+    final WebHookPayload payload =
+        new WebHookPayload(Collections.<String, String>emptyMap(), headers, body);
+
+    final GithubMetadataParser parser = event.createParser();
+    parser.init();
+    parser.setIntegrationUser(INTEGRATION_USER);
+
+    final GithubWebHookIntegration integration = createIntegration(parser);
+    final JsonNode filteredNode = parser.getPayloadFilter().read(body);
+
+    final Method preProcessMethod =
+        MetadataParser.class.getDeclaredMethod("preProcessInputData", JsonNode.class);
+    preProcessMethod.setAccessible(true);
+
+    // Reaches the steady state: classes loaded, JIT compiled and user-name cache warm
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      assertNotNull(integration.parse(payload));
+    }
+
+    long total = measure(new AllocationStage() {
+      @Override
+      public void run(JsonNode input) throws Exception {
+        integration.parse(payload);
+      }
+    }, filteredNode);
+
+    Map<String, Long> stages = new LinkedHashMap<>();
+
+    stages.put("adapter read", measure(new AllocationStage() {
+      @Override
+      public void run(JsonNode input) throws Exception {
+        parser.getPayloadFilter().read(body);
+      }
+    }, filteredNode));
+
+    stages.put("preProcessInputData", measure(new AllocationStage() {
+      @Override
+      public void run(JsonNode input) throws Exception {
+        preProcessMethod.invoke(parser, input);
+      }
+    }, filteredNode));
+
+    stages.put("processUser", measure(new AllocationStage() {
+      @Override
+      public void run(JsonNode input) throws Exception {
+        parser.processUser(input.at(event.userPointer));
+      }
+    }, filteredNode));
+
+    stages.put("processURL", measure(new AllocationStage() {
+      @Override
+      public void run(JsonNode input) throws Exception {
+        parser.processURL(input.path(REPOSITORY_TAG), HTML_URL_TAG);
+      }
+    }, filteredNode));
+
+    if (event.escapedTextPointer != null) {
+      stages.put("escaping", measure(new AllocationStage() {
+        @Override
+        public void run(JsonNode input) throws Exception {
+          ParserUtils.escapeAndAddLineBreaks(input.at(event.escapedTextPointer).asText());
+        }
+      }, filteredNode));
+    }
+
+    stages.put("message build", measure(new AllocationStage() {
+      @Override
+      public void run(JsonNode input) throws Exception {
+        parser.parse(payload.getHeaders(), payload.getParameters(), input);
+      }
+    }, filteredNode));
+
+    LOGGER.info("Bytes allocated per '{}' event: {} total, stages {}", event.eventName, total,
+        stages);
+
+    if (Boolean.getBoolean(RECORD_PROPERTY)) {
+      RECORDED.setProperty(event.eventName, String.valueOf(total));
+      return;
+    }
+
+    String recordedBudget = BUDGETS.getProperty(event.eventName);
+    assertNotNull("No budget recorded for the event '" + event.eventName + "'", recordedBudget);
+
+    long budget = Long.parseLong(recordedBudget);
+    long tolerance = Long.parseLong(BUDGETS.getProperty(TOLERANCE_KEY));
+    long limit = budget + (budget * tolerance / 100);
+
+    assertTrue(String.format("Event '%s' allocated %d bytes, budget is %d bytes (+%d%%)",
+        event.eventName, total, budget, tolerance), total <= limit);
+  }
+
+  /**
+   * Returns the median of the bytes allocated by the stage. Each run receives its own copy of the
+   * input payload, created before the measurement starts.
+   * @param stage Stage to be measured
+   * @param node Input payload
+   * @return Median of the allocated bytes
+   */
+  private long measure(AllocationStage stage, JsonNode node) throws Exception {
+    JsonNode[] inputs = new JsonNode[MEASURED_ITERATIONS];
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      inputs[i] = node.deepCopy();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long[] samples = new long[MEASURED_ITERATIONS];
+
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      long before = threadMXBean.getThreadAllocatedBytes(threadId);
+      stage.run(inputs[i]);
+      samples[i] = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    Arrays.sort(samples);
+    return samples[MEASURED_ITERATIONS / 2];
+  }
+
+  /**
+   * Wires the Github integration with a single v2 parser, without mocks, so only the parse path
+   * allocates memory during the measurement.
+   * @param parser v2 parser
+   * @return Github integration
+   */
+  private GithubWebHookIntegration createIntegration(GithubMetadataParser parser)
+      throws Exception {
+    V2GithubParserFactory factory = new V2GithubParserFactory();
+    setField(factory, "beans", Collections.singletonList(parser));
+    factory.init();
+
+    GithubParserResolver resolver = new GithubParserResolver();
+    setField(resolver, "factories", Collections.<GithubParserFactory>singletonList(factory));
+    resolver.init();
+
+    GithubWebHookIntegration integration = new GithubWebHookIntegration();
+    setField(integration, "parserResolver", resolver);
+    setField(integration, "factories", Collections.<GithubParserFactory>singletonList(factory));
+
+    GithubDeliveryFilter deliveryFilter = new GithubDeliveryFilter();
+    deliveryFilter.init();
+    setField(integration, "deliveryFilter", deliveryFilter);
+    setField(integration, "signatureVerifier", new GithubSignatureVerifier());
+
+    // Payloads are parsed synchronously: no queue, no status coalescing, no review correlation
+    setField(integration, "ingestionQueue", new GithubIngestionQueue());
+    setField(integration, "statusCoalescer", new GithubStatusCoalescer());
+    setField(integration, "reviewCorrelator", new GithubReviewCorrelator());
+
+    return integration;
+  }
+
+  private void setField(Object target, String fieldName, Object value) throws Exception {
+    Class<?> clazz = target.getClass();
+
+    while (clazz.getSuperclass() != null) {
+      try {
+        Field field = clazz.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+        return;
+      } catch (NoSuchFieldException e) {
+        clazz = clazz.getSuperclass();
+      }
+    }
+
+    throw new NoSuchFieldException(fieldName);
+  }
+
+  /**
+   * Stage of the parse path to be measured.
+   */
+  private interface AllocationStage {
+
+    void run(JsonNode input) throws Exception;
+
+  }
+
+  /**
+   * Github API utilities that never reach the network. User names fall back to the login.
+   */
+  private static final class OfflineGithubParserUtils extends GithubParserUtils {
+
+    @Override
+    public JsonNode doGetJsonApi(String url) {
+      return null;
+    }
+
+  }
+
+  /**
+   * Integration properties returning a fixed application URL.
+   */
+  private static final class FixedIntegrationProperties extends IntegrationProperties {
+
+    @Override
+    public String getApplicationUrl(String application) {
+      return APPLICATION_URL;
+    }
+
+  }
+
+  /**
+   * Events measured by the test, with the sample payload and the paths used by each stage.
+   */
+  private enum AllocationEvent {
+
+    PUSH(GITHUB_EVENT_PUSH, "parser/push/payload_xgithubevent_push.json", "/sender", null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubPushMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    PULL_REQUEST(GITHUB_EVENT_PULL_REQUEST,
+        "parser/pullRequest/payload_xgithubevent_pull_request_opened.json", "/sender",
+        "/pull_request/body") {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubPullRequestMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    COMMENT(GITHUB_EVENT_COMMIT_COMMENT,
+        "parser/commitComment/payload_xgithubevent_commit_comment_created.json",
+        "/comment/user", "/comment/body") {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubCommentMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    PULL_REQUEST_REVIEW_COMMENT(GITHUB_EVENT_PULL_REQUEST_REVIEW_COMMENT,
+        "parser/pullRequestReviewComment/payload_xgithubevent_pullRequestReviewComment.json",
+        "/comment/user", null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubPullRequestReviewCommentMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    STATUS(GITHUB_EVENT_STATUS, "parser/status/payload_xgithubevent_status.json", "/sender",
+        null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubStatusMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    RELEASE(GITHUB_EVENT_RELEASE, "parser/release/payload_xgithubevent_release.json",
+        "/release/author", null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubReleaseMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    DEPLOYMENT(GITHUB_EVENT_DEPLOYMENT, "parser/deployment/payload_xgithubevent_deployment.json",
+        "/deployment/creator", null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubDeploymentMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    CREATE(GITHUB_EVENT_CREATE, "parser/created/payload_xgithubevent_branch_created.json",
+        "/sender", null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubCreateMetadataParser(null, UTILS, PROPERTIES);
+      }
+    },
+
+    PUBLIC(GITHUB_EVENT_PUBLIC, "parser/public/payload_xgithubevent_public.json", "/sender",
+        null) {
+      @Override
+      GithubMetadataParser createParser() {
+        return new GithubPublicMetadataParser(null, UTILS, PROPERTIES);
+      }
+    };
+
+    private static final GithubParserUtils UTILS = new OfflineGithubParserUtils();
+
+    private static final IntegrationProperties PROPERTIES = new FixedIntegrationProperties();
+
+    private final String eventName;
+
+    private final String payloadFile;
+
+    private final JsonPointer userPointer;
+
+    private final JsonPointer escapedTextPointer;
+
+    AllocationEvent(String eventName, String payloadFile, String userPointer,
+        String escapedTextPointer) {
+      this.eventName = eventName;
+      this.payloadFile = payloadFile;
+      this.userPointer = JsonPointer.compile(userPointer);
+      this.escapedTextPointer =
+          escapedTextPointer == null ? null : JsonPointer.compile(escapedTextPointer);
+    }
+
+    abstract GithubMetadataParser createParser();
+
+  }
+
+}
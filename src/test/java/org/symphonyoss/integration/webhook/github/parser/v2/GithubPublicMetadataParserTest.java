@@ -1,15 +1,21 @@
 package org.symphonyoss.integration.webhook.github.parser.v2;
 
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.symphonyoss.integration.utils.SimpleFileUtils;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserTest;
 
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unit test class for {@link GithubPublicMetadataParser}
@@ -20,6 +26,12 @@ public class GithubPublicMetadataParserTest extends GithubParserTest<GithubPubli
 
   private static final String USER_URL = "https://api.github.com/users/baxterthehacker";
 
+  private static final long SLOW_API_DELAY_IN_MILLIS = 500;
+
+  private static final long SHORT_TIMEOUT_IN_MILLIS = 10;
+
+  private static final long LONG_TIMEOUT_IN_MILLIS = 5000;
+
   private static final String
       PARSER_PUBLIC_V2_PAYLOAD_XGITHUBEVENT_PUBLIC_WITHOUT_USERINFO_EXPECTED_DATA_JSON =
       "parser/public/v2/expected_xgithubevent_public_without_userinfo_data.json";
@@ -60,4 +72,32 @@ public class GithubPublicMetadataParserTest extends GithubParserTest<GithubPubli
     testParser(PAYLOAD_XGITHUBEVENT_PUBLIC_JSON,
         PARSER_PUBLIC_V2_PAYLOAD_XGITHUBEVENT_PUBLIC_WITHOUT_USERINFO_EXPECTED_DATA_JSON);
   }
+
+  @Test
+  public void testPublicEventSlowUserApi() throws IOException, InterruptedException {
+    final JsonNode publicUserInfoBaxter = readJsonFromFile(
+        "parser/payload_github_public_info_baxterthehacker.json");
+    final CountDownLatch lookupFinished = new CountDownLatch(1);
+
+    doAnswer(new Answer<JsonNode>() {
+      @Override
+      public JsonNode answer(InvocationOnMock invocation) throws Throwable {
+        Thread.sleep(SLOW_API_DELAY_IN_MILLIS);
+        lookupFinished.countDown();
+        return publicUserInfoBaxter;
+      }
+    }).when(utils).doGetJsonApi(USER_URL);
+
+    // The user public name isn't available in time, so the login is used
+    parser.setUserInfoTimeout(SHORT_TIMEOUT_IN_MILLIS);
+    testParser(PAYLOAD_XGITHUBEVENT_PUBLIC_JSON,
+        PARSER_PUBLIC_V2_PAYLOAD_XGITHUBEVENT_PUBLIC_WITHOUT_USERINFO_EXPECTED_DATA_JSON);
+
+    // The lookup keeps running in the background and warms the cache up for the next event
+    assertTrue(lookupFinished.await(LONG_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS));
+
+    parser.setUserInfoTimeout(LONG_TIMEOUT_IN_MILLIS);
+    testParser(PAYLOAD_XGITHUBEVENT_PUBLIC_JSON,
+        PARSER_PUBLIC_V2_PAYLOAD_XGITHUBEVENT_PUBLIC_EXPECTED_DATA_JSON);
+  }
 }
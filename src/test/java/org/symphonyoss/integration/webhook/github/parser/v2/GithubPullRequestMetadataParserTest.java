@@ -17,6 +17,12 @@
 package org.symphonyoss.integration.webhook.github.parser.v2;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants
     .GITHUB_EVENT_PULL_REQUEST;
 
@@ -29,7 +35,10 @@ import org.symphonyoss.integration.webhook.github.parser.GithubParserException;
 import org.symphonyoss.integration.webhook.github.parser.GithubParserTest;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Unit test class for {@link GithubPullRequestMetadataParser}
@@ -43,6 +52,9 @@ public class GithubPullRequestMetadataParserTest extends GithubParserTest<Github
   private static final String EXPECTED_FILE_PR_ASSIGNED =
       "parser/pullRequest/v2/expected_xgithub_event_pull_request_assigned.json";
 
+  private static final String SENDER_LOGIN = "baxterthehacker";
+  private static final String ASSIGNEE_LOGIN = "octocat";
+
   private static final String PAYLOAD_FILE_PR_CLOSED =
       "parser/pullRequest/payload_xgithubevent_pull_request_closed.json";
   private static final String EXPECTED_FILE_PR_CLOSED =
@@ -125,5 +137,40 @@ public class GithubPullRequestMetadataParserTest extends GithubParserTest<Github
   public void testParserSynchronize() throws IOException, GithubParserException {
     testParser(PAYLOAD_FILE_PR_SYNCHRONIZE, EXPECTED_FILE_PR_SYNCHRONIZE);
   }
-}
 
+  @Test
+  public void testFilteredParserOpened() throws IOException, GithubParserException {
+    testFilteredParser(PAYLOAD_FILE_PR_OPENED, EXPECTED_FILE_PR_OPENED);
+  }
+
+  @Test
+  public void testFilteredParserLabeled() throws IOException, GithubParserException {
+    testFilteredParser(PAYLOAD_FILE_PR_LABELED, EXPECTED_FILE_PR_LABELED);
+  }
+
+  @Test
+  public void testParserAssignedBatchedLookup() throws IOException, GithubParserException {
+    Map<String, String> publicNames = new HashMap<>();
+    publicNames.put(SENDER_LOGIN, "");
+    publicNames.put(ASSIGNEE_LOGIN, "");
+
+    doReturn(true).when(utils).isGraphqlEnabled();
+    doReturn(publicNames).when(utils).doGetUserPublicNames(anyCollection());
+
+    testParser(PAYLOAD_FILE_PR_ASSIGNED, EXPECTED_FILE_PR_ASSIGNED);
+
+    verify(utils, times(1)).doGetUserPublicNames(anyCollection());
+    verify(utils, never()).doGetJsonApi(anyString());
+  }
+
+  @Test
+  public void testParserAssignedBatchedLookupFallback() throws IOException, GithubParserException {
+    doReturn(true).when(utils).isGraphqlEnabled();
+    doReturn(Collections.emptyMap()).when(utils).doGetUserPublicNames(anyCollection());
+
+    testParser(PAYLOAD_FILE_PR_ASSIGNED, EXPECTED_FILE_PR_ASSIGNED);
+
+    verify(utils, times(1)).doGetUserPublicNames(anyCollection());
+    verify(utils, times(2)).doGetJsonApi(anyString());
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_EVENT_PULL_REQUEST_REVIEW;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.symphonyoss.integration.utils.SimpleFileUtils;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserTest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Unit test class for {@link GithubPullRequestReviewMetadataParser}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GithubPullRequestReviewMetadataParserTest
+    extends GithubParserTest<GithubPullRequestReviewMetadataParser> {
+
+  private static final String PAYLOAD_FILE_PR_REVIEW =
+      "parser/pullRequestReview/payload_xgithubevent_pull_request_review_submitted.json";
+
+  private static final String PAYLOAD_FILE_PR_REVIEW_WITH_COMMENTS =
+      "parser/pullRequestReview/payload_xgithubevent_pull_request_review_with_comments.json";
+
+  private static final String PAYLOAD_FILE_PR_REVIEW_ESCAPED =
+      "parser/pullRequestReview/payload_xgithubevent_pull_request_review_escaped.json";
+
+  private static final String EXPECTED_FILE_PR_REVIEW =
+      "parser/pullRequestReview/v2/expected_xgithub_event_pull_request_review_submitted.json";
+
+  private static final String EXPECTED_FILE_PR_REVIEW_WITH_COMMENTS =
+      "parser/pullRequestReview/v2/expected_xgithub_event_pull_request_review_with_comments.json";
+
+  private static final String EXPECTED_FILE_PR_REVIEW_ESCAPED =
+      "parser/pullRequestReview/v2/expected_xgithub_event_pull_request_review_escaped.json";
+
+  @Override
+  protected String getExpectedTemplate() throws IOException {
+    return SimpleFileUtils.readFile("templates/templateGithubPullRequestReview.xml");
+  }
+
+  @Override
+  protected GithubPullRequestReviewMetadataParser getParser() {
+    return new GithubPullRequestReviewMetadataParser(userService, utils, integrationProperties);
+  }
+
+  @Test
+  public void testSupportedEvents() {
+    List<String> events = getParser().getEvents();
+    assertNotNull(events);
+    assertEquals(1, events.size());
+    assertEquals(GITHUB_EVENT_PULL_REQUEST_REVIEW, events.get(0));
+  }
+
+  @Test
+  public void testPRReview() throws IOException {
+    testParser(PAYLOAD_FILE_PR_REVIEW, EXPECTED_FILE_PR_REVIEW);
+  }
+
+  @Test
+  public void testPRReviewWithComments() throws IOException {
+    testFilteredParser(PAYLOAD_FILE_PR_REVIEW_WITH_COMMENTS, EXPECTED_FILE_PR_REVIEW_WITH_COMMENTS);
+  }
+
+  @Test
+  public void testPRReviewWithSpecialChars() throws IOException {
+    testFilteredParser(PAYLOAD_FILE_PR_REVIEW_ESCAPED, EXPECTED_FILE_PR_REVIEW_ESCAPED);
+  }
+}
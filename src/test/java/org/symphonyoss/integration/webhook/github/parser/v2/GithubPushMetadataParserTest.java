@@ -18,8 +18,13 @@ package org.symphonyoss.integration.webhook.github.parser.v2;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -64,5 +69,50 @@ public class GithubPushMetadataParserTest extends GithubParserTest<GithubPushMet
   public void testPush() throws IOException, GithubParserException {
     testParser(PAYLOAD_FILE_PUSH, EXPECTED_FILE_PUSH);
   }
+
+  @Test
+  public void testFilteredPush() throws IOException, GithubParserException {
+    testFilteredParser(PAYLOAD_FILE_PUSH, EXPECTED_FILE_PUSH);
+  }
+
+  @Test
+  public void testLargePushSummary() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode push = (ObjectNode) SimpleFileUtils.readJsonFromFile(PAYLOAD_FILE_PUSH);
+    ArrayNode commits = push.putArray("commits");
+
+    for (int i = 0; i < 3000; i++) {
+      ObjectNode commit = commits.addObject();
+      commit.put("message", "Commit " + i + "\n\nMirror sync");
+      commit.putObject("author").put("name", "author" + (i % 20));
+      commit.putArray("added").add("README.md");
+    }
+
+    JsonNode node = parser.getPayloadFilter().read(mapper.writeValueAsString(push));
+    JsonNode summary = node.path("commits");
+
+    assertEquals("3000", summary.path("count").asText());
+    assertTrue(summary.path("authors").asText().startsWith("author0 (150), author1 (150), "));
+    assertTrue(summary.path("authors").asText().endsWith("author9 (150) and others"));
+    assertEquals("and 2995 more commits", summary.path("more_messages").asText());
+    assertEquals(5, summary.path("messages").size());
+    assertEquals("Commit 0", summary.path("messages").get(0).path("message").asText());
+  }
+
+  @Test
+  public void testEscapedPushSummary() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode push = (ObjectNode) SimpleFileUtils.readJsonFromFile(PAYLOAD_FILE_PUSH);
+    ObjectNode commit = push.putArray("commits").addObject();
+    commit.put("message", "Render <b> & \"quotes\"\n\nSee <script>");
+    commit.putObject("author").put("name", "Baxter <baxter@github.com>");
+
+    JsonNode node = parser.getPayloadFilter().read(mapper.writeValueAsString(push));
+    JsonNode summary = node.path("commits");
+
+    assertEquals("Baxter &lt;baxter@github.com&gt; (1)", summary.path("authors").asText());
+    assertEquals("Render &lt;b&gt; &amp; &quot;quotes&quot;",
+        summary.path("messages").get(0).path("message").asText());
+  }
 }
 
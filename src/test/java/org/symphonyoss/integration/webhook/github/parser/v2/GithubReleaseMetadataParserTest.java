@@ -18,6 +18,9 @@ package org.symphonyoss.integration.webhook.github.parser.v2;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_RELEASE;
 
 import org.junit.Test;
@@ -64,5 +67,11 @@ public class GithubReleaseMetadataParserTest extends GithubParserTest<GithubRele
   public void testRelease() throws IOException, GithubParserException {
     testParser(PAYLOAD_FILE_RELEASE, EXPECTED_FILE_RELEASE);
   }
-}
 
+  @Test
+  public void testReleaseSameAuthorAndSender() throws IOException, GithubParserException {
+    testParser(PAYLOAD_FILE_RELEASE, EXPECTED_FILE_RELEASE);
+
+    verify(utils, times(1)).doGetJsonApi(anyString());
+  }
+}
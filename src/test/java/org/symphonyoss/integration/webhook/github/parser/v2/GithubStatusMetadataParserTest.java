@@ -65,5 +65,10 @@ public class GithubStatusMetadataParserTest extends GithubParserTest<GithubStatu
   public void testStatus() throws IOException, GithubParserException {
     testParser(PAYLOAD_FILE_STATUS, EXPECTED_FILE_STATUS);
   }
+
+  @Test
+  public void testFilteredStatus() throws IOException, GithubParserException {
+    testFilteredParser(PAYLOAD_FILE_STATUS, EXPECTED_FILE_STATUS);
+  }
 }
 
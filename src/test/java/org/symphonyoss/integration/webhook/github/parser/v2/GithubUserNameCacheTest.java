@@ -0,0 +1,268 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit tests for {@link GithubUserNameCache}
+ */
+public class GithubUserNameCacheTest {
+
+  private static final String USER_URL = "https://api.github.com/users/baxterthehacker";
+
+  private static final String PUBLIC_NAME = "Baxter";
+
+  private static final String NEW_PUBLIC_NAME = "Baxter the Hacker";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  private final Queue<String> names = new LinkedList<>();
+
+  private GithubUserNameCache cache;
+
+  @Before
+  public void init() {
+    CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+      @Override
+      public String load(String url) {
+        lookups.incrementAndGet();
+        return names.poll();
+      }
+    };
+
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    };
+
+    cache = new GithubUserNameCache(loader, MoreExecutors.directExecutor(), ticker, 10);
+  }
+
+  private void advance(long duration, TimeUnit unit) {
+    nanos.addAndGet(unit.toNanos(duration));
+  }
+
+  @Test
+  public void testLoad() {
+    names.add(PUBLIC_NAME);
+
+    assertNull(cache.getIfPresent(USER_URL));
+    assertEquals(PUBLIC_NAME, cache.get(USER_URL));
+    assertEquals(PUBLIC_NAME, cache.get(USER_URL));
+    assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  public void testFailedLookup() {
+    assertNull(cache.get(USER_URL));
+    assertTrue(cache.isLookupFailed(USER_URL));
+    assertNull(cache.getIfPresent(USER_URL));
+
+    // Failures are not retried until they expire
+    assertNull(cache.get(USER_URL));
+    assertEquals(1, lookups.get());
+
+    advance(6, TimeUnit.MINUTES);
+    names.add(PUBLIC_NAME);
+
+    assertFalse(cache.isLookupFailed(USER_URL));
+    assertEquals(PUBLIC_NAME, cache.get(USER_URL));
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void testRefreshServesStaleName() {
+    names.addAll(Arrays.asList(PUBLIC_NAME, NEW_PUBLIC_NAME));
+    assertEquals(PUBLIC_NAME, cache.get(USER_URL));
+
+    advance(30, TimeUnit.MINUTES);
+    assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals(1, lookups.get());
+
+    advance(31, TimeUnit.MINUTES);
+    assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals(NEW_PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void testConcurrentReadsRefreshOnce() throws InterruptedException {
+    final CountDownLatch refreshed = new CountDownLatch(1);
+    final AtomicInteger refreshes = new AtomicInteger();
+
+    CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+      @Override
+      public String load(String url) throws InterruptedException {
+        refreshes.incrementAndGet();
+        refreshed.await(5, TimeUnit.SECONDS);
+        return NEW_PUBLIC_NAME;
+      }
+    };
+
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    };
+
+    ExecutorService refreshExecutor = Executors.newFixedThreadPool(4);
+    final GithubUserNameCache refreshedCache =
+        new GithubUserNameCache(loader, refreshExecutor, ticker, 10);
+
+    refreshedCache.put(USER_URL, PUBLIC_NAME);
+    advance(61, TimeUnit.MINUTES);
+
+    ExecutorService readers = Executors.newFixedThreadPool(8);
+
+    for (int i = 0; i < 8; i++) {
+      readers.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 100; j++) {
+            refreshedCache.getIfPresent(USER_URL);
+          }
+        }
+      });
+    }
+
+    readers.shutdown();
+    assertTrue(readers.awaitTermination(5, TimeUnit.SECONDS));
+
+    refreshed.countDown();
+    refreshExecutor.shutdown();
+    assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+    // A single lookup while the entry was read 800 times
+    assertEquals(1, refreshes.get());
+    assertEquals(NEW_PUBLIC_NAME, refreshedCache.getIfPresent(USER_URL));
+  }
+
+  @Test
+  public void testRefreshFailureKeepsStaleName() {
+    names.add(PUBLIC_NAME);
+    assertEquals(PUBLIC_NAME, cache.get(USER_URL));
+
+    advance(61, TimeUnit.MINUTES);
+    assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals(2, lookups.get());
+
+    assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals(PUBLIC_NAME, cache.get(USER_URL));
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void testPut() {
+    assertNull(cache.get(USER_URL));
+    assertTrue(cache.isLookupFailed(USER_URL));
+
+    cache.put(USER_URL, PUBLIC_NAME);
+
+    assertFalse(cache.isLookupFailed(USER_URL));
+    assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+  }
+
+  @Test
+  public void testMaximumSize() {
+    for (int i = 0; i < 100; i++) {
+      cache.put(USER_URL + i, PUBLIC_NAME);
+    }
+
+    cache.cleanUp();
+
+    assertTrue(cache.size() <= 10);
+
+    cache.setMaximumSize(5);
+    cache.cleanUp();
+
+    assertTrue(cache.size() <= 5);
+  }
+
+  @Test
+  public void testWarmUp() {
+    String otherUrl = "https://api.github.com/users/octocat";
+    cache.put(USER_URL, NEW_PUBLIC_NAME);
+
+    Map<String, String> warmNames = new HashMap<>();
+    warmNames.put(USER_URL, PUBLIC_NAME);
+    warmNames.put(otherUrl, "");
+    cache.warmUp(warmNames);
+
+    // Names already cached are kept
+    assertEquals(NEW_PUBLIC_NAME, cache.getIfPresent(USER_URL));
+    assertEquals("", cache.getIfPresent(otherUrl));
+    assertEquals(0, lookups.get());
+  }
+
+  @Test
+  public void testStore() {
+    GithubUserNameStore store = new GithubUserNameStore();
+    store.setPath(new File(folder.getRoot(), "github-users.db").getPath());
+    store.init();
+
+    try {
+      cache.setStore(store);
+
+      long fetchedAt = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+      store.put(USER_URL, PUBLIC_NAME, fetchedAt);
+      names.add(NEW_PUBLIC_NAME);
+
+      // Served from the store right away, then refreshed as it's older than the refresh interval
+      assertEquals(PUBLIC_NAME, cache.getIfPresent(USER_URL));
+      assertEquals(1, lookups.get());
+      assertEquals(NEW_PUBLIC_NAME, cache.getIfPresent(USER_URL));
+      assertEquals(NEW_PUBLIC_NAME, store.get(USER_URL).getName());
+    } finally {
+      store.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link GithubUserNameStore}
+ */
+public class GithubUserNameStoreTest {
+
+  private static final String USER_URL = "https://api.github.com/users/baxterthehacker";
+
+  private static final String OTHER_USER_URL = "https://api.github.com/users/octocat";
+
+  private static final String PUBLIC_NAME = "Baxter";
+
+  private static final String NEW_PUBLIC_NAME = "Baxter the Hacker";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+
+  private GithubUserNameStore store;
+
+  @Before
+  public void init() {
+    file = new File(folder.getRoot(), "users/github-users.db");
+    store = openStore();
+  }
+
+  @After
+  public void tearDown() {
+    store.shutdown();
+  }
+
+  private GithubUserNameStore openStore() {
+    GithubUserNameStore userNameStore = new GithubUserNameStore();
+    userNameStore.setPath(file.getPath());
+    userNameStore.init();
+    return userNameStore;
+  }
+
+  private GithubUserNameStore reopenStore() {
+    store.shutdown();
+    store = openStore();
+    return store;
+  }
+
+  @Test
+  public void testDisabled() {
+    GithubUserNameStore disabledStore = new GithubUserNameStore();
+    disabledStore.setPath("");
+    disabledStore.init();
+
+    disabledStore.put(USER_URL, PUBLIC_NAME, System.currentTimeMillis());
+
+    assertFalse(disabledStore.isEnabled());
+    assertNull(disabledStore.get(USER_URL));
+  }
+
+  @Test
+  public void testPutAndGet() {
+    long fetchedAt = System.currentTimeMillis();
+    store.put(USER_URL, PUBLIC_NAME, fetchedAt);
+    store.put(OTHER_USER_URL, "", fetchedAt);
+    store.put(USER_URL, NEW_PUBLIC_NAME, fetchedAt + 1);
+
+    assertTrue(store.isEnabled());
+    assertEquals(2, store.size());
+    assertEquals(NEW_PUBLIC_NAME, store.get(USER_URL).getName());
+    assertEquals(fetchedAt + 1, store.get(USER_URL).getFetchedAt());
+    assertEquals("", store.get(OTHER_USER_URL).getName());
+    assertNull(store.get("https://api.github.com/users/unknown"));
+  }
+
+  @Test
+  public void testReopen() {
+    long fetchedAt = System.currentTimeMillis();
+    store.put(USER_URL, PUBLIC_NAME, fetchedAt);
+    store.put(USER_URL, NEW_PUBLIC_NAME, fetchedAt);
+
+    reopenStore();
+
+    assertEquals(1, store.size());
+    assertEquals(NEW_PUBLIC_NAME, store.get(USER_URL).getName());
+    assertEquals(fetchedAt, store.get(USER_URL).getFetchedAt());
+  }
+
+  @Test
+  public void testGrow() {
+    long fetchedAt = System.currentTimeMillis();
+
+    for (int i = 0; i < 20000; i++) {
+      store.put(USER_URL + i, PUBLIC_NAME + i, fetchedAt);
+    }
+
+    reopenStore();
+
+    assertEquals(20000, store.size());
+    assertEquals(PUBLIC_NAME + 19999, store.get(USER_URL + 19999).getName());
+  }
+
+  @Test
+  public void testCompact() throws IOException {
+    long fetchedAt = System.currentTimeMillis();
+
+    for (int i = 0; i < 10; i++) {
+      store.put(USER_URL, PUBLIC_NAME + i, fetchedAt);
+    }
+
+    store.put(OTHER_USER_URL, PUBLIC_NAME, fetchedAt - TimeUnit.DAYS.toMillis(8));
+
+    store.compact();
+
+    assertEquals(1, store.size());
+    assertEquals(PUBLIC_NAME + 9, store.get(USER_URL).getName());
+    assertNull(store.get(OTHER_USER_URL));
+
+    store.put(OTHER_USER_URL, NEW_PUBLIC_NAME, fetchedAt);
+    reopenStore();
+
+    assertEquals(2, store.size());
+    assertEquals(NEW_PUBLIC_NAME, store.get(OTHER_USER_URL).getName());
+  }
+
+  @Test
+  public void testCorruptedRecord() throws IOException {
+    long fetchedAt = System.currentTimeMillis();
+    store.put(USER_URL, PUBLIC_NAME, fetchedAt);
+    store.put(OTHER_USER_URL, PUBLIC_NAME, fetchedAt);
+    store.shutdown();
+
+    // Header (8 bytes) + first record header (8 bytes) + fetched at (8 bytes) + URL length (2
+    // bytes) + URL: the first byte of the first record name
+    int nameOffset = 8 + 8 + 8 + 2 + USER_URL.length() + 2;
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(nameOffset);
+      raf.write('X');
+    } finally {
+      raf.close();
+    }
+
+    store = openStore();
+
+    assertEquals(0, store.size());
+
+    store.put(OTHER_USER_URL, NEW_PUBLIC_NAME, fetchedAt);
+    reopenStore();
+
+    assertEquals(1, store.size());
+    assertEquals(NEW_PUBLIC_NAME, store.get(OTHER_USER_URL).getName());
+  }
+
+  @Test
+  public void testCorruptedLength() throws IOException {
+    long fetchedAt = System.currentTimeMillis();
+    store.put(USER_URL, PUBLIC_NAME, fetchedAt);
+    store.shutdown();
+
+    // A length that overflows when it's added to the record offset
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(8);
+      raf.writeInt(Integer.MAX_VALUE - 4);
+    } finally {
+      raf.close();
+    }
+
+    store = openStore();
+
+    assertTrue(store.isEnabled());
+    assertEquals(0, store.size());
+
+    store.put(OTHER_USER_URL, NEW_PUBLIC_NAME, fetchedAt);
+    reopenStore();
+
+    assertEquals(1, store.size());
+    assertEquals(NEW_PUBLIC_NAME, store.get(OTHER_USER_URL).getName());
+  }
+
+  @Test
+  public void testCompactWhileWriting() throws Exception {
+    final long fetchedAt = System.currentTimeMillis();
+
+    for (int i = 0; i < 1000; i++) {
+      store.put(USER_URL, PUBLIC_NAME + i, fetchedAt);
+    }
+
+    Thread writer = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 1000; i++) {
+          store.put(OTHER_USER_URL + i, PUBLIC_NAME + i, fetchedAt);
+        }
+      }
+    };
+
+    writer.start();
+
+    for (int i = 0; i < 5; i++) {
+      store.compact();
+    }
+
+    writer.join();
+
+    assertEquals(1001, store.size());
+    assertEquals(PUBLIC_NAME + 999, store.get(USER_URL).getName());
+    assertEquals(PUBLIC_NAME + 999, store.get(OTHER_USER_URL + 999).getName());
+
+    reopenStore();
+
+    assertEquals(1001, store.size());
+    assertEquals(PUBLIC_NAME + 0, store.get(OTHER_USER_URL + 0).getName());
+  }
+
+}
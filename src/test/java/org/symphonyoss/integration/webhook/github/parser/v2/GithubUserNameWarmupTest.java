@@ -0,0 +1,222 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.webhook.github.parser.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.symphonyoss.integration.webhook.github.parser.GithubParserUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link GithubUserNameWarmup}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GithubUserNameWarmupTest {
+
+  private static final String API_URL = "http://localhost:8080";
+
+  private static final String ORG = "symphonyoss";
+
+  private static final String USER_URL = API_URL + "/users/";
+
+  private static final String PAGE_URL = API_URL + "/orgs/" + ORG + "/members?per_page=100&page=";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private GithubParserUtils utils;
+
+  private GithubUserNameWarmup warmup;
+
+  @Before
+  public void init() {
+    warmup = new GithubUserNameWarmup(utils);
+    warmup.setApiUrl(API_URL);
+    warmup.setParallelism(2);
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    warmup.warmUp();
+
+    assertTrue(warmup.getNames().isEmpty());
+    verify(utils, never()).doGetJsonApi(anyString());
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+    File snapshot = folder.newFile("users.json");
+    Files.write(snapshot.toPath(), "{ \"baxterthehacker\": \"Baxter\", \"octocat\": null }"
+        .getBytes(StandardCharsets.UTF_8));
+
+    warmup.setSnapshotPath(snapshot.getAbsolutePath());
+    warmup.warmUp();
+
+    Map<String, String> names = warmup.getNames();
+    assertEquals(2, names.size());
+    assertEquals("Baxter", names.get(USER_URL + "baxterthehacker"));
+    assertEquals("", names.get(USER_URL + "octocat"));
+  }
+
+  @Test
+  public void testOrgMembers() throws IOException {
+    doReturn(userInfo("Member")).when(utils).doGetJsonApi(startsWith(USER_URL));
+    doReturn(members(0, 100)).when(utils).doGetJsonApi(PAGE_URL + "1");
+    doReturn(members(100, 100)).when(utils).doGetJsonApi(PAGE_URL + "2");
+    doReturn(members(200, 10)).when(utils).doGetJsonApi(PAGE_URL + "3");
+    doReturn(members(210, 0)).when(utils).doGetJsonApi(PAGE_URL + "4");
+
+    warmup.setOrg(ORG);
+    warmup.setMaxUserLookups(1000);
+    warmup.warmUp();
+
+    assertEquals(210, warmup.getNames().size());
+    assertEquals("Member", warmup.getNames().get(USER_URL + "user209"));
+
+    // Pages are requested in waves of two, until an incomplete page is found
+    verify(utils, never()).doGetJsonApi(PAGE_URL + "5");
+    verify(utils, times(210)).doGetJsonApi(startsWith(USER_URL));
+  }
+
+  @Test
+  public void testUserLookupsCapped() throws IOException {
+    doReturn(userInfo("Member")).when(utils).doGetJsonApi(startsWith(USER_URL));
+    doReturn(members(0, 100)).when(utils).doGetJsonApi(PAGE_URL + "1");
+    doReturn(members(100, 10)).when(utils).doGetJsonApi(PAGE_URL + "2");
+
+    warmup.setOrg(ORG);
+    warmup.setMaxUserLookups(50);
+    warmup.warmUp();
+
+    assertEquals(50, warmup.getNames().size());
+    verify(utils, times(50)).doGetJsonApi(startsWith(USER_URL));
+  }
+
+  @Test
+  public void testNamesReleased() throws IOException {
+    File snapshot = folder.newFile("users.json");
+    Files.write(snapshot.toPath(), "{ \"baxterthehacker\": \"Baxter\" }"
+        .getBytes(StandardCharsets.UTF_8));
+
+    warmup.setSnapshotPath(snapshot.getAbsolutePath());
+    warmup.warmUp();
+    assertEquals(1, warmup.getNames().size());
+
+    warmup.afterSingletonsInstantiated();
+    assertTrue(warmup.getNames().isEmpty());
+  }
+
+  @Test
+  public void testOrgMembersGraphql() throws IOException {
+    doReturn(members(0, 2)).when(utils).doGetJsonApi(PAGE_URL + "1");
+    doReturn(true).when(utils).isGraphqlEnabled();
+    doReturn(Collections.singletonMap("user1", "Member")).when(utils)
+        .doGetUserPublicNames(anyCollectionOf(String.class));
+
+    warmup.setOrg(ORG);
+    warmup.warmUp();
+
+    assertEquals(Collections.singletonMap(USER_URL + "user1", "Member"), warmup.getNames());
+    verify(utils, never()).doGetJsonApi(startsWith(USER_URL));
+  }
+
+  @Test
+  public void testSnapshotSkipsKnownMembers() throws IOException {
+    File snapshot = folder.newFile("users.json");
+    Files.write(snapshot.toPath(), "{ \"user0\": \"Snapshot\" }".getBytes(StandardCharsets.UTF_8));
+
+    doReturn(userInfo("Member")).when(utils).doGetJsonApi(startsWith(USER_URL));
+    doReturn(members(0, 2)).when(utils).doGetJsonApi(PAGE_URL + "1");
+
+    warmup.setSnapshotPath(snapshot.getAbsolutePath());
+    warmup.setOrg(ORG);
+    warmup.warmUp();
+
+    assertEquals("Snapshot", warmup.getNames().get(USER_URL + "user0"));
+    assertEquals("Member", warmup.getNames().get(USER_URL + "user1"));
+    verify(utils, never()).doGetJsonApi(USER_URL + "user0");
+  }
+
+  @Test
+  public void testTimeBudget() throws IOException {
+    doAnswer(new Answer<JsonNode>() {
+      @Override
+      public JsonNode answer(InvocationOnMock invocation) throws InterruptedException {
+        Thread.sleep(5000);
+        return null;
+      }
+    }).when(utils).doGetJsonApi(eq(PAGE_URL + "1"));
+
+    warmup.setOrg(ORG);
+    warmup.setTimeout(100);
+
+    long start = System.currentTimeMillis();
+    warmup.warmUp();
+
+    assertTrue(System.currentTimeMillis() - start < 2000);
+    assertTrue(warmup.getNames().isEmpty());
+  }
+
+  private JsonNode members(int first, int count) {
+    ArrayNode members = JsonNodeFactory.instance.arrayNode();
+
+    for (int i = first; i < first + count; i++) {
+      ObjectNode member = members.addObject();
+      member.put("login", "user" + i);
+      member.put("url", USER_URL + "user" + i);
+    }
+
+    return members;
+  }
+
+  private JsonNode userInfo(String name) {
+    ObjectNode userInfo = JsonNodeFactory.instance.objectNode();
+    userInfo.put("name", name);
+    return userInfo;
+  }
+
+}
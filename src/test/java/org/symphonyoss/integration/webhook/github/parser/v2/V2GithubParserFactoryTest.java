@@ -20,11 +20,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.symphonyoss.integration.webhook.github.GithubEventConstants.GITHUB_EVENT_PUSH;
+import static org.symphonyoss.integration.webhook.github.GithubEventConstants
+    .GITHUB_HEADER_EVENT_NAME;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +40,7 @@ import org.symphonyoss.integration.model.config.IntegrationSettings;
 import org.symphonyoss.integration.model.message.MessageMLVersion;
 import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.github.parser.GithubParser;
+import org.symphonyoss.integration.webhook.github.parser.GithubWebHookParserAdapter;
 import org.symphonyoss.integration.webhook.github.parser.NullGithubParser;
 import org.symphonyoss.integration.webhook.parser.WebHookParser;
 
@@ -67,6 +71,9 @@ public class V2GithubParserFactoryTest {
   @InjectMocks
   private V2GithubParserFactory factory;
 
+  @InjectMocks
+  private V2GithubParserFactory disabledEventsFactory;
+
   @Before
   public void init() {
     doReturn(Arrays.asList(GITHUB_EVENT_PUSH)).when(pushMetadataParser).getEvents();
@@ -113,4 +120,62 @@ public class V2GithubParserFactoryTest {
   public void testGetParser() {
     assertEquals(pushMetadataParser, factory.getParser(GITHUB_EVENT_PUSH));
   }
+
+  @Test
+  public void testAdapterReused() {
+    WebHookPayload payload = payload(GITHUB_EVENT_PUSH, "{}");
+
+    WebHookParser parser = factory.getParser(payload);
+
+    assertTrue(parser instanceof GithubWebHookParserAdapter);
+    assertSame(parser, factory.getParser(payload));
+    assertTrue(factory.getRejectedEvents().isEmpty());
+  }
+
+  @Test
+  public void testRejectUnsupportedEvent() {
+    // The payload isn't read, so an invalid body doesn't matter
+    WebHookPayload payload = payload("watch", "invalid");
+
+    WebHookParser parser = factory.getParser(payload);
+
+    assertNull(parser.parse(payload));
+    assertSame(parser, factory.getParser(payload));
+    assertSame(parser, factory.getParser(payload("fork", "invalid")));
+
+    Map<String, Long> rejectedEvents = factory.getRejectedEvents();
+    assertEquals(Long.valueOf(2), rejectedEvents.get("watch"));
+    assertEquals(Long.valueOf(1), rejectedEvents.get("fork"));
+  }
+
+  @Test
+  public void testRejectDisabledEvent() {
+    disabledEventsFactory.setDisabledEvents("status, push");
+    disabledEventsFactory.init();
+
+    WebHookPayload payload = payload(GITHUB_EVENT_PUSH, "{}");
+
+    assertNull(disabledEventsFactory.getParser(payload).parse(payload));
+    assertEquals(Long.valueOf(1), disabledEventsFactory.getRejectedEvents().get(GITHUB_EVENT_PUSH));
+  }
+
+  @Test
+  public void testEventAccepted() {
+    disabledEventsFactory.setDisabledEvents("status");
+    disabledEventsFactory.init();
+
+    assertTrue(disabledEventsFactory.isEventAccepted(GITHUB_EVENT_PUSH));
+    assertFalse(disabledEventsFactory.isEventAccepted("status"));
+    assertFalse(disabledEventsFactory.isEventAccepted("watch"));
+    assertFalse(disabledEventsFactory.isEventAccepted(null));
+
+    Map<String, Long> rejectedEvents = disabledEventsFactory.getRejectedEvents();
+    assertEquals(3, rejectedEvents.size());
+    assertEquals(Long.valueOf(1), rejectedEvents.get("status"));
+  }
+
+  private WebHookPayload payload(String eventName, String body) {
+    Map<String, String> headers = Collections.singletonMap(GITHUB_HEADER_EVENT_NAME, eventName);
+    return new WebHookPayload(Collections.<String, String>emptyMap(), headers, body);
+  }
 }